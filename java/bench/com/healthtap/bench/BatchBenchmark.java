@@ -0,0 +1,116 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.healthtap.BundleCompiler;
+import com.healthtap.IResourceBundle;
+import com.healthtap.IStringProvider;
+import com.healthtap.MappedStringProvider;
+
+/**
+ * Compare resolving all of the strings of a page one getString call at a
+ * time against resolving them with a single getStrings call. The page is
+ * a mix of translated and untranslated source strings. Each benchmark
+ * resolves one whole page, so the scores are the time per page.
+ *
+ * @author edwinhoogerbeets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+	@Param({"50", "500"})
+	public int pageSize;
+
+	@Param({"map", "mapped"})
+	public String provider;
+
+	private IResourceBundle rb;
+	private String[] page;
+	private File file;
+
+	@Setup
+	public void setup() throws IOException, IllegalAccessException {
+		IStringProvider strings = new BenchResources();
+		if (provider.equals("mapped")) {
+			BundleCompiler compiler = new BundleCompiler();
+			for (Field field : BenchResources.string.class.getFields()) {
+				compiler.addString(field.getName(), strings.getString(field.getInt(null)));
+			}
+			file = File.createTempFile("batch", ".bin");
+			OutputStream out = new FileOutputStream(file);
+			try {
+				compiler.write(out);
+			} finally {
+				out.close();
+			}
+			strings = MappedStringProvider.open(file, BenchResources.string.class);
+		}
+		rb = new IResourceBundle(BenchResources.string.class, strings, Locale.forLanguageTag("fr-FR")).freeze();
+
+		page = new String[pageSize];
+		for (int i = 0; i < pageSize; i++) {
+			page[i] = (i % 3 == 2) ?
+				BenchResources.MISSES[i % BenchResources.MISSES.length] :
+				BenchResources.HITS[i % BenchResources.HITS.length];
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (file != null) {
+			file.delete();
+		}
+	}
+
+	@Benchmark
+	public void perCall(Blackhole bh) {
+		for (String source : page) {
+			bh.consume(rb.getString(source));
+		}
+	}
+
+	@Benchmark
+	public String[] batch() {
+		return rb.getStrings(page);
+	}
+}
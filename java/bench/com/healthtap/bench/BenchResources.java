@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.util.HashMap;
+
+import com.healthtap.IStringProvider;
+
+/**
+ * The R class and string provider that the benchmarks look up strings in.
+ * This mirrors what a typical integrator writes: an R.string class with
+ * hashed keys and a HashMap-backed provider.
+ *
+ * @author edwinhoogerbeets
+ */
+public class BenchResources implements IStringProvider {
+	public static final class string {
+		public static final int r479509761=1;   // Signing in...
+		public static final int r659292829=2;   // Opt out failed. Try later
+		public static final int r481239240=3;   // Done
+		public static final int r573025222=4;   // Keep Backup On
+		public static final int r177793402=5;   // A verification email was sent to {email}.
+		public static final int r429260889=6;   // Palm Services
+		public static final int r554153194=7;   // Don't Update
+	}
+
+	/**
+	 * Source strings that have a translation.
+	 */
+	public static final String[] HITS = {
+		"Signing in...",
+		"Opt out failed. Try later",
+		"Done",
+		"Keep Backup On",
+		"A verification email was sent to {email}.",
+		"Palm Services",
+		"Don't Update"
+	};
+
+	/**
+	 * Source strings that do not have a translation.
+	 */
+	public static final String[] MISSES = {
+		"Invalid Network Name",
+		"Engagement point!",
+		"actual state for Wifi: {0}",
+		"Can't find an application for SMS",
+		"People you are connected to",
+		"Referral Link",
+		"Failed to send connection request!"
+	};
+
+	/**
+	 * A source string with text, markup, an entity, a replacement parameter
+	 * and a format specifier, for exercising every branch of pseudo().
+	 */
+	public static final String PSEUDO_SOURCE =
+		"The <b>quick</b> brown fox &amp; {animal} jumped over %1$s lazy dogs at %d o'clock.";
+
+	/**
+	 * The number of characters in PSEUDO_TEXT.
+	 */
+	public static final int PSEUDO_TEXT_LENGTH = 1000;
+
+	/**
+	 * A long run of plain text for measuring pseudo-localization throughput.
+	 */
+	public static final String PSEUDO_TEXT;
+
+	static {
+		StringBuilder sb = new StringBuilder(PSEUDO_TEXT_LENGTH + 64);
+		while (sb.length() < PSEUDO_TEXT_LENGTH) {
+			sb.append("The quick brown fox jumped over the lazy dogs. ");
+		}
+		sb.setLength(PSEUDO_TEXT_LENGTH);
+		PSEUDO_TEXT = sb.toString();
+	}
+
+	private final HashMap<Integer,String> map = new HashMap<Integer,String>();
+
+	public BenchResources() {
+		map.put(1, "Connexion en cours...");
+		map.put(2, "Échec de la désinscription. Réessayez plus tard");
+		map.put(3, "Terminé");
+		map.put(4, "Garder la sauvegarde activée");
+		map.put(5, "Un courriel de vérification a été envoyé à {email}.");
+		map.put(6, "Services Palm");
+		map.put(7, "Ne pas mettre à jour");
+	}
+
+	public String getString(int id) {
+		return map.get(id);
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.healthtap.HashKey;
+import com.healthtap.IResourceBundle;
+
+/**
+ * Measure IResourceBundle.getString for source strings that are and are
+ * not translated, for each of the output types, both returning a new
+ * String and appending to a StringBuilder.
+ *
+ * @author edwinhoogerbeets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IResourceBundleBenchmark {
+	@Param({IResourceBundle.RAW_TYPE, IResourceBundle.HTML_TYPE, IResourceBundle.XML_TYPE, IResourceBundle.JAVA_TYPE})
+	public String type;
+
+	private IResourceBundle rb;
+	private final StringBuilder out = new StringBuilder();
+	private int[] hitIds;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		rb = new IResourceBundle(BenchResources.string.class, new BenchResources(), Locale.forLanguageTag("fr-FR"));
+		rb.setType(type);
+
+		// the ids that StringKeyProcessor would have generated for the hits
+		hitIds = new int[BenchResources.HITS.length];
+		for (int i = 0; i < hitIds.length; i++) {
+			hitIds[i] = BenchResources.string.class.getField(HashKey.hash(BenchResources.HITS[i])).getInt(null);
+		}
+	}
+
+	/**
+	 * Look up every translated source string once.
+	 */
+	@Benchmark
+	public void getStringHit(Blackhole bh) {
+		for (String source : BenchResources.HITS) {
+			bh.consume(rb.getString(source));
+		}
+	}
+
+	/**
+	 * Look up every translated source string once by an id that was worked
+	 * out ahead of time.
+	 */
+	@Benchmark
+	public void getStringHitById(Blackhole bh) {
+		String[] hits = BenchResources.HITS;
+		for (int i = 0; i < hits.length; i++) {
+			bh.consume(rb.getString(hits[i], hitIds[i]));
+		}
+	}
+
+	/**
+	 * Look up the plural variant of every translated source string for a
+	 * different count each time, as when rendering the rows of a list.
+	 * BenchResources has no plurals, so every count resolves to the plain
+	 * translation, but the variants are still chosen by the plural rules.
+	 */
+	@Benchmark
+	public void getPluralStringHit(Blackhole bh) {
+		String[] hits = BenchResources.HITS;
+		for (int i = 0; i < hits.length; i++) {
+			bh.consume(rb.getPluralString(hits[i], i));
+		}
+	}
+
+	/**
+	 * Look up every untranslated source string once.
+	 */
+	@Benchmark
+	public void getStringMiss(Blackhole bh) {
+		for (String source : BenchResources.MISSES) {
+			bh.consume(rb.getString(source));
+		}
+	}
+
+	/**
+	 * Append every translated source string to a reused StringBuilder.
+	 */
+	@Benchmark
+	public void getStringHitAppend(Blackhole bh) {
+		for (String source : BenchResources.HITS) {
+			out.setLength(0);
+			rb.getString(source, null, out);
+			bh.consume(out);
+		}
+	}
+
+	/**
+	 * Append every untranslated source string to a reused StringBuilder.
+	 */
+	@Benchmark
+	public void getStringMissAppend(Blackhole bh) {
+		for (String source : BenchResources.MISSES) {
+			out.setLength(0);
+			rb.getString(source, null, out);
+			bh.consume(out);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.healthtap.HashKey;
+import com.healthtap.KeyIndex;
+import com.healthtap.StringIndex;
+
+/**
+ * Compare looking up keys in the index that is built by reflecting over
+ * the R class with the perfect hash StringIndex, and measure how long it
+ * takes to build and to decode a StringIndex of various sizes. Decoding
+ * is what the class generated by the StringIndexGenerator does when it
+ * is loaded.
+ *
+ * @author edwinhoogerbeets
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyIndexBenchmark {
+	@Param({"1000", "50000"})
+	public int size;
+
+	private KeyIndex reflected;
+	private StringIndex perfect;
+	private String[] lookups;
+
+	private String[] names;
+	private int[] ids;
+	private String[] keyData;
+	private String[] intData;
+	private boolean charHash;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		reflected = KeyIndex.forClass(BenchResources.string.class);
+		perfect = StringIndex.build(reflected);
+
+		// the keys of the hits, followed by the keys of the misses
+		lookups = new String[BenchResources.HITS.length + BenchResources.MISSES.length];
+		for (int i = 0; i < BenchResources.HITS.length; i++) {
+			lookups[i] = HashKey.hash(BenchResources.HITS[i]);
+		}
+		for (int i = 0; i < BenchResources.MISSES.length; i++) {
+			lookups[BenchResources.HITS.length + i] = HashKey.hash(BenchResources.MISSES[i]);
+		}
+
+		names = new String[size];
+		ids = new int[size];
+		for (int i = 0; i < size; i++) {
+			names[i] = HashKey.hash("string number " + i);
+			ids[i] = 0x7f0e0000 + i;
+		}
+
+		// the same data that a generated class passes to decode
+		StringIndex big = StringIndex.build(names, ids);
+		charHash = big.isCharHash();
+		keyData = new String[] {big.encodeKeys()};
+		intData = new String[] {big.encodeInts()};
+	}
+
+	@Benchmark
+	public void indexOfReflected(Blackhole bh) {
+		for (String key : lookups) {
+			bh.consume(reflected.indexOf(key));
+		}
+	}
+
+	@Benchmark
+	public void indexOfPerfect(Blackhole bh) {
+		for (String key : lookups) {
+			bh.consume(perfect.indexOf(key));
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 20)
+	public StringIndex build() {
+		return StringIndex.build(names, ids);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 20)
+	public StringIndex decode() {
+		return StringIndex.decode(charHash, keyData, intData);
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.healthtap.MessageTemplate;
+
+/**
+ * Compare filling in the placeholders of a translation with one
+ * String.replace call per parameter, the way callers used to, with a
+ * cached MessageTemplate.
+ *
+ * @author edwinhoogerbeets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplateBenchmark {
+	private static final String TEXT = "Bonjour {name}, vous avez {count} nouveaux messages de {sender} depuis le {date}.";
+
+	private final Map<String, Object> params = new HashMap<String, Object>();
+
+	@Setup
+	public void setup() {
+		params.put("name", "Marie");
+		params.put("count", 12);
+		params.put("sender", "Dr. Dupont");
+		params.put("date", "12 mars");
+	}
+
+	@Benchmark
+	public String replace() {
+		String result = TEXT;
+		for (Map.Entry<String, Object> entry : params.entrySet()) {
+			result = result.replace("{" + entry.getKey() + "}", String.valueOf(entry.getValue()));
+		}
+		return result;
+	}
+
+	@Benchmark
+	public String templateMap() {
+		return MessageTemplate.get(TEXT, false).format(params);
+	}
+
+	@Benchmark
+	public String templatePairs() {
+		return MessageTemplate.get(TEXT, false).format("name", "Marie", "count", 12, "sender", "Dr. Dupont", "date", "12 mars");
+	}
+}
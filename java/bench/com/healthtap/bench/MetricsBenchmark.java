@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.healthtap.IResourceBundle;
+import com.healthtap.MetricsCollector;
+
+/**
+ * Measure the overhead of counting lookups with a MetricsCollector. All of
+ * the threads share one bundle and one collector, which is the worst case
+ * for contention on the counters.
+ *
+ * @author edwinhoogerbeets
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MetricsBenchmark {
+	@Param({"none", "collector"})
+	public String listener;
+
+	private IResourceBundle rb;
+
+	@Setup
+	public void setup() {
+		IResourceBundle bundle = new IResourceBundle(BenchResources.string.class, new BenchResources(), Locale.forLanguageTag("fr-FR"));
+		if (listener.equals("collector")) {
+			bundle.setMetricsListener(new MetricsCollector());
+		}
+		rb = bundle.freeze();
+	}
+
+	@Benchmark
+	public String getStringHit() {
+		return rb.getString(BenchResources.HITS[0]);
+	}
+
+	@Benchmark
+	public String getStringMiss() {
+		return rb.getString(BenchResources.MISSES[0]);
+	}
+}
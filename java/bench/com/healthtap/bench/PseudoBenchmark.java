@@ -0,0 +1,123 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.healthtap.IResourceBundle;
+
+/**
+ * Measure pseudo-localization with getStringPseudo for each of the
+ * script tables. The locales are picked so that ScriptInfo maps them
+ * to the Latn, Cyrl, Hans and Hebr tables respectively. The throughput
+ * benchmark counts each character as one operation, so its score is in
+ * characters per second. The results of pseudo-localization are cached,
+ * so after the first invocation most of these measure the cached path,
+ * which is what a load test under pseudo-localization goes through.
+ * pseudoCharsPerSecondUncached cycles through more distinct strings than
+ * the cache holds, so that every call runs the transform itself.
+ *
+ * @author edwinhoogerbeets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PseudoBenchmark {
+	@Param({"de-DE", "ru-RU", "zh-CN", "he-IL"})
+	public String locale;
+
+	@Param({IResourceBundle.RAW_TYPE, IResourceBundle.HTML_TYPE, IResourceBundle.JAVA_TYPE})
+	public String type;
+
+	/**
+	 * The number of distinct strings that pseudoCharsPerSecondUncached
+	 * cycles through, which is twice as many as the pseudo result cache
+	 * keeps for each variant, so none of them are found in it.
+	 */
+	private static final int UNCACHED_SOURCES = 8192;
+
+	private IResourceBundle rb;
+	private IResourceBundle pseudoLocale;
+	private String[] uncached;
+	private int next;
+
+	@Setup
+	public void setup() {
+		rb = new IResourceBundle(BenchResources.string.class, new BenchResources(), Locale.forLanguageTag(locale));
+		rb.setType(type);
+		pseudoLocale = new IResourceBundle(BenchResources.string.class, new BenchResources(), Locale.forLanguageTag("zxx-XX"));
+		pseudoLocale.setType(type);
+
+		// same length as PSEUDO_TEXT, but each one different at the start
+		uncached = new String[UNCACHED_SOURCES];
+		for (int i = 0; i < uncached.length; i++) {
+			uncached[i] = String.format("%05d", i) + BenchResources.PSEUDO_TEXT.substring(5);
+		}
+	}
+
+	/**
+	 * Look up every translated source string in the pseudo locale, to
+	 * compare with IResourceBundleBenchmark.getStringHit.
+	 */
+	@Benchmark
+	public void getStringPseudoLocale(Blackhole bh) {
+		for (String source : BenchResources.HITS) {
+			bh.consume(pseudoLocale.getString(source));
+		}
+	}
+
+	@Benchmark
+	public String getStringPseudo() {
+		return rb.getStringPseudo(BenchResources.PSEUDO_SOURCE);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(BenchResources.PSEUDO_TEXT_LENGTH)
+	public String pseudoCharsPerSecondCached() {
+		return rb.getStringPseudo(BenchResources.PSEUDO_TEXT);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(BenchResources.PSEUDO_TEXT_LENGTH)
+	public String pseudoCharsPerSecondUncached() {
+		String source = uncached[next];
+		next = (next + 1) % uncached.length;
+		return rb.getStringPseudo(source);
+	}
+}
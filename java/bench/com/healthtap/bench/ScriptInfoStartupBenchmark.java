@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.healthtap.ScriptInfo;
+
+/**
+ * Measure what a process pays the first time it uses ScriptInfo. Each
+ * invocation loads ScriptInfo again in a new class loader, so the class
+ * is loaded, verified and initialized from scratch. The forks run with
+ * the JIT turned off, so that the JDK code that ScriptInfo calls is not
+ * already compiled either, which is how it is at startup. loadClass only
+ * initializes the class, and firstLookup also does the first
+ * getScriptByLocale call, which is where the likely subtags data is
+ * loaded.
+ *
+ * @author edwinhoogerbeets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 100)
+@Fork(value = 3, jvmArgsAppend = "-Xint")
+public class ScriptInfoStartupBenchmark {
+	private static final URL CLASSES = ScriptInfo.class.getProtectionDomain().getCodeSource().getLocation();
+
+	private URLClassLoader loader;
+	private final Locale target = Locale.forLanguageTag("ru");
+
+	@Setup(Level.Invocation)
+	public void setup() {
+		// the parent is the platform loader, so that ScriptInfo is not
+		// found in the application class path where it is already loaded
+		loader = new URLClassLoader(new URL[] {CLASSES}, ClassLoader.getSystemClassLoader().getParent());
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() throws IOException {
+		loader.close();
+	}
+
+	@Benchmark
+	public Class<?> loadClass() throws Exception {
+		return Class.forName("com.healthtap.ScriptInfo", true, loader);
+	}
+
+	@Benchmark
+	public Object firstLookup() throws Exception {
+		Class<?> c = Class.forName("com.healthtap.ScriptInfo", true, loader);
+		Method m = c.getMethod("getScriptByLocale", Locale.class);
+		return m.invoke(null, target);
+	}
+}
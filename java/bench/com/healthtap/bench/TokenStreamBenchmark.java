@@ -0,0 +1,83 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.healthtap.MessageTemplate;
+import com.healthtap.TokenStream;
+
+/**
+ * Tokenize pathological strings of increasing length: strings dense with
+ * format specifiers, and strings made of tags, placeholders, entities and
+ * escapes that are started but never finished. The time should grow
+ * linearly with the length, so each tenfold increase in length should
+ * take about ten times as long.
+ *
+ * @author edwinhoogerbeets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenStreamBenchmark {
+	@Param({"1000", "10000", "100000"})
+	public int length;
+
+	@Param({"%d%", "{", "<", "&amp", "\\", "text"})
+	public String unit;
+
+	private String source;
+
+	@Setup
+	public void setup() {
+		StringBuilder sb = new StringBuilder(length + unit.length());
+		while (sb.length() < length) {
+			sb.append(unit);
+		}
+		source = sb.toString();
+	}
+
+	@Benchmark
+	public TokenStream tokenizeHtml() {
+		return TokenStream.tokenize(source, TokenStream.HTML_SYNTAX);
+	}
+
+	@Benchmark
+	public TokenStream tokenizeJava() {
+		return TokenStream.tokenize(source, TokenStream.JAVA_SYNTAX);
+	}
+
+	@Benchmark
+	public MessageTemplate parseTemplate() {
+		return MessageTemplate.parse(source, true);
+	}
+}
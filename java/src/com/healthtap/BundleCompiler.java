@@ -0,0 +1,251 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Compile an Android strings.xml file, such as the ones written by the
+ * loctool for each locale, into a binary bundle file that can be
+ * memory-mapped by the {@link MappedStringProvider}.<p>
+ *
+ * Only the &lt;string&gt; elements are compiled. The Android backslash
+ * escapes in the text of each string are resolved the same way that the
+ * Android resource compiler resolves them, so that the strings come out
+ * of the MappedStringProvider the same way they would come out of the
+ * Android resources.<p>
+ *
+ * Usage: java com.healthtap.BundleCompiler strings.xml output.bin
+ *
+ * @author edwinhoogerbeets
+ */
+public class BundleCompiler {
+	private final Map<String, String> strings = new LinkedHashMap<String, String>();
+
+	public BundleCompiler() {}
+
+	/**
+	 * Add all of the strings in the given Android strings.xml file to this
+	 * compiler. If a key name was already added, the new string replaces
+	 * the old one.
+	 *
+	 * @param xml the contents of a strings.xml file
+	 * @throws IOException if the file cannot be read or parsed
+	 */
+	public void addStringsXml(InputStream xml) throws IOException {
+		Document doc;
+		try {
+			DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+			dbf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			dbf.setExpandEntityReferences(false);
+			DocumentBuilder db = dbf.newDocumentBuilder();
+			doc = db.parse(xml);
+		} catch (ParserConfigurationException e) {
+			throw new IOException("BundleCompiler: could not create XML parser", e);
+		} catch (SAXException e) {
+			throw new IOException("BundleCompiler: could not parse strings.xml", e);
+		}
+
+		NodeList nodes = doc.getDocumentElement().getElementsByTagName("string");
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Element element = (Element)nodes.item(i);
+			String name = element.getAttribute("name");
+			if (name.length() > 0) {
+				strings.put(name, unescape(element.getTextContent()));
+			}
+		}
+	}
+
+	/**
+	 * Add a single string to this compiler. The string is used as-is
+	 * without resolving any escapes.
+	 *
+	 * @param name the key name of the string
+	 * @param value the translation
+	 */
+	public void addString(String name, String value) {
+		strings.put(name, value);
+	}
+
+	/**
+	 * Return the number of strings added to this compiler so far.
+	 *
+	 * @return the number of strings
+	 */
+	public int size() {
+		return strings.size();
+	}
+
+	/**
+	 * Return the key names of the strings added to this compiler so far,
+	 * in the order they were first added.
+	 *
+	 * @return an unmodifiable list of key names
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(new ArrayList<String>(strings.keySet()));
+	}
+
+	/**
+	 * Resolve the Android backslash escapes in the given string. A
+	 * backslash followed by n, t or uXXXX becomes a newline, a tab or the
+	 * given Unicode character respectively. A backslash followed by any
+	 * other character becomes that character.
+	 *
+	 * @param str the string to unescape
+	 * @return the unescaped string
+	 */
+	public static String unescape(String str) {
+		if (str.indexOf('\\') == -1) {
+			return str;
+		}
+
+		StringBuilder sb = new StringBuilder(str.length());
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c != '\\' || i + 1 >= str.length()) {
+				sb.append(c);
+				continue;
+			}
+			c = str.charAt(++i);
+			switch (c) {
+				case 'n':
+					sb.append('\n');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					if (i + 4 < str.length()) {
+						try {
+							sb.append((char)Integer.parseInt(str.substring(i + 1, i + 5), 16));
+							i += 4;
+							break;
+						} catch (NumberFormatException e) {
+							// not a valid escape, so fall through and keep the u
+						}
+					}
+					sb.append(c);
+					break;
+				default:
+					sb.append(c);
+					break;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Write the strings added so far to the given stream as a binary bundle.
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		List<Map.Entry<String, String>> entries = new ArrayList<Map.Entry<String, String>>(strings.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, String>>() {
+			@Override
+			public int compare(Map.Entry<String, String> left, Map.Entry<String, String> right) {
+				int l = left.getKey().hashCode();
+				int r = right.getKey().hashCode();
+				return (l < r) ? -1 : ((l > r) ? 1 : left.getKey().compareTo(right.getKey()));
+			}
+		});
+
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		int[] table = new int[entries.size() * 5];
+
+		for (int i = 0; i < entries.size(); i++) {
+			Map.Entry<String, String> entry = entries.get(i);
+			byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+
+			table[i*5] = entry.getKey().hashCode();
+			table[i*5 + 1] = data.size();
+			table[i*5 + 2] = name.length;
+			data.write(name);
+			table[i*5 + 3] = data.size();
+			table[i*5 + 4] = value.length;
+			data.write(value);
+		}
+
+		DataOutputStream dos = new DataOutputStream(out);
+		dos.writeInt(MappedStringProvider.MAGIC);
+		dos.writeInt(MappedStringProvider.VERSION);
+		dos.writeInt(entries.size());
+		dos.writeInt(MappedStringProvider.HEADER_SIZE + entries.size() * MappedStringProvider.ENTRY_SIZE);
+		for (int i = 0; i < table.length; i++) {
+			dos.writeInt(table[i]);
+		}
+		data.writeTo(dos);
+		dos.flush();
+	}
+
+	public static void main(String[] argv) {
+		if (argv.length < 2) {
+			System.out.println("Usage: java com.healthtap.BundleCompiler strings.xml [strings.xml ...] output.bin");
+			return;
+		}
+
+		try {
+			BundleCompiler compiler = new BundleCompiler();
+			for (int i = 0; i < argv.length - 1; i++) {
+				InputStream in = new FileInputStream(new File(argv[i]));
+				try {
+					compiler.addStringsXml(in);
+				} finally {
+					in.close();
+				}
+			}
+
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(argv[argv.length - 1])));
+			try {
+				compiler.write(out);
+			} finally {
+				out.close();
+			}
+			System.out.println("Wrote " + compiler.size() + " strings to " + argv[argv.length - 1]);
+		} catch (IOException e) {
+			System.err.println("BundleCompiler: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
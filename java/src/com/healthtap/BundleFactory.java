@@ -0,0 +1,253 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A factory that hands out shared, immutable IResourceBundle instances
+ * instead of constructing a new bundle every time one is needed. Bundles
+ * are cached per R class, string provider, locale and output type. The
+ * bundles for the different types of the same R class, provider and
+ * locale are views of one base bundle, so they share its key index,
+ * pseudo-localization table and result cache.<p>
+ *
+ * The cache only holds weak references to the bundles, so the bundles
+ * for locales that nobody is using any more can be garbage collected.
+ * When many threads ask for the same bundle at the same time and it is
+ * not in the cache yet, it is only constructed once and all of the
+ * threads get the same instance.<p>
+ *
+ * All methods are thread-safe.
+ *
+ * @author edwinhoogerbeets
+ */
+public class BundleFactory {
+	/**
+	 * The key of a cached bundle. The R class and the provider are compared
+	 * by identity.
+	 */
+	private static final class Key {
+		private final Class<?> R;
+		private final IStringProvider provider;
+		private final Locale locale;
+		private final String type;
+		private final int hash;
+
+		Key(Class<?> R, IStringProvider provider, Locale locale, String type) {
+			this.R = R;
+			this.provider = provider;
+			this.locale = locale;
+			this.type = type;
+			int h = System.identityHashCode(R);
+			h = 31 * h + System.identityHashCode(provider);
+			h = 31 * h + locale.hashCode();
+			h = 31 * h + type.hashCode();
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+			Key other = (Key)obj;
+			return hash == other.hash && R == other.R && provider == other.provider &&
+				locale.equals(other.locale) && type.equals(other.type);
+		}
+	}
+
+	/**
+	 * A weak reference to a cached bundle that remembers its key, so that
+	 * its entry can be removed from the cache once the bundle is collected.
+	 */
+	private static final class BundleRef extends WeakReference<IResourceBundle> {
+		private final Key key;
+
+		BundleRef(Key key, IResourceBundle bundle, ReferenceQueue<IResourceBundle> queue) {
+			super(bundle, queue);
+			this.key = key;
+		}
+	}
+
+	private final ConcurrentHashMap<Key, BundleRef> bundles = new ConcurrentHashMap<Key, BundleRef>();
+	private final ReferenceQueue<IResourceBundle> queue = new ReferenceQueue<IResourceBundle>();
+	private final Consumer<IResourceBundle> initializer;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder creations = new LongAdder();
+	private final LongAdder creationNanos = new LongAdder();
+
+	/**
+	 * Construct a new factory that hands out bundles with the default
+	 * settings.
+	 */
+	public BundleFactory() {
+		this(null);
+	}
+
+	/**
+	 * Construct a new factory that passes each newly constructed base bundle
+	 * to the given initializer before making it immutable. The initializer
+	 * can use the setters of the bundle to give it a missing string
+	 * strategy, a result cache, a metrics listener and so on. It should not
+	 * call back into this factory.
+	 *
+	 * @param initializer the initializer for new bundles, or null for none
+	 */
+	public BundleFactory(Consumer<IResourceBundle> initializer) {
+		this.initializer = initializer;
+	}
+
+	/**
+	 * Return the shared bundle for the given R class, provider and locale
+	 * with the raw output type.
+	 *
+	 * @param R class containing the unique string id to id number mapping
+	 * @param provider a string provider that is a source of strings
+	 * @param locale the locale of the bundle, or null for the default locale
+	 * @return an immutable bundle
+	 */
+	public IResourceBundle getBundle(Class<?> R, IStringProvider provider, Locale locale) {
+		return getBundle(R, provider, locale, IResourceBundle.RAW_TYPE);
+	}
+
+	/**
+	 * Return the shared bundle for the given R class, provider, locale and
+	 * output type. If the bundle is not in the cache, it is constructed.
+	 *
+	 * @param R class containing the unique string id to id number mapping
+	 * @param provider a string provider that is a source of strings
+	 * @param locale the locale of the bundle, or null for the default locale
+	 * @param type the output type of the bundle: html, xml, java or raw
+	 * @return an immutable bundle
+	 * @throws IllegalArgumentException if R or type is null
+	 */
+	public IResourceBundle getBundle(Class<?> R, IStringProvider provider, Locale locale, String type) {
+		if (R == null || type == null) {
+			throw new IllegalArgumentException("BundleFactory: R and type must not be null");
+		}
+		purge();
+
+		final Key key = new Key(R, provider, locale != null ? locale : Locale.getDefault(), type.toLowerCase());
+		BundleRef ref = bundles.get(key);
+		IResourceBundle bundle = (ref != null) ? ref.get() : null;
+		if (bundle != null) {
+			hits.increment();
+			return bundle;
+		}
+
+		// the types other than raw are views of the raw bundle, so get that
+		// first rather than while holding the lock on this key
+		final IResourceBundle base = key.type.equals(IResourceBundle.RAW_TYPE) ?
+			null : getBundle(R, provider, key.locale, IResourceBundle.RAW_TYPE);
+
+		// compute holds a lock on the key while the bundle is constructed, so
+		// that other threads asking for the same key wait for it instead of
+		// constructing another one
+		final IResourceBundle[] result = new IResourceBundle[1];
+		bundles.compute(key, (k, old) -> {
+			IResourceBundle existing = (old != null) ? old.get() : null;
+			if (existing != null) {
+				result[0] = existing;
+				return old;
+			}
+			result[0] = (base != null) ? base.withType(k.type) : create(k);
+			return new BundleRef(k, result[0], queue);
+		});
+		return result[0];
+	}
+
+	private IResourceBundle create(Key key) {
+		long start = System.nanoTime();
+		IResourceBundle bundle = new IResourceBundle(key.R, key.provider, key.locale);
+		if (initializer != null) {
+			initializer.accept(bundle);
+		}
+		bundle = bundle.freeze();
+		creationNanos.add(System.nanoTime() - start);
+		creations.increment();
+		return bundle;
+	}
+
+	/**
+	 * Remove the entries of the bundles that were garbage collected.
+	 */
+	private void purge() {
+		BundleRef ref;
+		while ((ref = (BundleRef)queue.poll()) != null) {
+			bundles.remove(ref.key, ref);
+		}
+	}
+
+	/**
+	 * Return the number of bundles in the cache that have not been garbage
+	 * collected yet.
+	 *
+	 * @return the number of cached bundles
+	 */
+	public int size() {
+		purge();
+		return bundles.size();
+	}
+
+	/**
+	 * Remove all of the bundles from the cache. Bundles that were already
+	 * handed out keep working.
+	 */
+	public void clear() {
+		bundles.clear();
+	}
+
+	/**
+	 * Return the number of times a bundle was found in the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Return the number of base bundles that were constructed. The views
+	 * for the other output types are not counted, as they cost almost
+	 * nothing to make.
+	 *
+	 * @return the number of bundles constructed
+	 */
+	public long getCreationCount() {
+		return creations.sum();
+	}
+
+	/**
+	 * Return the total time spent constructing and initializing bundles.
+	 *
+	 * @return the total creation time in nanoseconds
+	 */
+	public long getCreationTimeNanos() {
+		return creationNanos.sum();
+	}
+}
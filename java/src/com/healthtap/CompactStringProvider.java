@@ -0,0 +1,190 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * A memory-efficient string provider for a dense range of numeric ids,
+ * such as the ids in an Android R.string class. All of the strings are
+ * packed end to end into a single array, and the id of a string is used
+ * directly as an index into an array of offsets, so looking up a string
+ * does not box the id or probe a hash table.<p>
+ *
+ * If every character of every string is in the Latin-1 range, the text
+ * is stored as one byte per character. Otherwise it is stored as one
+ * char per character. Either way, the memory used per string is the
+ * length of its text plus one int.
+ *
+ * @author edwinhoogerbeets
+ */
+public class CompactStringProvider implements IStringProvider {
+	private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+	// the high bit of an offset marks an id that has no string
+	private static final int MISSING = 0x80000000;
+	private static final int OFFSET_MASK = 0x7FFFFFFF;
+
+	private final int baseId;
+	private final int[] offsets;
+	private final byte[] bytes;
+	private final char[] chars;
+	private final int count;
+
+	/**
+	 * Construct a new provider for the given strings. The string with
+	 * index i in the array has the id baseId + i. Null entries in the
+	 * array are ids that have no string.
+	 *
+	 * @param baseId the id of the first string in the array
+	 * @param strings the strings for each of the ids
+	 * @throws IllegalArgumentException if the strings array is null or the
+	 * range of ids would overflow an int
+	 */
+	public CompactStringProvider(int baseId, String[] strings) {
+		if (strings == null) {
+			throw new IllegalArgumentException("CompactStringProvider: strings must not be null");
+		}
+		if ((long)baseId + strings.length - 1 > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("CompactStringProvider: id range overflows an int");
+		}
+
+		this.baseId = baseId;
+
+		long total = 0;
+		boolean latin1 = true;
+		int n = 0;
+		for (int i = 0; i < strings.length; i++) {
+			String str = strings[i];
+			if (str == null) continue;
+			n++;
+			total += str.length();
+			for (int j = 0; latin1 && j < str.length(); j++) {
+				if (str.charAt(j) > 0xFF) latin1 = false;
+			}
+		}
+		if (total > OFFSET_MASK) {
+			throw new IllegalArgumentException("CompactStringProvider: too much text to pack into one array");
+		}
+		this.count = n;
+
+		offsets = new int[strings.length + 1];
+		bytes = latin1 ? new byte[(int)total] : null;
+		chars = latin1 ? null : new char[(int)total];
+
+		int pos = 0;
+		for (int i = 0; i < strings.length; i++) {
+			String str = strings[i];
+			if (str == null) {
+				offsets[i] = pos | MISSING;
+				continue;
+			}
+			offsets[i] = pos;
+			if (latin1) {
+				for (int j = 0; j < str.length(); j++) {
+					bytes[pos + j] = (byte)str.charAt(j);
+				}
+			} else {
+				str.getChars(0, str.length(), chars, pos);
+			}
+			pos += str.length();
+		}
+		offsets[strings.length] = pos;
+	}
+
+	/**
+	 * Construct a new provider that contains the same strings as the
+	 * given map. The ids in the map should be reasonably dense, as the
+	 * provider uses one int for every id between the smallest and the
+	 * largest id in the map.
+	 *
+	 * @param strings a map from ids to strings
+	 * @return a new provider containing the given strings
+	 * @throws IllegalArgumentException if the ids in the map are spread
+	 * over more than four times as many ids as there are strings
+	 */
+	public static CompactStringProvider fromMap(Map<Integer, String> strings) {
+		if (strings.isEmpty()) {
+			return new CompactStringProvider(0, new String[0]);
+		}
+
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (Integer id : strings.keySet()) {
+			if (id < min) min = id;
+			if (id > max) max = id;
+		}
+
+		long range = (long)max - min + 1;
+		if (range > 4L * strings.size() + 1024) {
+			throw new IllegalArgumentException("CompactStringProvider: ids are too sparse. " +
+				strings.size() + " strings span " + range + " ids.");
+		}
+
+		String[] array = new String[(int)range];
+		for (Map.Entry<Integer, String> entry : strings.entrySet()) {
+			array[entry.getKey() - min] = entry.getValue();
+		}
+		return new CompactStringProvider(min, array);
+	}
+
+	@Override
+	public String getString(int id) {
+		int index = id - baseId;
+		if (index < 0 || index >= offsets.length - 1) {
+			return null;
+		}
+		int start = offsets[index];
+		if ((start & MISSING) != 0) {
+			return null;
+		}
+		int end = offsets[index + 1] & OFFSET_MASK;
+		return (bytes != null) ? new String(bytes, start, end - start, LATIN1) : new String(chars, start, end - start);
+	}
+
+	/**
+	 * Return true if this provider has a string with the given id.
+	 *
+	 * @param id the numeric id to look up
+	 * @return true if there is a string for the id, false otherwise
+	 */
+	public boolean containsId(int id) {
+		int index = id - baseId;
+		return index >= 0 && index < offsets.length - 1 && (offsets[index] & MISSING) == 0;
+	}
+
+	/**
+	 * Return the number of strings in this provider.
+	 *
+	 * @return the number of strings
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Return the approximate number of bytes of heap used by the arrays
+	 * that hold the strings of this provider.
+	 *
+	 * @return the approximate memory size in bytes
+	 */
+	public long getMemorySize() {
+		long text = (bytes != null) ? bytes.length : 2L * chars.length;
+		return text + 4L * offsets.length;
+	}
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds source strings that are different but have the same hash key.<p>
+ *
+ * The hash keys only have 30 bits, so once a project has tens of thousands
+ * of strings it becomes likely that two of them have the same key. When
+ * that happens, both strings are given the same translation and one of
+ * them is wrong. This class collects all of the source strings of a
+ * project along with where they came from, hashes them in parallel, and
+ * reports each pair of strings that collide along with all of the
+ * locations of each string.<p>
+ *
+ * Strings that only differ in the ways that the hashing ignores, such as
+ * extra whitespace, are the same string and are not reported.<p>
+ *
+ * This class is not thread-safe.
+ *
+ * @author edwinhoogerbeets
+ */
+public class HashCollisionAudit {
+	/**
+	 * Two different source strings that have the same hash key.
+	 */
+	public static final class Collision {
+		private final String key;
+		private final String first;
+		private final List<String> firstLocations;
+		private final String second;
+		private final List<String> secondLocations;
+
+		Collision(String key, String first, List<String> firstLocations, String second, List<String> secondLocations) {
+			this.key = key;
+			this.first = first;
+			this.firstLocations = Collections.unmodifiableList(firstLocations);
+			this.second = second;
+			this.secondLocations = Collections.unmodifiableList(secondLocations);
+		}
+
+		/**
+		 * @return the hash key that both strings have
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * @return the string that was added first
+		 */
+		public String getFirst() {
+			return first;
+		}
+
+		/**
+		 * @return the locations of the first string in the form file:line
+		 */
+		public List<String> getFirstLocations() {
+			return firstLocations;
+		}
+
+		/**
+		 * @return the string that was added second
+		 */
+		public String getSecond() {
+			return second;
+		}
+
+		/**
+		 * @return the locations of the second string in the form file:line
+		 */
+		public List<String> getSecondLocations() {
+			return secondLocations;
+		}
+
+		@Override
+		public String toString() {
+			return key + ": \"" + first + "\" " + firstLocations + " collides with \"" +
+				second + "\" " + secondLocations;
+		}
+	}
+
+	/**
+	 * A distinct source string within a run of strings that have the same
+	 * hash key, with the indexes of all of the places it was added.
+	 */
+	private static final class Group {
+		final String source;
+		final List<Integer> indexes = new ArrayList<Integer>(2);
+
+		Group(String source) {
+			this.source = source;
+		}
+	}
+
+	private final ArrayList<String> sources = new ArrayList<String>();
+	private final ArrayList<String> files = new ArrayList<String>();
+	private final HashMap<String, Integer> fileIndexes = new HashMap<String, Integer>();
+	private int[] fileOf = new int[1024];
+	private int[] lineOf = new int[1024];
+	private int distinct = 0;
+
+	/**
+	 * Construct a new empty audit.
+	 */
+	public HashCollisionAudit() {}
+
+	/**
+	 * Add a source string to the audit.
+	 *
+	 * @param source the source string
+	 * @param file the name of the file the string came from, or null if
+	 * it is not known
+	 * @param line the line number of the string in the file
+	 * @throws IllegalArgumentException if the source string is null
+	 */
+	public void add(String source, String file, int line) {
+		if (source == null) {
+			throw new IllegalArgumentException("HashCollisionAudit: source must not be null");
+		}
+		int n = sources.size();
+		if (n == fileOf.length) {
+			fileOf = Arrays.copyOf(fileOf, n * 2);
+			lineOf = Arrays.copyOf(lineOf, n * 2);
+		}
+		Integer index = fileIndexes.get(file);
+		if (index == null) {
+			index = files.size();
+			files.add(file);
+			fileIndexes.put(file, index);
+		}
+		fileOf[n] = index;
+		lineOf[n] = line;
+		sources.add(source);
+	}
+
+	/**
+	 * Add each line read from the given reader to the audit as a source
+	 * string.
+	 *
+	 * @param in the reader to read the lines from
+	 * @param file the name of the file the lines came from
+	 * @throws IOException if the lines cannot be read
+	 */
+	public void add(BufferedReader in, String file) throws IOException {
+		String line;
+		int number = 1;
+		while ((line = in.readLine()) != null) {
+			add(line, file, number++);
+		}
+	}
+
+	/**
+	 * @return the number of source strings that were added
+	 */
+	public int size() {
+		return sources.size();
+	}
+
+	/**
+	 * Return the number of distinct source strings found by the last call
+	 * to {@link #audit()}, counting the strings that only differ in the
+	 * ways that the hashing ignores as the same string.
+	 *
+	 * @return the number of distinct source strings
+	 */
+	public int getDistinctCount() {
+		return distinct;
+	}
+
+	private String getLocation(int index) {
+		String file = files.get(fileOf[index]);
+		return (file != null ? file : "") + ":" + lineOf[index];
+	}
+
+	/**
+	 * Hash all of the source strings that were added and return every pair
+	 * of different strings that have the same hash key, ordered by key.
+	 *
+	 * @return the colliding pairs, or an empty list if there are none
+	 */
+	public List<Collision> audit() {
+		int n = sources.size();
+		int[] hashes = HashKey.hashValues(sources);
+
+		// sort by hash and then by the order the strings were added. The
+		// hash values are never negative, so they can go in the top half.
+		long[] order = new long[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = ((long)hashes[i] << 32) | i;
+		}
+		Arrays.parallelSort(order);
+
+		List<Collision> collisions = new ArrayList<Collision>();
+		distinct = 0;
+		int start = 0;
+		while (start < n) {
+			int hash = (int)(order[start] >>> 32);
+			int end = start + 1;
+			while (end < n && (int)(order[end] >>> 32) == hash) {
+				end++;
+			}
+			if (end - start == 1) {
+				distinct++;
+			} else {
+				findCollisions(hash, order, start, end, collisions);
+			}
+			start = end;
+		}
+		return collisions;
+	}
+
+	/**
+	 * Group a run of strings with the same hash by their normalized form,
+	 * and report each pair of groups as a collision.
+	 */
+	private void findCollisions(int hash, long[] order, int start, int end, List<Collision> collisions) {
+		// the same string added many times is the common case, so only
+		// normalize each distinct string once
+		Map<String, Group> byNormalized = new LinkedHashMap<String, Group>();
+		Map<String, Group> bySource = new HashMap<String, Group>();
+		for (int i = start; i < end; i++) {
+			int index = (int)order[i];
+			String source = sources.get(index);
+			Group group = bySource.get(source);
+			if (group == null) {
+				String normalized = HashKey.normalize(source);
+				group = byNormalized.get(normalized);
+				if (group == null) {
+					group = new Group(source);
+					byNormalized.put(normalized, group);
+				}
+				bySource.put(source, group);
+			}
+			group.indexes.add(index);
+		}
+
+		distinct += byNormalized.size();
+		if (byNormalized.size() < 2) {
+			return;
+		}
+
+		List<Group> groups = new ArrayList<Group>(byNormalized.values());
+		List<List<String>> locations = new ArrayList<List<String>>(groups.size());
+		for (Group group : groups) {
+			List<String> list = new ArrayList<String>(group.indexes.size());
+			for (int index : group.indexes) {
+				list.add(getLocation(index));
+			}
+			locations.add(list);
+		}
+
+		String key = "r" + hash;
+		for (int i = 0; i < groups.size(); i++) {
+			for (int j = i + 1; j < groups.size(); j++) {
+				collisions.add(new Collision(key, groups.get(i).source, locations.get(i),
+					groups.get(j).source, locations.get(j)));
+			}
+		}
+	}
+}
@@ -16,6 +16,19 @@
  */
 package com.healthtap;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * A class that represents a hash key.<p>
@@ -24,51 +37,392 @@ package com.healthtap;
  *
  */
 public class HashKey {
+	// these two numbers together = 46 bits so it won't blow out the precision of an integer in javascript
+	private static final long MODULUS = 1073741789L;  // largest prime number that fits in 30 bits
+	private static final long MULTIPLE = 65521;       // largest prime that fits in 16 bits, co-prime with the modulus
+
+	// the number of strings below which a batch is hashed on the current thread
+	private static final int BATCH_THRESHOLD = 2048;
+
 	public HashKey() {}
-	
+
 	/**
 	 * Hash the string and return the hash key
-	 * 
+	 *
 	 * @param source the string to hash
 	 * @return the hash key
 	 */
 	public static String hash(String source) {
-		// multiple whitespace chars are compressed into one, and leading and trailing 
-		// whitespace do not matter
-		String str = source.
-			replaceAll("^\\\\\\\\", " ").
-			replaceAll("([^\\\\])\\\\\\\\", "$1 ").
-			replaceAll("\\\\n", "\n").
-			replaceAll("\\\\t", "\t").
-			replaceAll("\\\\'", "'").
-			replaceAll("([^\\\\])\\\\'", "$1'").
-			replaceAll("\\\\\"", "\"").
-			replaceAll("([^\\\\])\\\\\"", "$1\"").
-			replaceAll("[ \n\t\r\f]+", " ").
-			trim();
-		
-		// System.out.println("After mucking: '" + str + "'");
+		return "r" + hashValue(null, source, 0, source.length(), null);
+	}
+
+	/**
+	 * Hash the given characters and return the hash key. This gives
+	 * the same result as hashing the equivalent String, but callers
+	 * that build up text in a StringBuilder or other buffer do not
+	 * have to create a String first.
+	 *
+	 * @param source the characters to hash
+	 * @return the hash key
+	 */
+	public static String hash(CharSequence source) {
+		return "r" + hashValue(source);
+	}
+
+	/**
+	 * Hash the given range of characters and return the hash key.
+	 *
+	 * @param source the array containing the characters to hash
+	 * @param offset the index of the first character to hash
+	 * @param length the number of characters to hash
+	 * @return the hash key
+	 */
+	public static String hash(char[] source, int offset, int length) {
+		return "r" + hashValue(source, offset, length);
+	}
+
+	/**
+	 * Return the numeric part of the hash key for the given characters.
+	 *
+	 * @param source the characters to hash
+	 * @return the number that follows the "r" in the hash key
+	 */
+	public static int hashValue(CharSequence source) {
+		return hashValue(null, source, 0, source.length(), null);
+	}
+
+	/**
+	 * Return the numeric part of the hash key for the given range of
+	 * characters.
+	 *
+	 * @param source the array containing the characters to hash
+	 * @param offset the index of the first character to hash
+	 * @param length the number of characters to hash
+	 * @return the number that follows the "r" in the hash key
+	 */
+	public static int hashValue(char[] source, int offset, int length) {
+		if (offset < 0 || length < 0 || offset > source.length - length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + source.length);
+		}
+		return hashValue(source, null, offset, length, null);
+	}
+
+	/**
+	 * Normalize and hash the characters in a single pass. Exactly one of
+	 * arr or seq is not null. If normalized is not null, the normalized
+	 * characters are appended to it as well.<p>
+	 *
+	 * The normalization gives the same result as the original chain of
+	 * regular expressions:
+	 *
+	 * <pre>
+	 * replaceAll("^\\\\\\\\", " ")
+	 * replaceAll("([^\\\\])\\\\\\\\", "$1 ")
+	 * replaceAll("\\\\n", "\n")
+	 * replaceAll("\\\\t", "\t")
+	 * replaceAll("\\\\'", "'")
+	 * replaceAll("([^\\\\])\\\\'", "$1'")
+	 * replaceAll("\\\\\"", "\"")
+	 * replaceAll("([^\\\\])\\\\\"", "$1\"")
+	 * replaceAll("[ \n\t\r\f]+", " ")
+	 * trim()
+	 * </pre>
+	 *
+	 * Those expressions only ever rewrite runs of backslashes, so each run
+	 * is rewritten as a whole when it is found. The first two backslashes
+	 * of a run become a space. When the run starts the string, the next
+	 * two become a space as well. Then, if any backslashes remain and the
+	 * run is followed by n, t or a quote, the last backslash is dropped and
+	 * n and t become a newline and a tab. If exactly one backslash is
+	 * still left before a quote, it is dropped too.
+	 */
+	private static int hashValue(char[] arr, CharSequence seq, int offset, int length, StringBuilder normalized) {
+		// hash up to and including the last character that is not trimmed
 		long hash = 0;
-		// these two numbers together = 46 bits so it won't blow out the precision of an integer in javascript
-		long modulus = 1073741789L;  // largest prime number that fits in 30 bits
-		long multiple = 65521;       // largest prime that fits in 16 bits, co-prime with the modulus
-		
-		for (int i = 0; i < str.length(); i++) {
-			// System.out.println("hash " + hash + " char " + str.codePointAt(i) + "=" + str.charAt(i));
-			hash += str.charAt(i);
-			hash *= multiple;
-			hash %= modulus;
+		// hash including any trailing characters that trim() may remove
+		long pending = 0;
+		boolean started = false;
+		boolean inSpace = false;
+		// length of the normalized text up to the last character that is not trimmed
+		int end = normalized != null ? normalized.length() : 0;
+
+		// the rest of the rewritten backslash run that is being emitted
+		int spaces = 0;
+		int slashes = 0;
+		char after = 0;
+
+		int i = 0;
+		while (i < length || spaces > 0 || slashes > 0 || after != 0) {
+			char c;
+			if (spaces > 0) {
+				spaces--;
+				c = ' ';
+			} else if (slashes > 0) {
+				slashes--;
+				c = '\\';
+			} else if (after != 0) {
+				c = after;
+				after = 0;
+			} else {
+				c = arr != null ? arr[offset + i] : seq.charAt(i);
+				if (c == '\\') {
+					int k = 1;
+					while (i + k < length && (arr != null ? arr[offset + i + k] : seq.charAt(i + k)) == '\\') {
+						k++;
+					}
+					if (i == 0 && k >= 4) {
+						spaces = 2;
+						slashes = k - 4;
+					} else if (k >= 2) {
+						spaces = 1;
+						slashes = k - 2;
+					} else {
+						slashes = k;
+					}
+					i += k;
+					if (slashes > 0 && i < length) {
+						switch (arr != null ? arr[offset + i] : seq.charAt(i)) {
+							case 'n':
+								slashes--;
+								after = '\n';
+								i++;
+								break;
+							case 't':
+								slashes--;
+								after = '\t';
+								i++;
+								break;
+							case '\'':
+							case '"':
+								after = arr != null ? arr[offset + i] : seq.charAt(i);
+								slashes = (slashes == 2) ? 0 : slashes - 1;
+								i++;
+								break;
+							default:
+								break;
+						}
+					}
+					continue;
+				}
+				i++;
+			}
+
+			if (c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f') {
+				if (inSpace) continue;
+				inSpace = true;
+				c = ' ';
+			} else {
+				inSpace = false;
+			}
+
+			if (c > ' ') {
+				pending = ((pending + c) * MULTIPLE) % MODULUS;
+				hash = pending;
+				started = true;
+				if (normalized != null) {
+					normalized.append(c);
+					end = normalized.length();
+				}
+			} else if (started) {
+				pending = ((pending + c) * MULTIPLE) % MODULUS;
+				if (normalized != null) normalized.append(c);
+			}
+		}
+
+		if (normalized != null) normalized.setLength(end);
+		return (int)hash;
+	}
+
+	/**
+	 * Hash all of the given strings and return the numeric parts of their
+	 * hash keys. Large batches are split up and hashed in parallel in the
+	 * common fork/join pool.
+	 *
+	 * @param sources the strings to hash
+	 * @return an array containing the number that follows the "r" in the
+	 * hash key of each string, in the same order as the strings
+	 */
+	public static int[] hashValues(List<? extends CharSequence> sources) {
+		int[] values = new int[sources.size()];
+		if (values.length <= BATCH_THRESHOLD) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = hashValue(sources.get(i));
+			}
+		} else {
+			ForkJoinPool.commonPool().invoke(new HashTask(sources, values, 0, values.length));
 		}
-		String value = "r" + hash;
-		return value;
+		return values;
 	}
-	
+
+	/**
+	 * Hash all of the given strings and return the numeric parts of their
+	 * hash keys.
+	 *
+	 * @param sources the strings to hash
+	 * @return an array containing the number that follows the "r" in the
+	 * hash key of each string, in the same order as the strings
+	 * @see #hashValues(List)
+	 */
+	public static int[] hashValues(CharSequence[] sources) {
+		return hashValues(Arrays.asList(sources));
+	}
+
+	/**
+	 * Hashes a range of a batch of strings, splitting it in two until the
+	 * pieces are small enough to hash on one thread.
+	 */
+	private static final class HashTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<? extends CharSequence> sources;
+		private final int[] values;
+		private final int start;
+		private final int end;
+
+		HashTask(List<? extends CharSequence> sources, int[] values, int start, int end) {
+			this.sources = sources;
+			this.values = values;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= BATCH_THRESHOLD) {
+				for (int i = start; i < end; i++) {
+					values[i] = hashValue(sources.get(i));
+				}
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new HashTask(sources, values, start, middle), new HashTask(sources, values, middle, end));
+			}
+		}
+	}
+
+	/**
+	 * Return the string that is actually hashed for the given source string,
+	 * after the escapes are rewritten and the whitespace is compressed. Two
+	 * strings with the same normalized form are the same string as far as
+	 * the translations are concerned.
+	 *
+	 * @param source the string to normalize
+	 * @return the normalized string
+	 */
+	static String normalize(CharSequence source) {
+		StringBuilder normalized = new StringBuilder(source.length());
+		hashValue(null, source, 0, source.length(), normalized);
+		return normalized.toString();
+	}
+
+	private static BufferedReader open(String file) throws IOException {
+		return new BufferedReader(new InputStreamReader(
+			file.equals("-") ? System.in : new FileInputStream(file), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Print the hash key of each line of the given files, or of the standard
+	 * input if there are none. The lines are read and hashed in chunks, so
+	 * that the whole input does not have to fit in memory.
+	 */
+	private static void hashLines(List<String> files, Writer out) throws IOException {
+		List<String> chunk = new ArrayList<String>(65536);
+		for (String file : files) {
+			BufferedReader in = open(file);
+			try {
+				String line;
+				while ((line = in.readLine()) != null) {
+					chunk.add(line);
+					if (chunk.size() == 65536) {
+						writeHashes(chunk, out);
+					}
+				}
+			} finally {
+				if (!file.equals("-")) in.close();
+			}
+		}
+		writeHashes(chunk, out);
+	}
+
+	private static void writeHashes(List<String> chunk, Writer out) throws IOException {
+		int[] values = hashValues(chunk);
+		for (int i = 0; i < values.length; i++) {
+			out.write('r');
+			out.write(Integer.toString(values[i]));
+			out.write('\t');
+			out.write(chunk.get(i));
+			out.write('\n');
+		}
+		chunk.clear();
+	}
+
+	/**
+	 * Check all of the lines of the given files, or of the standard input
+	 * if there are none, for hash collisions and print each colliding pair.
+	 *
+	 * @return the number of collisions found
+	 */
+	private static int auditLines(List<String> files, Writer out) throws IOException {
+		long start = System.nanoTime();
+		HashCollisionAudit audit = new HashCollisionAudit();
+		for (String file : files) {
+			BufferedReader in = open(file);
+			try {
+				audit.add(in, file.equals("-") ? "<stdin>" : file);
+			} finally {
+				if (!file.equals("-")) in.close();
+			}
+		}
+
+		List<HashCollisionAudit.Collision> collisions = audit.audit();
+		for (HashCollisionAudit.Collision collision : collisions) {
+			out.write(collision.toString());
+			out.write('\n');
+		}
+		out.write(audit.size() + " strings, " + audit.getDistinctCount() + " distinct, " +
+			collisions.size() + " collisions in " + (System.nanoTime() - start) / 1000000 + "ms\n");
+		return collisions.size();
+	}
+
+	private static void usage() {
+		System.out.println("Usage: HashKey string");
+		System.out.println("       HashKey -hash [file ...]");
+		System.out.println("       HashKey -audit [file ...]");
+		System.out.println();
+		System.out.println("With a string, print the hash key of that string.");
+		System.out.println("With -hash, print the hash key of each line of the files, or of the standard input.");
+		System.out.println("With -audit, print every pair of different lines with the same hash key, along with");
+		System.out.println("the file names and line numbers where they appear. Exits with status 1 if any are found.");
+	}
+
 	public static void main(String[] argv) {
-		if (argv.length > 0) {
+		if (argv.length > 0 && (argv[0].equals("-hash") || argv[0].equals("-audit"))) {
+			List<String> files = new ArrayList<String>(Arrays.asList(argv).subList(1, argv.length));
+			if (files.isEmpty()) {
+				files.add("-");
+			}
+			Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 65536);
+			int collisions = 0;
+			try {
+				if (argv[0].equals("-hash")) {
+					hashLines(files, out);
+				} else {
+					collisions = auditLines(files, out);
+				}
+				out.flush();
+			} catch (IOException e) {
+				System.err.println("HashKey: " + e.getMessage());
+				System.exit(2);
+			}
+			if (collisions > 0) {
+				System.exit(1);
+			}
+		} else if (argv.length > 0 && (argv[0].equals("-help") || argv[0].equals("-h"))) {
+			usage();
+		} else if (argv.length > 0) {
 			String str = argv[0].replaceAll("\\\\n", "\n").replaceAll("\\\\t", "\t");
 			System.out.println("Java: " + hash(str) + " - '" + argv[0] + "'");
 		} else {
 			System.out.println("no params");
 		}
 	}
-}
\ No newline at end of file
+}
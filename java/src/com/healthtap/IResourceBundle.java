@@ -16,13 +16,19 @@
  */
 package com.healthtap;
 
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.regex.*;
 
 /**
@@ -35,7 +41,26 @@ import java.util.regex.*;
  * ResourceBundle and adds the look-up by source string functionality.<p>
  * 
  * This class uses the built-in Android resources to get its strings
- * and as such, it is simply a wrapper around the regular resources.
+ * and as such, it is simply a wrapper around the regular resources.<p>
+ * 
+ * A bundle created with one of the constructors can be reconfigured with
+ * its setters, so it should only be used by one thread at a time. To share
+ * a bundle between threads, call {@link #freeze()} or one of the
+ * {@link #withType(String)}, {@link #withMissing(MissingType)} or
+ * {@link #withLengthen(boolean)} methods to get an immutable view of it.
+ * Views share the key index, the string provider, the pseudo-localization
+ * table and the result cache of the bundle they were made from, so they are
+ * cheap to make, and once safely published, one view can serve any number
+ * of threads without locking. Note that a {@link ResultCache}, if one is
+ * set, locks one of its segments for each lookup.<p>
+ * 
+ * Views are made by {@link #newView(String, MissingType, boolean)}. A
+ * subclass that overrides any other method of this class must override it
+ * as well, so that its views are instances of the subclass and keep the
+ * overridden behavior. Otherwise making a view of it throws an
+ * UnsupportedOperationException rather than quietly dropping the
+ * overrides. Overriding only {@link #getPseudoCharacter(String)} is the
+ * exception, as views call it on the bundle they were made from.
  *
  * @author edwinhoogerbeets
  *
@@ -48,220 +73,90 @@ public class IResourceBundle {
 		
 	protected static volatile Locale sourceLocale		= new Locale("en-US");
 
-	protected Class R;
+	protected final Class R;
+	protected final KeyIndex keys;
+	private final boolean frozen;
 	private IStringProvider resources;
-    protected Locale targetLocale;
+	private ResultCache cache = null;
+	// identifies the results of this bundle and its string provider in a
+	// result cache that other bundles may share. Views keep it, as they
+	// get their strings from the same provider.
+	private Object cacheScope = new Object();
+	private MetricsListener listener = null;
+	private MissingStringRecorder recorder = null;
+	private final PluralRules pluralRules;
+	private final ConcurrentHashMap<String, String[]> plurals = new ConcurrentHashMap<String, String[]>();
+	// the bundle whose override of getPseudoCharacter to use, or null
+	private final IResourceBundle pseudoOverride;
+    protected final Locale targetLocale;
     protected String name;
     protected String type;
-    private Map<String, String> pseudoCharacters = null;
+    protected PseudoTable pseudoTable;
 	protected boolean lengthen = true;
 	protected MissingType missing = MissingType.SOURCE;
-	protected Pattern pStart = Pattern.compile("^\\s*");
-	protected Pattern pEnd = Pattern.compile("\\s*$");
-	
-	private String[][] pseudoCyrl = {
-		{"a", "а"},
-		{"b", "б"},
-		{"c", "ч"},
-		{"d", "д"},
-		{"e", "э"},
-		{"f", "ф"},
-		{"g", "г"},
-		{"h", "х"},
-		{"i", "и"},
-		{"j", "ж"},
-		{"k", "к"},
-		{"l", "л"},
-		{"m", "м"},
-		{"n", "н"},
-		{"o", "о"},
-		{"p", "п"},
-		{"q", "ку"},
-		{"r", "р"},
-		{"s", "с"},
-		{"t", "т"},
-		{"u", "у"},
-		{"v", "в"},
-		{"x", "кс"},
-		{"y", "я"},
-		{"z", "з"},
-		{"A", "А"},
-		{"B", "Б"},
-		{"C", "Ч"},
-		{"D", "Д"},
-		{"E", "Э"},
-		{"F", "Ф"},
-		{"G", "Г"},
-		{"H", "Х"},
-		{"I", "И"},
-		{"J", "Ж"},
-		{"K", "К"},
-		{"L", "Л"},
-		{"M", "М"},
-		{"N", "Н"},
-		{"O", "О"},
-		{"P", "П"},
-		{"Q", "КУ"},
-		{"R", "Р"},
-		{"S", "С"},
-		{"T", "Т"},
-		{"U", "У"},
-		{"V", "В"},
-		{"X", "КС"},
-		{"Y", "Я"},
-		{"Z", "З"}
-	};
-	private String[][] pseudoHans = {
-		{"a", "阿"},
-		{"b", "不"},
-		{"c", "可"},
-		{"d", "的"},
-		{"e", "俄"},
-		{"f", "凡"},
-		{"g", "个"},
-		{"h", "和"},
-		{"i", "意"},
-		{"j", "中"},
-		{"k", "可"},
-		{"l", "了"},
-		{"m", "们"},
-		{"n", "尼"},
-		{"o", "夥"},
-		{"p", "琶"},
-		{"q", "氣"},
-		{"r", "熱"},
-		{"s", "思"},
-		{"t", "推"},
-		{"u", "思"},
-		{"v", "於"},
-		{"x", "相"},
-		{"y", "謝"},
-		{"z", "子"},
-		{"A", "阿"},
-		{"B", "不"},
-		{"C", "可"},
-		{"D", "的"},
-		{"E", "俄"},
-		{"F", "凡"},
-		{"G", "个"},
-		{"H", "和"},
-		{"I", "意"},
-		{"J", "中"},
-		{"K", "可"},
-		{"L", "了"},
-		{"M", "们"},
-		{"N", "尼"},
-		{"O", "夥"},
-		{"P", "琶"},
-		{"Q", "氣"},
-		{"R", "熱"},
-		{"S", "思"},
-		{"T", "推"},
-		{"U", "思"},
-		{"V", "於"},
-		{"X", "相"},
-		{"Y", "謝"},
-		{"Z", "子"}	
-	};
-	
-	private String[][] pseudoHebr = {
-		{"a", "ַ"},
-		{"b", "בּ"},
-		{"c", "ק"},
-		{"d", "ד"},
-		{"e", "ֶ"},
-		{"f", "פ"},
-		{"g", "ג"},
-		{"h", "ה"},
-		{"i", "ִ"},
-		{"j", "ג׳"},
-		{"k", "כ"},
-		{"l", "ל"},
-		{"m", "מ"},
-		{"n", "נ"},
-		{"o", "ֹ"},
-		{"p", "פ"},
-		{"q", "ק"},
-		{"r", "ר"},
-		{"s", "ס"},
-		{"t", "ט"},
-		{"u", "ֻ"},
-		{"v", "ב"},
-		{"w", "ו"},
-		{"x", "שׂק"},
-		{"y", "י"},
-		{"z", "ז"},
-		{"A", "ַ"},
-		{"B", "בּ"},
-		{"C", "ק"},
-		{"D", "דּ"},
-		{"E", "ֶ"},
-		{"F", "פ"},
-		{"G", "ג"},
-		{"H", "ה"},
-		{"I", "ִ"},
-		{"J", "ג׳"},
-		{"K", "כ"},
-		{"L", "ל"},
-		{"M", "מ"},
-		{"N", "נ"},
-		{"O", "ֹ"},
-		{"P", "פ"},
-		{"Q", "ק"},
-		{"R", "ר"},
-		{"S", "ס"},
-		{"T", "ט"},
-		{"U", "ֻ"},
-		{"V", "ב"},
-		{"W", "ו"},
-		{"X", "שׂק"},
-		{"Y", "י"},
-		{"Z", "ז"}
-	};
+	protected Pattern pStart = DEFAULT_START;
+	protected Pattern pEnd = DEFAULT_END;
+
+	private static final Pattern DEFAULT_START = Pattern.compile("^\\s*");
+	private static final Pattern DEFAULT_END = Pattern.compile("\\s*$");
 
-	private String[][] pseudoLatn = {
-		{"a", "à"},
-		{"c", "ç"},
-		{"d", "ð"},
-		{"e", "ë"},
-		{"g", "ğ"},
-		{"h", "ĥ"},
-		{"i", "í"},
-		{"j", "ĵ"},
-		{"k", "ķ"},
-		{"l", "ľ"},
-		{"n", "ñ"},
-		{"o", "õ"},
-		{"p", "þ"},
-		{"r", "ŕ"},
-		{"s", "š"},
-		{"t", "ţ"},
-		{"u", "ü"},
-		{"w", "ŵ"},
-		{"y", "ÿ"},
-		{"z", "ž"},
-		{"A", "Ã"},
-		{"B", "ß"},
-		{"C", "Ç"},
-		{"D", "Ð"},
-		{"E", "Ë"},
-		{"G", "Ĝ"},
-		{"H", "Ħ"},
-		{"I", "Ï"},
-		{"J", "Ĵ"},
-		{"K", "ĸ"},
-		{"L", "Ľ"},
-		{"N", "Ň"},
-		{"O", "Ø"},
-		{"R", "Ŗ"},
-		{"S", "Š"},
-		{"T", "Ť"},
-		{"U", "Ú"},
-		{"W", "Ŵ"},
-		{"Y", "Ŷ"},
-		{"Z", "Ż"}	
+	/**
+	 * The maximum number of source strings to keep the plural variants of.
+	 * When there are more, the variants are all resolved again.
+	 */
+	private static final int MAX_PLURALS = 4096;
+
+	/** The number of keys to fetch with each call to the string provider while preloading. */
+	private static final int PRELOAD_BATCH = 1024;
+
+	/**
+	 * Whether each subclass overrides {@link #getPseudoCharacter(String)},
+	 * worked out once per class.
+	 */
+	private static final ClassValue<Boolean> OVERRIDES_PSEUDO_CHARACTER = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> c) {
+			for (; c != IResourceBundle.class; c = c.getSuperclass()) {
+				try {
+					c.getDeclaredMethod("getPseudoCharacter", String.class);
+					return Boolean.TRUE;
+				} catch (NoSuchMethodException e) {
+					// keep looking in the superclass
+				}
+			}
+			return Boolean.FALSE;
+		}
 	};
 
+	/**
+	 * The name of a method of this class that each subclass overrides, other
+	 * than newView and getPseudoCharacter, or null if there is none. Worked
+	 * out once per class.
+	 */
+	private static final ClassValue<String> OVERRIDDEN_METHOD = new ClassValue<String>() {
+		@Override
+		protected String computeValue(Class<?> c) {
+			for (; c != IResourceBundle.class; c = c.getSuperclass()) {
+				for (Method m : c.getDeclaredMethods()) {
+					String name = m.getName();
+					if (Modifier.isStatic(m.getModifiers()) || Modifier.isPrivate(m.getModifiers()) ||
+							name.equals("newView") || name.equals("getPseudoCharacter")) {
+						continue;
+					}
+					try {
+						Method base = IResourceBundle.class.getDeclaredMethod(name, m.getParameterTypes());
+						if (!Modifier.isStatic(base.getModifiers()) && !Modifier.isPrivate(base.getModifiers())) {
+							return name;
+						}
+					} catch (NoSuchMethodException e) {
+						// a new method of the subclass, not an override
+					}
+				}
+			}
+			return null;
+		}
+	};
+	
 	/**
 	 * Specifies the type of strategy to use when the translation of a source string or key is not found.
 	 * 
@@ -289,7 +184,59 @@ public class IResourceBundle {
 		PLACEHOLDER
 	};
 
-	private Pattern percentPattern = Pattern.compile("%(\\d+\\$)?([\\-#\\+ 0,\\(])?(\\d+)?(\\.\\d+)?[bBhHsScCdoxXeEfgGaAtT%n]");
+	/**
+	 * What happened when a bundle was preloaded.
+	 * 
+	 * @see IResourceBundle#preload()
+	 */
+	public static final class PreloadResult {
+		private final int keyCount;
+		private final int foundCount;
+		private final long durationNanos;
+
+		PreloadResult(int keyCount, int foundCount, long durationNanos) {
+			this.keyCount = keyCount;
+			this.foundCount = foundCount;
+			this.durationNanos = durationNanos;
+		}
+
+		/**
+		 * @return the number of keys that were looked up
+		 */
+		public int getKeyCount() {
+			return keyCount;
+		}
+
+		/**
+		 * @return the number of keys that the string provider had a
+		 * translation for
+		 */
+		public int getFoundCount() {
+			return foundCount;
+		}
+
+		/**
+		 * @return how long the preload took, in nanoseconds
+		 */
+		public long getDurationNanos() {
+			return durationNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "PreloadResult[keys=" + keyCount + ", found=" + foundCount + ", ms=" + (durationNanos / 1000000L) + "]";
+		}
+	}
+
+	/** Digits for lengthening pseudo-localized strings, ten blocks of 9 down to 0. */
+	private static final String LENGTHENING;
+	static {
+		StringBuilder digits = new StringBuilder(100);
+		for (int i = 0; i < 10; i++) {
+			digits.append("9876543210");
+		}
+		LENGTHENING = digits.toString();
+	}
 	
 	/**
 	 * Construct a new IResourceBundle and load in the Java
@@ -300,14 +247,72 @@ public class IResourceBundle {
 	 * the current locale
 	 */
 	public IResourceBundle(Class R, IStringProvider resources, Locale locale) {
+		this(R, KeyIndex.forClass(R), resources, locale);
+	}
+
+	/**
+	 * Construct a new IResourceBundle that looks up its keys in the given
+	 * index instead of an R class, such as a {@link StringIndex} that was
+	 * generated at build time.
+	 * @param index the unique string id to id number mapping
+	 * @param resources a string provider that is a source of string
+	 * @param locale the ilib locale for this bundle, or null to use
+	 * the current locale
+	 * @throws IllegalArgumentException if the index is null
+	 */
+	public IResourceBundle(KeyIndex index, IStringProvider resources, Locale locale) {
+		this(null, index, resources, locale);
+	}
+
+	private IResourceBundle(Class R, KeyIndex index, IStringProvider resources, Locale locale) {
+		if (index == null) {
+			throw new IllegalArgumentException("IResourceBundle: the key index must not be null");
+		}
 		this.R = R;
+		this.keys = index;
 		this.resources = resources;
 		this.targetLocale = locale != null ? locale : Locale.getDefault();
+		this.pluralRules = PluralRules.forLocale(targetLocale);
+		this.frozen = false;
+		this.pseudoOverride = OVERRIDES_PSEUDO_CHARACTER.get(getClass()) ? this : null;
 		
 		this.type = RAW_TYPE;
 		initPseudoMap();
 	}
 
+	/**
+	 * Construct an immutable view of the given bundle with the given
+	 * settings. Everything else is shared with the other bundle. Subclasses
+	 * call this from their own view constructor when they override
+	 * {@link #newView(String, MissingType, boolean)}.
+	 * 
+	 * @param other the bundle to make a view of
+	 * @param type output text type: html, xml, java or raw, in lower case
+	 * @param missing the strategy to use for missing strings
+	 * @param lengthen whether pseudo-localized strings are lengthened
+	 */
+	protected IResourceBundle(IResourceBundle other, String type, MissingType missing, boolean lengthen) {
+		this.R = other.R;
+		this.keys = other.keys;
+		this.resources = other.resources;
+		this.cache = other.cache;
+		this.cacheScope = other.cacheScope;
+		this.listener = other.listener;
+		this.recorder = other.recorder;
+		this.targetLocale = other.targetLocale;
+		this.pluralRules = other.pluralRules;
+		this.name = other.name;
+		this.pseudoTable = other.pseudoTable;
+		this.pStart = other.pStart;
+		this.pEnd = other.pEnd;
+		this.frozen = true;
+		this.pseudoOverride = other.pseudoOverride;
+
+		this.type = type;
+		this.missing = missing;
+		this.lengthen = lengthen;
+	}
+
 	/**
 	 * Construct a new IResourceBundle and load in the Java
 	 * ResourceBundle for delegation. This uses the given base name
@@ -325,41 +330,12 @@ public class IResourceBundle {
 	 * @return an array of keys in this bundle
 	 */
 	public Enumeration<String> getKeys() {
-		Field[] fields = R.getFields();
-		HashSet<String> s = new HashSet<String>();
-		for (int i = 0; i < fields.length; i++) {
-			s.add(fields[i].getName());
-		}
-		return Collections.enumeration(s);
+		return Collections.enumeration(keys.keys());
 	}
 	
     protected void initPseudoMap()
     {
-    	pseudoCharacters = new LinkedHashMap<>();
-
-    	String[][] pseudo;
-    	
-    	switch( ScriptInfo.getScriptByLocale(targetLocale) ) {
-    		case "Cyrl":
-    			pseudo = pseudoCyrl;
-    			break;
-    		case "Hans":
-    			pseudo = pseudoHans;
-    			break;
-    		case "Hebr":
-    			pseudo = pseudoHebr;
-    			break;
-    		default:
-    			pseudo = pseudoLatn;
-    			break;
-    	}
-
-    	String[] entry;
-    	
-    	for (int i = 0; i < pseudo.length; i++) {
-    		entry = pseudo[i];
-    		pseudoCharacters.put(entry[0], entry[1]);
-    	}
+    	pseudoTable = PseudoTable.forScript(ScriptInfo.getScriptByLocale(targetLocale));
     }
 
     /**
@@ -379,13 +355,7 @@ public class IResourceBundle {
      */
     public boolean containsSource(String source)
     {
-    	try {
-    		Field f = R.getField(makeKey(source));
-    		return f != null;
-    	} catch (NoSuchFieldException e) {
-    	}
-    	
-    	return false;
+    	return keys.containsKey(makeKey(source));
     }
 
     /**
@@ -396,13 +366,7 @@ public class IResourceBundle {
      */
     public boolean containsKey(String key)
     {
-    	try {
-    		Field f = R.getField(key);
-    		return f != null;
-    	} catch (NoSuchFieldException e) {
-    	}
-    	
-    	return false;
+    	return keys.containsKey(key);
     }
 
 	/**
@@ -428,7 +392,9 @@ public class IResourceBundle {
 	 * @param type input text specified type (default type: raw).
 	 */
 	public void setType(String type) {
+		checkMutable();
 		this.type = type.toLowerCase();
+		plurals.clear();
 	}
 
 	/**
@@ -447,7 +413,9 @@ public class IResourceBundle {
 	 * as returned instead.
 	 */
 	public void setLengthen(boolean lengthen) {
+		checkMutable();
 		this.lengthen = lengthen;
+		plurals.clear();
 	}
 	
 	/**
@@ -484,7 +452,199 @@ public class IResourceBundle {
 	 * @param type The type of strategy to use for missing strings
 	 */
 	public void setMissingType(MissingType type) {
+		checkMutable();
 		this.missing = type;
+		plurals.clear();
+	}
+
+	/**
+	 * Returns the string provider that this bundle gets its translations from.
+	 * @return the string provider for this bundle
+	 */
+	public IStringProvider getStringProvider() {
+		return resources;
+	}
+
+	/**
+	 * Specifies the string provider that this bundle gets its translations
+	 * from. The results cached from the old provider are no longer used by
+	 * this bundle, but the views made from it before keep using them along
+	 * with the old provider.
+	 * @param resources the new string provider
+	 */
+	public void setStringProvider(IStringProvider resources) {
+		checkMutable();
+		this.resources = resources;
+		this.cacheScope = new Object();
+		plurals.clear();
+	}
+
+	/**
+	 * Returns the cache of results of getString, or null if results are not
+	 * being cached.
+	 * @return the result cache for this bundle, or null
+	 */
+	public ResultCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Specifies a cache to hold the results of getString so that repeated
+	 * lookups of the same string with the same settings do not have to
+	 * translate and escape the string again. Caching is off by default.
+	 * Pass null to turn caching off again.<p>
+	 * 
+	 * The results are cached along with the type, lengthen option and
+	 * missing string strategy they were made with and the string provider
+	 * they came from, so the cache can be shared with the views of this
+	 * bundle and with other bundles, and it does not need to be cleared
+	 * when the settings change. If the string provider can change the
+	 * translations it returns, the caller must call {@link #clearCache()}
+	 * when that happens.
+	 * 
+	 * @param cache the cache to use, or null to turn caching off
+	 */
+	public void setCache(ResultCache cache) {
+		checkMutable();
+		this.cache = cache;
+	}
+
+	/**
+	 * Returns the listener that is told about the lookups of this bundle,
+	 * or null if there is none.
+	 * @return the metrics listener for this bundle, or null
+	 */
+	public MetricsListener getMetricsListener() {
+		return listener;
+	}
+
+	/**
+	 * Specifies a listener to tell about each of the lookups of this bundle,
+	 * such as a {@link MetricsCollector}. Pass null to stop telling anyone.
+	 * Immutable views made from this bundle after this call share the
+	 * listener, but views made before it do not.
+	 * @param listener the listener to use, or null for none
+	 */
+	public void setMetricsListener(MetricsListener listener) {
+		checkMutable();
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns the recorder of missing strings for this bundle, or null if
+	 * missing strings are not being recorded.
+	 * @return the missing string recorder for this bundle, or null
+	 */
+	public MissingStringRecorder getMissingStringRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * Specifies a recorder to tell about every source string and key that
+	 * this bundle cannot find a translation for, and about lookups that had
+	 * neither a source string nor a key. Pass null to stop recording.
+	 * Immutable views made from this bundle after this call share the
+	 * recorder, but views made before it do not.
+	 * @param recorder the recorder to use, or null for none
+	 */
+	public void setMissingStringRecorder(MissingStringRecorder recorder) {
+		checkMutable();
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Returns true if this bundle is an immutable view that can be shared
+	 * between threads. The setters of an immutable view throw an
+	 * UnsupportedOperationException.
+	 * @return true if this bundle is immutable, false otherwise
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Returns an immutable view of this bundle with the same settings as it
+	 * has now. Changing the settings of this bundle afterwards does not
+	 * change the view. If this bundle is already immutable, it is returned
+	 * as-is.
+	 * @return an immutable view of this bundle
+	 */
+	public IResourceBundle freeze() {
+		return frozen ? this : newView(type, missing, lengthen);
+	}
+
+	/**
+	 * Returns an immutable view of this bundle that has the given type and
+	 * otherwise the same settings as this bundle.
+	 * @param type output text type: html, xml, java or raw
+	 * @return an immutable view of this bundle with the given type
+	 */
+	public IResourceBundle withType(String type) {
+		String t = type.toLowerCase();
+		return (frozen && t.equals(this.type)) ? this : newView(t, missing, lengthen);
+	}
+
+	/**
+	 * Returns an immutable view of this bundle that uses the given missing
+	 * string strategy and otherwise the same settings as this bundle.
+	 * @param missing the strategy to use for missing strings
+	 * @return an immutable view of this bundle with the given strategy
+	 */
+	public IResourceBundle withMissing(MissingType missing) {
+		return (frozen && missing == this.missing) ? this : newView(type, missing, lengthen);
+	}
+
+	/**
+	 * Returns an immutable view of this bundle with the given lengthen
+	 * option and otherwise the same settings as this bundle.
+	 * @param lengthen whether pseudo-localized strings are lengthened
+	 * @return an immutable view of this bundle with the given lengthen option
+	 */
+	public IResourceBundle withLengthen(boolean lengthen) {
+		return (frozen && lengthen == this.lengthen) ? this : newView(type, missing, lengthen);
+	}
+
+	/**
+	 * Make an immutable view of this bundle with the given settings. This
+	 * is what {@link #freeze()} and the with methods call. A subclass that
+	 * overrides other methods of this class must override this one to
+	 * return an instance of the subclass, usually made with the protected
+	 * view constructor {@link #IResourceBundle(IResourceBundle, String, MissingType, boolean)},
+	 * so that its views behave the same way it does.
+	 * 
+	 * @param type output text type: html, xml, java or raw, in lower case
+	 * @param missing the strategy to use for missing strings
+	 * @param lengthen whether pseudo-localized strings are lengthened
+	 * @return an immutable view of this bundle with the given settings
+	 * @throws UnsupportedOperationException if this bundle is a subclass
+	 * that overrides other methods of this class but calls this
+	 * implementation
+	 */
+	protected IResourceBundle newView(String type, MissingType missing, boolean lengthen) {
+		String overridden = OVERRIDDEN_METHOD.get(getClass());
+		if (overridden != null) {
+			throw new UnsupportedOperationException("IResourceBundle: " + getClass().getName() + " overrides " +
+				overridden + " but not newView, so its views would not behave like it");
+		}
+		return new IResourceBundle(this, type, missing, lengthen);
+	}
+
+	private void checkMutable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("IResourceBundle: cannot change the settings of an immutable bundle");
+		}
+	}
+
+	/**
+	 * Discards all results in the result cache, if there is one, and the
+	 * plural variants that were already resolved.
+	 */
+	public void clearCache() {
+		ResultCache c = cache;
+		if (c != null) {
+			c.clear();
+		}
+		plurals.clear();
 	}
 
 	/**
@@ -498,74 +658,86 @@ public class IResourceBundle {
 			return null;
 		}
 		
-		StringBuilder ret = new StringBuilder();
-		int i;
-		
-		for ( i = 0; i < source.length(); i++ ) {
-			if ( !type.equals(RAW_TYPE) ) {
-				if ( isHTML_XML_Type() ) {
-					if (source.charAt(i) == '<') {
-						ret.append(source.charAt(i++));
-						while (i < source.length() && source.charAt(i) != '>') {
-							ret.append(source.charAt(i++));
-						}
-						if (i < source.length()) {
-							ret.append(source.charAt(i++));
-						}
-					} else if (source.charAt(i) == '&') {
-						ret.append(source.charAt(i++));
-						while (i < source.length() && source.charAt(i) != ';' && source.charAt(i) != ' ') {
-							ret.append(source.charAt(i++));
-						}
-						if (i < source.length()) {
-							ret.append(source.charAt(i++));
-						}
-					}
-				}
-				if (type.equals(JAVA_TYPE)) {
-					if (i < source.length()) { 
-						if (source.charAt(i) == '\\') {
-							if (source.charAt(i+1) == 'u') {
-								// unicode character
-								if (i+5 < source.length()) {
-									ret.append(source.substring(i, i+6));
-									i += 6;
-								}
-							} else {
-								// non-unicode character, so just skip the next character instead of pseudo-localizing it
-								ret.append('\\');
-								ret.append(source.charAt(i+1));
-								i += 2;
-							}
-						} else if (source.charAt(i) == '%') {
-							Matcher m = percentPattern.matcher(source.substring(i));
-							if (m.find()) {
-								ret.append(m.group(0));
-								i += m.end() - m.start();
-							} else {
-								ret.append('%');
-								i++;
-							}
-						}
-					}
+		MetricsListener l = listener;
+		if (l != null) {
+			l.pseudoLocalized(this, source.length());
+		}
+
+		// the cached results are shared by every bundle that uses the same
+		// table, so they cannot hold the characters of an override
+		if (pseudoOverride != null) {
+			return transformPseudo(source);
+		}
+
+		int variant = getPseudoVariant();
+		String result = pseudoTable.getResult(variant, source);
+		if (result == null) {
+			result = transformPseudo(source);
+			pseudoTable.putResult(variant, source, result);
+		}
+		return result;
+    }
+
+    /**
+     * Return which of the variants of pseudo-localized output cached in the
+     * pseudo table this bundle produces. Html and xml are pseudo-localized
+     * the same way, and types that are not known are treated like any
+     * other type that is not raw.
+     */
+    private int getPseudoVariant()
+    {
+    	int kind;
+    	if (type.equals(RAW_TYPE)) {
+    		kind = 0;
+    	} else if (isHTML_XML_Type()) {
+    		kind = 1;
+    	} else if (type.equals(JAVA_TYPE)) {
+    		kind = 2;
+    	} else {
+    		kind = 3;
+    	}
+    	return kind * 2 + (lengthen ? 1 : 0);
+    }
+
+    /**
+     * Return the kinds of token that are not pseudo-localized for the output
+     * type of this bundle. Everything in a raw string is pseudo-localized.
+     */
+    private int getSyntax()
+    {
+    	if (type.equals(RAW_TYPE)) {
+    		return 0;
+    	} else if (isHTML_XML_Type()) {
+    		return TokenStream.HTML_SYNTAX;
+    	} else if (type.equals(JAVA_TYPE)) {
+    		return TokenStream.JAVA_SYNTAX;
+    	}
+    	return TokenStream.PLACEHOLDERS;
+    }
+
+    /**
+     * Pseudo-localize the given source string without looking in the cache.
+     */
+    private String transformPseudo(String source)
+    {
+		StringBuilder ret = new StringBuilder(source.length() + source.length() / 2 + 8);
+
+		// only the text is pseudo-localized. Tags, entities, placeholders,
+		// format specifiers and escapes are copied as they are.
+		TokenStream tokens = TokenStream.tokenize(source, getSyntax());
+		for (int t = 0; t < tokens.size(); t++) {
+			int start = tokens.getStart(t);
+			int end = tokens.getEnd(t);
+			if (tokens.getType(t) == TokenStream.TEXT && pseudoOverride != null) {
+				for (int i = start; i < end; i++) {
+					ret.append(pseudoOverride.getPseudoCharacter(String.valueOf(source.charAt(i))));
 				}
-				if (i < source.length()) { 
-					if (source.charAt(i) == '{') {
-						ret.append(source.charAt(i++));
-						while (i < source.length() && source.charAt(i) != '}') {
-							ret.append(source.charAt(i++));
-						}
-						if (i < source.length()) {
-							ret.append(source.charAt(i));
-						}
-					} else {
-						String c = source.substring(i, i+1);
-						ret.append( getPseudoCharacter(c) );
-					}
+			} else if (tokens.getType(t) == TokenStream.TEXT) {
+				for (int i = start; i < end; i++) {
+					pseudoTable.append(ret, source.charAt(i));
 				}
 			} else {
-				String c = source.substring(i, i+1);
-				ret.append( getPseudoCharacter(c) );				
+				ret.append(source, start, end);
 			}
 		}
 		if (lengthen) {
@@ -577,23 +749,43 @@ public class IResourceBundle {
 			} else {
 				add = Math.round(ret.length() / 5);
 			}
-			for (i = add-1; i >= 0; i--) {
-				ret.append("" + (i % 10));
-			}
+			appendLengthening(ret, add);
 		}
 
 		return ret.toString();
     }
 
     /**
-     * Returns string with pseudo character that corresponds to the input one
+     * Append the digits that lengthen a pseudo-localized string, counting
+     * down to 0, such as "109876543210" for 12 digits. The digits repeat
+     * every 10, so they are appended from precomputed strings instead of
+     * one at a time.
+     */
+    private static void appendLengthening(StringBuilder sb, int add)
+    {
+    	int partial = add % 10;
+    	sb.append(LENGTHENING, LENGTHENING.length() - partial, LENGTHENING.length());
+    	for (int blocks = add / 10; blocks > 0; ) {
+    		int n = Math.min(blocks * 10, LENGTHENING.length());
+    		sb.append(LENGTHENING, 0, n);
+    		blocks -= n / 10;
+    	}
+    }
+
+    /**
+     * Returns string with pseudo character that corresponds to the input one.
+     * A subclass that overrides this gets called for each character of the
+     * text that is pseudo-localized, including by the views of this bundle.
+     * Its results are not kept in the cache of pseudo-localized strings,
+     * because that is shared with the bundles that do not override it.
      * @param character input character string
      * @return string with pseudo character if input character is found in appropriate pseudoMap,
      * 		otherwise - input character
      */
     protected String getPseudoCharacter(String character)
     {
-    	return pseudoCharacters.containsKey(character) ? pseudoCharacters.get(character) : character;
+    	String replacement = (character != null && character.length() == 1) ? pseudoTable.get(character.charAt(0)) : null;
+    	return replacement != null ? replacement : character;
     }
 
     /**
@@ -606,11 +798,86 @@ public class IResourceBundle {
     	if ( str == null )
 			return null;
 
-		String ret;
-		ret = str.replaceAll("&", "&amp;");
-		ret = ret.replaceAll("<", "&lt;");
-		ret = ret.replaceAll(">", "&gt;");
-		return ret;
+		int i = 0;
+		while (i < str.length() && !needsEscape(str.charAt(i))) {
+			i++;
+		}
+		if (i == str.length()) {
+			return str;
+		}
+
+		StringBuilder ret = new StringBuilder(str.length() + 16);
+		try {
+			escape(str, ret);
+		} catch (IOException e) {
+			// a StringBuilder never throws
+			throw new IllegalStateException(e);
+		}
+		return ret.toString();
+    }
+
+    /**
+     * Append the given string to the given builder with all of the html and
+     * xml special characters replaced by entities.
+     */
+    static void appendEscaped(String str, StringBuilder out)
+    {
+    	try {
+    		escape(str, out);
+    	} catch (IOException e) {
+    		// a StringBuilder never throws
+    		throw new IllegalStateException(e);
+    	}
+    }
+
+    private static boolean needsEscape(char c)
+    {
+    	return c == '&' || c == '<' || c == '>';
+    }
+
+    /**
+     * Write the given string to the given output with all of the html and
+     * xml special characters replaced by entities, in a single pass.
+     */
+    private static void escape(String str, Appendable out) throws IOException
+    {
+    	int last = 0;
+    	for (int i = 0; i < str.length(); i++) {
+    		String entity;
+    		switch (str.charAt(i)) {
+    			case '&':
+    				entity = "&amp;";
+    				break;
+    			case '<':
+    				entity = "&lt;";
+    				break;
+    			case '>':
+    				entity = "&gt;";
+    				break;
+    			default:
+    				continue;
+    		}
+    		append(out, str, last, i);
+    		out.append(entity);
+    		last = i + 1;
+    	}
+    	append(out, str, last, str.length());
+    }
+
+    /**
+     * Append part of a string to the given output without making a
+     * substring of it first.
+     */
+    private static void append(Appendable out, String str, int start, int end) throws IOException
+    {
+    	if (start >= end) {
+    		return;
+    	}
+    	if (out instanceof Writer) {
+    		((Writer)out).write(str, start, end - start);
+    	} else {
+    		out.append(str, start, end);
+    	}
     }
 
     /**
@@ -625,11 +892,44 @@ public class IResourceBundle {
     	if ( str == null )
 			return null;
 
-		String ret;
-		ret = str.replaceAll("&amp;", "&");
-		ret = ret.replaceAll("&lt;", "<");
-		ret = ret.replaceAll("&gt;", ">");
-		return ret;
+		int i = str.indexOf('&');
+		if (i == -1) {
+			return str;
+		}
+
+		StringBuilder ret = new StringBuilder(str.length());
+		ret.append(str, 0, i);
+		while (i < str.length()) {
+			char c = str.charAt(i);
+			if (c == '&') {
+				if (str.startsWith("&amp;", i)) {
+					i += 5;
+					// this used to be three passes of replaceAll, which
+					// unescaped "&amp;lt;" and "&amp;gt;" twice, so keep doing that
+					if (str.startsWith("lt;", i)) {
+						ret.append('<');
+						i += 3;
+					} else if (str.startsWith("gt;", i)) {
+						ret.append('>');
+						i += 3;
+					} else {
+						ret.append('&');
+					}
+					continue;
+				} else if (str.startsWith("&lt;", i)) {
+					ret.append('<');
+					i += 4;
+					continue;
+				} else if (str.startsWith("&gt;", i)) {
+					ret.append('>');
+					i += 4;
+					continue;
+				}
+			}
+			ret.append(c);
+			i++;
+		}
+		return ret.toString();
     }
 
     /**
@@ -660,14 +960,56 @@ public class IResourceBundle {
      * the string was not found.
      */
     protected String getAndroidString(String keyName) {
+    	int slot = keys.indexOf(keyName);
+    	if (slot == KeyIndex.NOT_FOUND) {
+    		return null;
+    	}
+    	return getAndroidString(keys.getId(slot));
+    }
+
+    /**
+     * Return the string with the given id from the Android resources.
+     * 
+     * @param id the id of the string in the R class
+     * @return the string from the Android resources, or null if
+     * the string was not found.
+     */
+    private String getAndroidString(int id) {
+    	MetricsListener l = listener;
+    	long start = (l != null) ? System.nanoTime() : 0L;
     	try {
-	    	Field f = R.getField(keyName);
-	    	return resources.getString(f.getInt(null));
+    		return resources.getString(id);
     	} catch (Exception e) {
     		return null;
+    	} finally {
+    		if (l != null) {
+    			l.providerCalled(this, 1, System.nanoTime() - start);
+    		}
     	}
     }
     
+    /**
+     * Return the plural variants with the given id from the Android
+     * resources.
+     * 
+     * @param id the id of the string in the R class
+     * @return the variants from the Android resources, or null if
+     * there are none.
+     */
+    private String[] getAndroidPlurals(int id) {
+    	MetricsListener l = listener;
+    	long start = (l != null) ? System.nanoTime() : 0L;
+    	try {
+    		return resources.getPlurals(id);
+    	} catch (Exception e) {
+    		return null;
+    	} finally {
+    		if (l != null) {
+    			l.providerCalled(this, 1, System.nanoTime() - start);
+    		}
+    	}
+    }
+
     /**
      * Returns translation for given source and key strings.
      * @param source source string to look up
@@ -681,20 +1023,528 @@ public class IResourceBundle {
     {
 		if (source == null && key == null) return null;
 
+		ResultCache c = cache;
+		if (c == null) {
+			return lookupString(source, key);
+		}
+
+		String result = c.get(cacheScope, source, key, type, missing, lengthen);
+		if (result == null) {
+			result = lookupString(source, key);
+			c.put(cacheScope, source, key, type, missing, lengthen, result);
+		} else if (listener != null) {
+			listener.cacheHit(this);
+		}
+		return result;
+	}
+
+    /**
+     * Returns the translation for the given source string using an id for
+     * it that was worked out ahead of time, such as one of the constants
+     * generated by {@link StringKeyProcessor}. The result is the same as
+     * {@link #getString(String, String)} would give for the source string,
+     * but the source string is not hashed and the result cache is not
+     * used, so a lookup is a single call to the string provider.
+     * 
+     * @param source source string to look up. It is used to restore the
+     * whitespace and when there is no translation.
+     * @param id the id of the source string in the R class
+     * @return translation for target locale if it is exists, otherwise the
+     * source string, or null if the source string is null
+     * @see MissingType
+     */
+    public String getString(String source, int id)
+    {
+		if (source == null) return null;
+
+		if (targetLocale.getLanguage() == "zxx") {
+			return pseudo(source);
+		}
+
+		String trans = getAndroidString(id);
+		if (trans == null && recorder != null) {
+			recorder.record(targetLocale, source, makeKey(source));
+		}
+		return restoreWhitespace(source, completeTranslation(source, trans));
+	}
+
+    /**
+     * Returns the plural variant of the translation of the given source
+     * string that the plural rules of the target locale choose for the
+     * given count. The rules are in {@link PluralRules}.<p>
+     * 
+     * The first time a source string is looked up, all of its variants are
+     * fetched from the string provider with
+     * {@link IStringProvider#getPlurals(int)} and put through the same
+     * missing string strategy, escaping and whitespace handling as
+     * {@link #getString(String)}. After that, getting a variant is a map
+     * lookup and an array index, so it is cheap to call for every row of
+     * a long list. If the provider has no plurals for the source string,
+     * its plain translation is used for every count.
+     * 
+     * @param source source string to look up, usually the "other" form
+     * in the source language, such as "{count} messages"
+     * @param count the count to choose the variant for
+     * @return the variant of the translation for the count, or the result
+     * of the missing string strategy if there is no translation, or null
+     * if the source string is null
+     * @see MissingType
+     */
+    public String getPluralString(String source, long count)
+    {
+		if (source == null) return null;
+
+		String[] variants = plurals.get(source);
+		if (variants == null) {
+			variants = resolvePlurals(source);
+			if (plurals.size() >= MAX_PLURALS) {
+				plurals.clear();
+			}
+			plurals.put(source, variants);
+		} else if (listener != null) {
+			listener.cacheHit(this);
+		}
+		return variants[pluralRules.select(count)];
+	}
+
+    /**
+     * Work out what to return for each plural category of the given source
+     * string, indexed by the ordinal of the category.
+     */
+    private String[] resolvePlurals(String source)
+    {
+		String[] resolved = new String[PluralCategory.values().length];
+		if (targetLocale.getLanguage() == "zxx") {
+			Arrays.fill(resolved, pseudo(source));
+			return resolved;
+		}
+
+		String[] variants = null;
+		String other = null;
+		String keyName = containsKey(source) ? source : makeKey(source);
+		int slot = keys.indexOf(keyName);
+		if (slot != KeyIndex.NOT_FOUND) {
+			int id = keys.getId(slot);
+			variants = getAndroidPlurals(id);
+			int last = PluralCategory.OTHER.ordinal();
+			if (variants != null && variants.length > last) {
+				other = variants[last];
+			}
+			if (other == null) {
+				other = getAndroidString(id);
+			}
+		}
+		if (other == null && recorder != null) {
+			recorder.record(targetLocale, source, keyName);
+		}
+
+		// the other variant reports the translation as found or missing, so
+		// the rest of the variants are only escaped, and one source string
+		// counts once however many variants it has
+		String otherResult = restoreWhitespace(source, completeTranslation(source, other));
+		for (int i = 0; i < resolved.length; i++) {
+			String trans = (variants != null && i < variants.length) ? variants[i] : null;
+			resolved[i] = (trans == null || trans == other) ?
+				otherResult : restoreWhitespace(source, isHTML_XML_Type() ? escape(trans) : trans);
+		}
+		return resolved;
+	}
+
+    /**
+     * Look up the translation for the given source and key strings without
+     * consulting the result cache.
+     * 
+     * @param source source string to look up
+     * @param key unique key for the string, or null
+     * @return translation for target locale if it is exists, otherwise the source string
+     */
+    protected String lookupString(String source, String key)
+    {
 		if (targetLocale.getLanguage() == "zxx") {
 			String str = (source != null) ? source : getAndroidString(key);
 			return pseudo(str);
 		}
 		
-		Matcher mStart = pStart.matcher(source);
-		Matcher mEnd = pEnd.matcher(source);
-		
-		String whiteStart = mStart.find() ? mStart.group(0) : "";
-		String whiteEnd = mEnd.find() ? mEnd.group(0) : "";
+		return restoreWhitespace(source, getTranslation(source, key));
+	}
+
+    /**
+     * Put the whitespace from the start and end of the source string back
+     * around its translation.
+     */
+    private String restoreWhitespace(String source, String translation)
+    {
+		if (source == null) {
+			return translation;
+		}
+
+		int start = getLeadingWhitespaceEnd(source);
+		int end = getTrailingWhitespaceStart(source);
+		if (start == 0 && end == source.length()) {
+			return translation;
+		}
 		
-		return whiteStart + getTranslation(source, key) + whiteEnd;
+		return source.substring(0, start) + translation + source.substring(end, getTrailingWhitespaceEnd(source));
+	}
+
+    /**
+     * Return the index just past the whitespace at the start of the source
+     * string. For the default pattern, the characters are checked directly
+     * instead of running a matcher.
+     */
+    private int getLeadingWhitespaceEnd(String source)
+    {
+		if (pStart != DEFAULT_START) {
+			Matcher m = pStart.matcher(source);
+			return m.find() ? m.end() : 0;
+		}
+		int i = 0;
+		while (i < source.length() && isRegexSpace(source.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+    /**
+     * Return true if the whitespace at the end of the source string has to
+     * be found with a matcher. The $ in the default pattern can match
+     * before a line terminator at the end of the string that is not
+     * whitespace, so those are left to the matcher as well.
+     */
+    private boolean isTrailingWhitespaceMatched(String source)
+    {
+		if (pEnd != DEFAULT_END) {
+			return true;
+		}
+		char last = (source.length() > 0) ? source.charAt(source.length() - 1) : ' ';
+		return last == '\u0085' || last == '\u2028' || last == '\u2029';
+	}
+
+    /**
+     * Return the index of the start of the whitespace at the end of the
+     * source string.
+     */
+    private int getTrailingWhitespaceStart(String source)
+    {
+		if (isTrailingWhitespaceMatched(source)) {
+			Matcher m = pEnd.matcher(source);
+			return m.find() ? m.start() : source.length();
+		}
+		int i = source.length();
+		while (i > 0 && isRegexSpace(source.charAt(i - 1))) {
+			i--;
+		}
+		return i;
+	}
+
+    /**
+     * Return the index just past the whitespace at the end of the source
+     * string, which is the end of the string unless the pattern says
+     * otherwise.
+     */
+    private int getTrailingWhitespaceEnd(String source)
+    {
+		if (isTrailingWhitespaceMatched(source)) {
+			Matcher m = pEnd.matcher(source);
+			return m.find() ? m.end() : source.length();
+		}
+		return source.length();
+	}
+
+    /**
+     * Return true if the character is matched by \s in a regular expression.
+     */
+    private static boolean isRegexSpace(char c)
+    {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+    /**
+     * Write the translation for the given source and key strings to the
+     * given output. What is written is the same as what
+     * {@link #getString(String, String)} returns, but when there is no
+     * result cache, the translation, the escaping for the output type and
+     * the whitespace from the source string are all written to the output
+     * directly without making intermediate strings. If the source and key
+     * are both null, nothing is written.
+     * 
+     * @param source source string to look up
+     * @param key unique key for the string, or null to generate one from
+     * the source string
+     * @param out where to write the translation, such as a Writer
+     * @throws IOException if the output cannot be written to
+     */
+    public void getString(String source, String key, Appendable out) throws IOException
+    {
+		if (source == null && key == null) return;
+
+		if (cache != null || targetLocale.getLanguage() == "zxx") {
+			String result = getString(source, key);
+			if (result != null) {
+				out.append(result);
+			}
+			return;
+		}
+
+		String keyName;
+		if (key != null && key.length() > 0) {
+			keyName = key;
+		} else if (source != null) {
+			keyName = containsKey(source) ? source : makeKey(source);
+		} else {
+			if (recorder != null) {
+				recorder.recordInvalid();
+			}
+			return;
+		}
+
+		if (source != null) {
+			append(out, source, 0, getLeadingWhitespaceEnd(source));
+		}
+
+		String trans = getAndroidString(keyName);
+		if (trans == null) {
+			if (recorder != null) {
+				recorder.record(targetLocale, source, keyName);
+			}
+			trans = getMissingString(source);
+		} else if (listener != null) {
+			listener.translationFound(this);
+		}
+		if (trans != null) {
+			if (isHTML_XML_Type()) {
+				escape(trans, out);
+			} else {
+				out.append(trans);
+			}
+		}
+
+		if (source != null) {
+			append(out, source, getTrailingWhitespaceStart(source), getTrailingWhitespaceEnd(source));
+		}
+	}
+
+    /**
+     * Append the translation for the given source and key strings to the
+     * given StringBuilder. This is the same as
+     * {@link #getString(String, String, Appendable)} except that it
+     * does not need to declare an IOException.
+     * 
+     * @param source source string to look up
+     * @param key unique key for the string, or null to generate one from
+     * the source string
+     * @param out the StringBuilder to append the translation to
+     */
+    public void getString(String source, String key, StringBuilder out)
+    {
+		try {
+			getString(source, key, (Appendable)out);
+		} catch (IOException e) {
+			// a StringBuilder never throws
+			throw new IllegalStateException(e);
+		}
+	}
+
+    /**
+     * Retrieve the strings for many source strings or keys at once, such as
+     * all of the strings on one page. Each element of the returned array is
+     * the same as what {@link #getString(String)} would return for the
+     * element at the same index of the given array, but the keys are all
+     * looked up first and the translations are then fetched from the string
+     * provider with a single call to {@link IStringProvider#getStrings(int[])}.
+     * 
+     * @param sourcesOrKeys the source strings or unique keys to look up
+     * @return the translations for each of the given source strings or keys
+     */
+    public String[] getStrings(String[] sourcesOrKeys)
+    {
+		String[] results = new String[sourcesOrKeys.length];
+
+		if (targetLocale.getLanguage() == "zxx") {
+			// pseudo-localization does not need the provider at all
+			for (int i = 0; i < sourcesOrKeys.length; i++) {
+				results[i] = getString(sourcesOrKeys[i]);
+			}
+			return results;
+		}
+
+		ResultCache c = cache;
+		boolean[] pending = new boolean[sourcesOrKeys.length];
+		int[] ids = new int[sourcesOrKeys.length];
+		int[] positions = new int[sourcesOrKeys.length];
+		String[] keyNames = (recorder != null) ? new String[sourcesOrKeys.length] : null;
+		int count = 0;
+
+		for (int i = 0; i < sourcesOrKeys.length; i++) {
+			String source = sourcesOrKeys[i];
+			if (source == null) continue;
+			if (c != null && (results[i] = c.get(cacheScope, source, null, type, missing, lengthen)) != null) {
+				if (listener != null) {
+					listener.cacheHit(this);
+				}
+				continue;
+			}
+
+			pending[i] = true;
+			String keyName = containsKey(source) ? source : makeKey(source);
+			if (keyNames != null) {
+				keyNames[i] = keyName;
+			}
+			int slot = keys.indexOf(keyName);
+			if (slot != KeyIndex.NOT_FOUND) {
+				ids[count] = keys.getId(slot);
+				positions[count++] = i;
+			}
+		}
+
+		String[] found = getAndroidStrings(count == ids.length ? ids : Arrays.copyOf(ids, count));
+		String[] translations = new String[sourcesOrKeys.length];
+		for (int j = 0; j < count; j++) {
+			translations[positions[j]] = found[j];
+		}
+
+		for (int i = 0; i < sourcesOrKeys.length; i++) {
+			if (!pending[i]) continue;
+			String source = sourcesOrKeys[i];
+			if (translations[i] == null && keyNames != null) {
+				recorder.record(targetLocale, source, keyNames[i]);
+			}
+			results[i] = restoreWhitespace(source, completeTranslation(source, translations[i]));
+			if (c != null) {
+				c.put(cacheScope, source, null, type, missing, lengthen, results[i]);
+			}
+		}
+		return results;
+	}
+
+    /**
+     * Look up every key of this bundle, so that the first real lookups after
+     * startup do not pay for all of the warming up at once. The translations
+     * are fetched from the string provider in large batches, which pages in
+     * its storage, and running the lookup and escaping code for every key
+     * gets it compiled by the JIT.<p>
+     * 
+     * If the bundle has a {@link ResultCache} with enough free room for
+     * every key, the translations are also put in it in the form that
+     * {@link #getString(String)} returns for the key. The room is checked
+     * with {@link ResultCache#fits}, which looks at each segment of the
+     * cache. When the keys do not fit, the cache is left alone, as filling
+     * it would evict the results of real lookups by source string, which
+     * are the ones worth keeping. Lookups on other threads while the
+     * preload runs may still take up the room it was counting on.<p>
+     * 
+     * Keys that have no translation are skipped, and are not passed to the
+     * missing string recorder. The metrics listener sees the calls to the
+     * string provider, but not any cache hits or found or missing
+     * translations.<p>
+     * 
+     * This may be called on a frozen bundle from any thread. On a bundle
+     * that is not frozen, its settings must not be changed while the
+     * preload runs.
+     * 
+     * @return the number of keys looked up and found, and how long it took
+     */
+    public PreloadResult preload()
+    {
+		long start = System.nanoTime();
+		List<String> names = keys.keys();
+		ResultCache c = cache;
+		if (targetLocale.getLanguage() == "zxx" || (c != null && !c.fits(cacheScope, names, type, missing, lengthen))) {
+			c = null;
+		}
+		int found = 0;
+
+		int[] ids = new int[Math.min(PRELOAD_BATCH, names.size())];
+		for (int from = 0; from < names.size(); from += PRELOAD_BATCH) {
+			int n = Math.min(PRELOAD_BATCH, names.size() - from);
+			if (n != ids.length) {
+				ids = new int[n];
+			}
+			for (int i = 0; i < n; i++) {
+				ids[i] = keys.getId(keys.indexOf(names.get(from + i)));
+			}
+
+			String[] strings = getAndroidStrings(ids);
+			for (int i = 0; i < n; i++) {
+				if (strings[i] == null) {
+					continue;
+				}
+				found++;
+				if (c != null) {
+					String result = isHTML_XML_Type() ? escape(strings[i]) : strings[i];
+					c.put(cacheScope, names.get(from + i), null, type, missing, lengthen, result);
+				}
+			}
+		}
+		return new PreloadResult(names.size(), found, System.nanoTime() - start);
+	}
+
+    /**
+     * Run {@link #preload()} in the background on the common fork-join pool.
+     * 
+     * @return a future that completes with the result of the preload, which
+     * a readiness check can wait for or poll
+     */
+    public CompletableFuture<PreloadResult> preloadAsync()
+    {
+		return CompletableFuture.supplyAsync(this::preload);
 	}
 
+    /**
+     * Run {@link #preload()} in the background on the given executor.
+     * 
+     * @param executor the executor to run the preload on
+     * @return a future that completes with the result of the preload, which
+     * a readiness check can wait for or poll
+     * @throws IllegalArgumentException if the executor is null
+     */
+    public CompletableFuture<PreloadResult> preloadAsync(Executor executor)
+    {
+		if (executor == null) {
+			throw new IllegalArgumentException("IResourceBundle: executor must not be null");
+		}
+		return CompletableFuture.supplyAsync(this::preload, executor);
+	}
+
+    /**
+     * Return the strings with the given ids from the string provider. If
+     * the provider fails to return them all at once, they are retrieved
+     * one at a time instead.
+     */
+    private String[] getAndroidStrings(int[] ids)
+    {
+    	if (ids.length == 0) {
+    		return new String[0];
+    	}
+
+    	MetricsListener l = listener;
+    	long start = (l != null) ? System.nanoTime() : 0L;
+    	try {
+    		try {
+    			String[] strings = resources.getStrings(ids);
+    			if (strings != null && strings.length == ids.length) {
+    				return strings;
+    			}
+    		} catch (Exception e) {
+    			// fall through and try one at a time
+    		}
+
+    		String[] strings = new String[ids.length];
+    		for (int i = 0; i < ids.length; i++) {
+    			try {
+    				strings[i] = resources.getString(ids[i]);
+    			} catch (Exception e) {
+    				strings[i] = null;
+    			}
+    		}
+    		return strings;
+    	} finally {
+    		if (l != null) {
+    			l.providerCalled(this, ids.length, System.nanoTime() - start);
+    		}
+    	}
+    }
+
     /**
      * Get the translation of the given source string and key combination. At
      * least one of the source or the key must be specified.
@@ -713,29 +1563,34 @@ public class IResourceBundle {
     		if (source != null) {
     			keyName = containsKey(source) ? source : makeKey(source);
     		} else {
-    			System.err.println("IResourceBundle: Incorrect translation parameters: key and source are both null!");
+    			if (recorder != null) {
+    				recorder.recordInvalid();
+    			}
     			return "";
     		}
     	}
 
     	String trans = getAndroidString(keyName);
+    	if (trans == null && recorder != null) {
+    		recorder.record(targetLocale, source, keyName);
+    	}
+    	return completeTranslation(source, trans);
+    }
 
+    /**
+     * Apply the missing string strategy and the escaping for the output
+     * type to the translation of the given source string.
+     * 
+     * @param source The source string written in the source language, or null
+     * @param trans The translation from the resources, or null if there is none
+     * @return the translation to return to the caller
+     */
+    protected String completeTranslation(String source, String trans)
+    {
     	if (trans == null) {
-    		switch (missing) {
-	    		default:
-				case SOURCE:
-					trans = source;
-					break;
-				case PSEUDO:
-					trans = (source != null) ? pseudo(source.trim()) : null;
-					break;
-				case EMPTY:
-					trans = "";
-					break;
-				case PLACEHOLDER:
-					trans = "????";
-					break;
-			}
+    		trans = getMissingString(source);
+    	} else if (listener != null) {
+    		listener.translationFound(this);
     	}
     	
 		if (isHTML_XML_Type() && trans != null) {
@@ -745,6 +1600,32 @@ public class IResourceBundle {
     	return trans;
     }
 
+    /**
+     * Return what to use in place of the translation of the given source
+     * string when there is none, according to the missing string strategy.
+     * 
+     * @param source The source string written in the source language, or null
+     * @return the string to use instead of the translation
+     */
+    protected String getMissingString(String source)
+    {
+		if (listener != null) {
+			listener.translationMissing(this, missing);
+		}
+
+		switch (missing) {
+			default:
+			case SOURCE:
+				return source;
+			case PSEUDO:
+				return (source != null) ? pseudo(source.trim()) : null;
+			case EMPTY:
+				return "";
+			case PLACEHOLDER:
+				return "????";
+		}
+    }
+
     /**
      * Return true if the output file type is HTML or XML.
      * 
@@ -775,7 +1656,63 @@ public class IResourceBundle {
     }
 
     /**
-     * Return the pseudo-translated version of the source string.
+     * Retrieve the translation of the given source string or key, and fill
+     * in its <code>{name}</code> placeholders with the given values. The
+     * translation is parsed into a {@link MessageTemplate} once and cached,
+     * so filling it in again only takes one pass over the string. For the
+     * html and xml types, the values are escaped before they are inserted.
+     * Placeholders that have no value, or a null value, are left as they are.
+     * 
+     * @param sourceOrKey A source string or unique key to look
+     * up in the resources
+     * @param params the values of the placeholders, by name
+     * @return the translation with the placeholders filled in
+     */
+    public String formatString(String sourceOrKey, Map<String, ?> params)
+    {
+    	return format(getString(sourceOrKey), params, null);
+    }
+
+    /**
+     * Retrieve the translation of the given source string or key, and fill
+     * in its <code>{name}</code> placeholders with the given values. This is
+     * the same as {@link #formatString(String, Map)}, but with the names and
+     * values given in pairs, as in
+     * <code>formatStringPairs("Sent to {email}.", "email", address)</code>.
+     * 
+     * @param sourceOrKey A source string or unique key to look
+     * up in the resources
+     * @param params the names and values of the placeholders in pairs:
+     * name, value, name, value...
+     * @return the translation with the placeholders filled in
+     * @throws IllegalArgumentException if there is a name without a value
+     */
+    public String formatStringPairs(String sourceOrKey, Object... params)
+    {
+    	MessageTemplate.checkPairs(params);
+    	return format(getString(sourceOrKey), null, params);
+    }
+
+    private String format(String translation, Map<String, ?> map, Object[] pairs)
+    {
+    	if (translation == null || translation.indexOf('{') < 0 ||
+    			(map != null ? map.isEmpty() : (pairs == null || pairs.length == 0))) {
+    		return translation;
+    	}
+    	MessageTemplate template = MessageTemplate.get(translation, type.equals(JAVA_TYPE));
+    	if (!template.hasSlots()) {
+    		return translation;
+    	}
+    	StringBuilder out = new StringBuilder(translation.length() + 32);
+    	template.appendTo(out, map, pairs, isHTML_XML_Type());
+    	return out.toString();
+    }
+
+    /**
+     * Return the pseudo-translated version of the source string. The tags,
+     * entities, placeholders and other markup of the output type are kept
+     * as they are. See {@link TokenStream} for how malformed markup, such as
+     * a bare ampersand or an unterminated brace, is treated.
      * 
      * @param source the source string to translate.
      * @return the pseudo-translated version of the source string
@@ -31,4 +31,45 @@ public interface IStringProvider {
 	 * @return the translation with the given numeric id
 	 */
 	public String getString(int id);
+
+	/**
+	 * Return the strings for all of the given numeric ids at once. The
+	 * string at each index of the returned array is the translation for the
+	 * id at the same index of the ids array, or null if there is none.<p>
+	 * 
+	 * The default implementation calls {@link #getString(int)} for each id.
+	 * Providers that can fetch many strings more cheaply than one at a
+	 * time, such as ones backed by a file or a remote store, should
+	 * override it.
+	 * 
+	 * @param ids the numeric ids to look up
+	 * @return the translations for each of the ids
+	 */
+	public default String[] getStrings(int[] ids) {
+		String[] strings = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			strings[i] = getString(ids[i]);
+		}
+		return strings;
+	}
+
+	/**
+	 * Return the plural variants of the string with the given numeric id.
+	 * The variant for each plural category is at the index of the ordinal
+	 * of its {@link PluralCategory}, so the array is indexed directly by
+	 * {@link PluralRules#select(long)}. The array may be shorter than the
+	 * number of categories, and the categories that the target language
+	 * does not use may be null, but the "other" variant should always be
+	 * there.<p>
+	 * 
+	 * The default implementation returns null, which means that the
+	 * provider has no plurals.
+	 * 
+	 * @param id the numeric id to look up
+	 * @return the plural variants with the given numeric id, or null if
+	 * there are none
+	 */
+	public default String[] getPlurals(int id) {
+		return null;
+	}
 }
@@ -0,0 +1,203 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable index that maps the names of the string ids of an R class
+ * to their values, so that looking up a key is a single hash probe with
+ * no reflection, no boxing and no exceptions thrown when the key is
+ * missing.<p>
+ *
+ * The index returned by {@link #forClass(Class)} is built once per R class
+ * by reflecting over its public static int fields, and is then shared by
+ * every IResourceBundle that uses that class. It is an open-addressing hash
+ * table with linear probing over parallel arrays of key names and ids.
+ * A {@link StringIndex} generated at build time can be used instead when
+ * reflecting over the R class at run time is too slow or not possible.
+ *
+ * @author edwinhoogerbeets
+ */
+public abstract class KeyIndex {
+	/**
+	 * The value returned by {@link #indexOf(String)} when the key is not
+	 * in the index.
+	 */
+	public static final int NOT_FOUND = -1;
+
+	private static final ClassValue<KeyIndex> indices = new ClassValue<KeyIndex>() {
+		@Override
+		protected KeyIndex computeValue(Class<?> type) {
+			return new ReflectedKeyIndex(type);
+		}
+	};
+
+	/**
+	 * Return the index for the given R class. The index is built
+	 * the first time it is requested for a class and the same
+	 * instance is returned for every subsequent request.
+	 *
+	 * @param R class containing the unique string id to id number mapping
+	 * @return the shared index for the given class
+	 */
+	public static KeyIndex forClass(Class<?> R) {
+		return indices.get(R);
+	}
+
+	// only the implementations in this package can extend this class
+	KeyIndex() {}
+
+	/**
+	 * Return the slot of the given key in this index, or NOT_FOUND if
+	 * the key is not in the index. The slot can be passed to
+	 * {@link #getId(int)} to retrieve the id of the key.
+	 *
+	 * @param key the name of the key to look up
+	 * @return the slot of the key, or NOT_FOUND
+	 */
+	public abstract int indexOf(String key);
+
+	/**
+	 * Return the id stored in the given slot.
+	 *
+	 * @param slot a slot returned from {@link #indexOf(String)}
+	 * @return the numeric id of the key in that slot
+	 */
+	public abstract int getId(int slot);
+
+	/**
+	 * Return true if the given key is in this index.
+	 *
+	 * @param key the name of the key to look up
+	 * @return true if the key is in the index, false otherwise
+	 */
+	public boolean containsKey(String key) {
+		return indexOf(key) != NOT_FOUND;
+	}
+
+	/**
+	 * Return the number of keys in this index.
+	 *
+	 * @return the number of keys in this index
+	 */
+	public abstract int size();
+
+	/**
+	 * Return the names of all of the keys in this index.
+	 *
+	 * @return an unmodifiable list of key names
+	 */
+	public abstract List<String> keys();
+
+	/**
+	 * The index of an R class built by reflection.
+	 */
+	private static final class ReflectedKeyIndex extends KeyIndex {
+		private final String[] keys;
+		private final int[] ids;
+		private final int mask;
+		private final int size;
+
+		ReflectedKeyIndex(Class<?> R) {
+			List<String> names = new ArrayList<String>();
+			List<Integer> values = new ArrayList<Integer>();
+			Field[] fields = R.getFields();
+
+			for (int i = 0; i < fields.length; i++) {
+				Field f = fields[i];
+				if (!Modifier.isStatic(f.getModifiers())) continue;
+				try {
+					values.add(f.getInt(null));
+					names.add(f.getName());
+				} catch (Exception e) {
+					// not an int-compatible field, so it cannot be a string id
+				}
+			}
+
+			int capacity = 2;
+			while (capacity < names.size() * 2) {
+				capacity <<= 1;
+			}
+
+			keys = new String[capacity];
+			ids = new int[capacity];
+			mask = capacity - 1;
+
+			int count = 0;
+			for (int i = 0; i < names.size(); i++) {
+				String name = names.get(i);
+				int slot = probe(name);
+				if (keys[slot] == null) {
+					keys[slot] = name;
+					ids[slot] = values.get(i);
+					count++;
+				}
+			}
+			size = count;
+		}
+
+		private static int spread(int h) {
+			return h ^ (h >>> 16);
+		}
+
+		/**
+		 * Find the slot where the given key is stored, or the empty slot
+		 * where it would be stored if it were in the table.
+		 */
+		private int probe(String key) {
+			int slot = spread(key.hashCode()) & mask;
+			String k;
+			while ((k = keys[slot]) != null && !k.equals(key)) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		@Override
+		public int indexOf(String key) {
+			if (key == null) return NOT_FOUND;
+			int slot = probe(key);
+			return keys[slot] != null ? slot : NOT_FOUND;
+		}
+
+		@Override
+		public int getId(int slot) {
+			return ids[slot];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public List<String> keys() {
+			List<String> ret = new ArrayList<String>(size);
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != null) {
+					ret.add(keys[i]);
+				}
+			}
+			return Collections.unmodifiableList(ret);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compile the likely subtags data from CLDR into the compact binary form
+ * that {@link ScriptInfo} loads the first time it is used. The build runs
+ * this on likelySubtags.txt, which sits next to ScriptInfo in the source
+ * tree, and puts the result next to the ScriptInfo class as
+ * likelySubtags.dat. If there is no likelySubtags.dat in the class path,
+ * ScriptInfo runs it on likelySubtags.txt itself.<p>
+ *
+ * The input has one mapping per line in the form "spec likely", where
+ * the spec is a language, a region, or a language followed by a region or
+ * a script, and the likely locale is language-Script-REGION. Blank lines
+ * and lines that start with # are ignored.<p>
+ *
+ * The output starts with a table of all of the distinct subtags, each
+ * padded to 8 bytes, and each mapping is then written as the indexes of
+ * its subtags in that table. The mappings are sorted by spec, so that
+ * ScriptInfo can look them up with a binary search directly in the bytes
+ * of the file without parsing any text or building a hash map.<p>
+ *
+ * Usage: java com.healthtap.LikelySubtagsCompiler likelySubtags.txt likelySubtags.dat
+ *
+ * @author edwinhoogerbeets
+ */
+public class LikelySubtagsCompiler {
+	private final Map<String, String> likely = new TreeMap<String, String>();
+
+	public LikelySubtagsCompiler() {}
+
+	/**
+	 * Add one mapping to this compiler. If the spec was already added, the
+	 * new likely locale replaces the old one.
+	 *
+	 * @param spec a language, region or language-region/script spec
+	 * @param likelyLocale the likely locale in the form language-Script-REGION
+	 * @throws IllegalArgumentException if the spec or the likely locale
+	 * does not have the right number of subtags
+	 */
+	public void add(String spec, String likelyLocale) {
+		if (spec == null || spec.length() == 0 || spec.split("-", -1).length > 2) {
+			throw new IllegalArgumentException("LikelySubtagsCompiler: bad spec " + spec);
+		}
+		if (likelyLocale == null || likelyLocale.split("-", -1).length != 3) {
+			throw new IllegalArgumentException("LikelySubtagsCompiler: bad likely locale " + likelyLocale + " for " + spec);
+		}
+		for (String subtag : (spec + "-" + likelyLocale).split("-", -1)) {
+			if (subtag.length() == 0 || subtag.length() > ScriptInfo.SUBTAG_SIZE || !isAlphanumeric(subtag)) {
+				throw new IllegalArgumentException("LikelySubtagsCompiler: bad subtag in " + spec + " " + likelyLocale);
+			}
+		}
+		likely.put(spec, likelyLocale);
+	}
+
+	/**
+	 * Add all of the mappings read from the given reader to this compiler.
+	 *
+	 * @param in the reader to read the lines from
+	 * @throws IOException if the lines cannot be read
+	 * @throws IllegalArgumentException if a line is not a valid mapping
+	 */
+	public void add(BufferedReader in) throws IOException {
+		String line;
+		int number = 1;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.length() > 0 && line.charAt(0) != '#') {
+				String[] fields = line.split("\\s+");
+				if (fields.length != 2) {
+					throw new IllegalArgumentException("LikelySubtagsCompiler: line " + number + " is not in the form: spec likely");
+				}
+				add(fields[0], fields[1]);
+			}
+			number++;
+		}
+	}
+
+	/**
+	 * Return the number of mappings added to this compiler so far.
+	 *
+	 * @return the number of mappings
+	 */
+	public int size() {
+		return likely.size();
+	}
+
+	/**
+	 * Write the mappings added so far to the given stream in the form that
+	 * ScriptInfo reads.
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		List<String> subtags = new ArrayList<String>();
+		Map<String, Integer> indexes = new HashMap<String, Integer>();
+		short[] table = new short[likely.size() * ScriptInfo.ENTRY_SIZE];
+
+		int i = 0;
+		for (Map.Entry<String, String> entry : likely.entrySet()) {
+			String[] spec = entry.getKey().split("-");
+			String[] full = entry.getValue().split("-");
+			table[i++] = getIndex(spec[0], subtags, indexes);
+			table[i++] = (spec.length > 1) ? getIndex(spec[1], subtags, indexes) : -1;
+			for (String subtag : full) {
+				table[i++] = getIndex(subtag, subtags, indexes);
+			}
+		}
+
+		DataOutputStream dos = new DataOutputStream(out);
+		dos.writeInt(ScriptInfo.MAGIC);
+		dos.writeInt(ScriptInfo.VERSION);
+		dos.writeShort(subtags.size());
+		dos.writeShort(likely.size());
+		for (String subtag : subtags) {
+			byte[] bytes = Arrays.copyOf(subtag.getBytes(StandardCharsets.US_ASCII), ScriptInfo.SUBTAG_SIZE);
+			dos.write(bytes);
+		}
+		for (short index : table) {
+			dos.writeShort(index);
+		}
+		dos.flush();
+	}
+
+	private static boolean isAlphanumeric(String subtag) {
+		for (int i = 0; i < subtag.length(); i++) {
+			char c = subtag.charAt(i);
+			if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static short getIndex(String subtag, List<String> subtags, Map<String, Integer> indexes) {
+		Integer index = indexes.get(subtag);
+		if (index == null) {
+			if (subtags.size() >= Short.MAX_VALUE) {
+				throw new IllegalArgumentException("LikelySubtagsCompiler: too many distinct subtags");
+			}
+			index = subtags.size();
+			subtags.add(subtag);
+			indexes.put(subtag, index);
+		}
+		return (short)index.intValue();
+	}
+
+	public static void main(String[] argv) {
+		if (argv.length != 2) {
+			System.out.println("Usage: java com.healthtap.LikelySubtagsCompiler likelySubtags.txt likelySubtags.dat");
+			return;
+		}
+
+		try {
+			LikelySubtagsCompiler compiler = new LikelySubtagsCompiler();
+			BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(new File(argv[0])), StandardCharsets.UTF_8));
+			try {
+				compiler.add(in);
+			} finally {
+				in.close();
+			}
+
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(argv[1])));
+			try {
+				compiler.write(out);
+			} finally {
+				out.close();
+			}
+			System.out.println("Wrote " + compiler.size() + " likely subtags to " + argv[1]);
+		} catch (IOException e) {
+			System.err.println("LikelySubtagsCompiler: " + e.getMessage());
+			System.exit(1);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,333 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Locale fallback chains, so that a bundle for a locale such as es-MX can
+ * use the translations for es where there is no translation specific to
+ * Mexico, and only falls back to the source string when neither has one.<p>
+ *
+ * The parent of each locale is worked out the way CLDR does it, using the
+ * likely subtags data in {@link ScriptInfo}: the parent of a locale with
+ * a region is the locale without the region, except that the script is
+ * kept when it is not the usual script of the language. So the chain for
+ * es-MX is es-MX, es, and the chains for zh-Hant-HK and zh-TW both go to
+ * zh-Hant but not to zh, because zh is written in simplified Han.<p>
+ *
+ * The chain is resolved once when the strings are loaded rather than on
+ * every lookup. {@link #flatten(Class, List)} merges the string providers
+ * for each locale in the chain into one table that already contains the
+ * best translation for each id of the R class, so that looking up a
+ * string is still a single probe. The plural variants of each id are
+ * merged in the same way.
+ *
+ * @author edwinhoogerbeets
+ */
+public final class LocaleFallback {
+	private LocaleFallback() {}
+
+	/**
+	 * Return the script that the given language is usually written in
+	 * when it is used in the given region, or null if it is not known.
+	 */
+	private static String getLikelyScript(String language, String region) {
+		String likely = null;
+		if (region.length() > 0) {
+			likely = ScriptInfo.getLikelySubtags(language + "-" + region);
+			if (likely == null) {
+				String byRegion = ScriptInfo.getLikelySubtags(region);
+				if (byRegion != null && byRegion.startsWith(language + "-")) {
+					likely = byRegion;
+				}
+			}
+		}
+		if (likely == null) {
+			likely = ScriptInfo.getLikelySubtags(language);
+		}
+		if (likely == null) {
+			return null;
+		}
+		int start = likely.indexOf('-') + 1;
+		int end = likely.indexOf('-', start);
+		return (start > 0 && end > start) ? likely.substring(start, end) : null;
+	}
+
+	/**
+	 * Return the parent of the given locale in the fallback chain, or null
+	 * if the parent is the root locale, which means that the next thing to
+	 * fall back to is the source string.
+	 *
+	 * @param locale the locale to find the parent of
+	 * @return the parent locale, or null if there is none
+	 */
+	public static Locale getParent(Locale locale) {
+		if (locale == null) {
+			return null;
+		}
+		String language = locale.getLanguage();
+		String script = locale.getScript();
+		String region = locale.getCountry();
+
+		if (language.length() == 0) {
+			return null;
+		}
+		if (locale.getVariant().length() > 0 || locale.hasExtensions()) {
+			return new Locale.Builder().setLanguage(language).setScript(script).setRegion(region).build();
+		}
+
+		if (region.length() > 0) {
+			if (script.length() > 0) {
+				return new Locale.Builder().setLanguage(language).setScript(script).build();
+			}
+			String regional = getLikelyScript(language, region);
+			String usual = getLikelyScript(language, "");
+			if (regional != null && usual != null && !regional.equals(usual)) {
+				return new Locale.Builder().setLanguage(language).setScript(regional).build();
+			}
+			return new Locale.Builder().setLanguage(language).build();
+		}
+
+		if (script.length() > 0 && script.equals(getLikelyScript(language, ""))) {
+			return new Locale.Builder().setLanguage(language).build();
+		}
+		return null;
+	}
+
+	/**
+	 * Return the fallback chain for the given locale. The first element is
+	 * the locale itself, followed by its parent, the parent of its parent,
+	 * and so on. The root locale is not included.
+	 *
+	 * @param locale the locale to return the chain for, or null for the
+	 * default locale
+	 * @return the fallback chain for the locale
+	 */
+	public static List<Locale> getChain(Locale locale) {
+		List<Locale> chain = new ArrayList<Locale>(4);
+		for (Locale l = (locale != null) ? locale : Locale.getDefault(); l != null; l = getParent(l)) {
+			chain.add(l);
+		}
+		return chain;
+	}
+
+	/**
+	 * Merge the given string providers into one provider. For each id in
+	 * the given R class, the merged provider returns the string from the
+	 * first provider in the list that has one, and the plural variants from
+	 * the first provider that has plurals for it. The providers are read once,
+	 * when this method is called, so strings that they return afterwards
+	 * are not seen by the merged provider.
+	 *
+	 * @param R class containing the unique string id to id number mapping
+	 * @param providers the providers to merge, most specific first. Null
+	 * elements are skipped.
+	 * @return a provider containing the best string for each id
+	 */
+	public static IStringProvider flatten(Class<?> R, List<? extends IStringProvider> providers) {
+		return flatten(KeyIndex.forClass(R), providers);
+	}
+
+	/**
+	 * Merge the given string providers into one provider for the ids in
+	 * the given key index. This is the same as
+	 * {@link #flatten(Class, List)} for an index that is not made from an
+	 * R class, such as a {@link StringIndex}.
+	 *
+	 * @param index the unique string id to id number mapping
+	 * @param providers the providers to merge, most specific first. Null
+	 * elements are skipped.
+	 * @return a provider containing the best string for each id
+	 */
+	public static IStringProvider flatten(KeyIndex index, List<? extends IStringProvider> providers) {
+		List<String> names = index.keys();
+		int[] ids = new int[names.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = index.getId(index.indexOf(names.get(i)));
+		}
+
+		String[] resolved = new String[ids.length];
+		int remaining = ids.length;
+		for (IStringProvider provider : providers) {
+			if (provider == null || remaining == 0) {
+				continue;
+			}
+
+			// only ask each provider for the ids that are still missing
+			int[] pending = new int[remaining];
+			int[] positions = new int[remaining];
+			int n = 0;
+			for (int i = 0; i < ids.length; i++) {
+				if (resolved[i] == null) {
+					pending[n] = ids[i];
+					positions[n++] = i;
+				}
+			}
+
+			String[] found = getStrings(provider, pending);
+			for (int j = 0; j < n; j++) {
+				if (found[j] != null) {
+					resolved[positions[j]] = found[j];
+					remaining--;
+				}
+			}
+		}
+
+		Map<Integer, String> strings = new HashMap<Integer, String>();
+		for (int i = 0; i < ids.length; i++) {
+			if (resolved[i] != null) {
+				strings.put(ids[i], resolved[i]);
+			}
+		}
+		Map<Integer, String[]> plurals = getPlurals(ids, providers);
+
+		IStringProvider flat;
+		try {
+			flat = CompactStringProvider.fromMap(strings);
+		} catch (IllegalArgumentException e) {
+			// the ids are too sparse to pack into an array
+			flat = new MapStringProvider(strings);
+		}
+		return plurals.isEmpty() ? flat : new PluralStringProvider(flat, plurals);
+	}
+
+	/**
+	 * Get the plural variants of each of the given ids from the first of
+	 * the given providers that has them, treating any that cannot be
+	 * retrieved as missing.
+	 */
+	private static Map<Integer, String[]> getPlurals(int[] ids, List<? extends IStringProvider> providers) {
+		Map<Integer, String[]> plurals = new HashMap<Integer, String[]>();
+		for (IStringProvider provider : providers) {
+			if (provider == null || plurals.size() == ids.length) {
+				continue;
+			}
+			for (int i = 0; i < ids.length; i++) {
+				if (plurals.containsKey(ids[i])) {
+					continue;
+				}
+				String[] variants;
+				try {
+					variants = provider.getPlurals(ids[i]);
+				} catch (Exception e) {
+					variants = null;
+				}
+				if (variants != null) {
+					plurals.put(ids[i], variants.clone());
+				}
+			}
+		}
+		return plurals;
+	}
+
+	/**
+	 * Load the strings for the given locale and each of its parents with the
+	 * given loader and merge them into one provider with
+	 * {@link #flatten(Class, List)}.
+	 *
+	 * @param R class containing the unique string id to id number mapping
+	 * @param locale the locale to load strings for, or null for the default locale
+	 * @param loader returns the string provider for a locale, or null if
+	 * there are no strings for that locale
+	 * @return a provider containing the best string for each id
+	 */
+	public static IStringProvider load(Class<?> R, Locale locale, Function<Locale, ? extends IStringProvider> loader) {
+		List<IStringProvider> providers = new ArrayList<IStringProvider>();
+		for (Locale l : getChain(locale)) {
+			providers.add(loader.apply(l));
+		}
+		return flatten(R, providers);
+	}
+
+	/**
+	 * Get the strings with the given ids from the given provider, treating
+	 * any that cannot be retrieved as missing.
+	 */
+	private static String[] getStrings(IStringProvider provider, int[] ids) {
+		try {
+			String[] strings = provider.getStrings(ids);
+			if (strings != null && strings.length == ids.length) {
+				return strings;
+			}
+		} catch (Exception e) {
+			// fall through and try one at a time
+		}
+
+		String[] strings = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			try {
+				strings[i] = provider.getString(ids[i]);
+			} catch (Exception e) {
+				strings[i] = null;
+			}
+		}
+		return strings;
+	}
+
+	/**
+	 * A provider for merged strings whose ids are too sparse for a
+	 * CompactStringProvider.
+	 */
+	private static final class MapStringProvider implements IStringProvider {
+		private final HashMap<Integer, String> strings;
+
+		MapStringProvider(Map<Integer, String> strings) {
+			this.strings = new HashMap<Integer, String>(strings);
+		}
+
+		@Override
+		public String getString(int id) {
+			return strings.get(id);
+		}
+	}
+
+	/**
+	 * A provider for merged strings that have plural variants. The plain
+	 * strings come from the wrapped provider.
+	 */
+	private static final class PluralStringProvider implements IStringProvider {
+		private final IStringProvider strings;
+		private final HashMap<Integer, String[]> plurals;
+
+		PluralStringProvider(IStringProvider strings, Map<Integer, String[]> plurals) {
+			this.strings = strings;
+			this.plurals = new HashMap<Integer, String[]>(plurals);
+		}
+
+		@Override
+		public String getString(int id) {
+			return strings.getString(id);
+		}
+
+		@Override
+		public String[] getStrings(int[] ids) {
+			return strings.getStrings(ids);
+		}
+
+		@Override
+		public String[] getPlurals(int id) {
+			String[] variants = plurals.get(id);
+			return (variants != null) ? variants.clone() : null;
+		}
+	}
+}
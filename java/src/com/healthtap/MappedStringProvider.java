@@ -0,0 +1,310 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A string provider that reads its strings from a binary bundle file that
+ * is memory-mapped rather than read into the heap. The strings are only
+ * decoded when they are asked for, and because the file is mapped read-only,
+ * every process on the same host that maps the same file shares the same
+ * pages of the operating system's page cache.<p>
+ *
+ * Binary bundle files are created from Android strings.xml files by the
+ * {@link BundleCompiler}. All numbers in the file are 32-bit big-endian
+ * ints. The layout is:
+ *
+ * <pre>
+ * header:
+ *   magic           "HTRB" (0x48545242)
+ *   version         1
+ *   count           the number of entries
+ *   dataOffset      the file offset of the string data
+ * entries, count times, sorted by keyHash and then by key name:
+ *   keyHash         String.hashCode() of the key name
+ *   nameOffset      offset of the UTF-8 key name in the string data
+ *   nameLength      length in bytes of the key name
+ *   valueOffset     offset of the UTF-8 translation in the string data
+ *   valueLength     length in bytes of the translation
+ * string data:
+ *   the UTF-8 bytes of all of the key names and translations
+ * </pre>
+ *
+ * The numeric ids that IResourceBundle passes to getString come from the
+ * R class, so when the provider is opened, it is bound to an R class by
+ * looking up each of the key names of that class in the file once. After
+ * that, looking up a string by id is a binary search over an int array.
+ *
+ * @author edwinhoogerbeets
+ */
+public class MappedStringProvider implements IStringProvider {
+	/** The magic number at the start of every binary bundle file. */
+	public static final int MAGIC = 0x48545242;
+	/** The version of the file format that this class reads. */
+	public static final int VERSION = 1;
+	/** The size in bytes of the header. */
+	public static final int HEADER_SIZE = 16;
+	/** The size in bytes of each entry. */
+	public static final int ENTRY_SIZE = 20;
+
+	private final ByteBuffer buffer;
+	private final int count;
+	private final int dataOffset;
+
+	// the ids of the R class that have a string in the file, sorted,
+	// and the index of the entry for each of those ids
+	private final int[] ids;
+	private final int[] entries;
+
+	/**
+	 * Map the given binary bundle file and bind it to the given R class.
+	 *
+	 * @param file the binary bundle file to map
+	 * @param R class containing the unique string id to id number mapping
+	 * @return a provider for the strings in the file
+	 * @throws IOException if the file cannot be read or is not a valid
+	 * binary bundle file
+	 */
+	public static MappedStringProvider open(File file, Class<?> R) throws IOException {
+		return open(file, KeyIndex.forClass(R));
+	}
+
+	/**
+	 * Map the given binary bundle file and bind it to the given key index.
+	 *
+	 * @param file the binary bundle file to map
+	 * @param index the unique string id to id number mapping
+	 * @return a provider for the strings in the file
+	 * @throws IOException if the file cannot be read or is not a valid
+	 * binary bundle file
+	 */
+	public static MappedStringProvider open(File file, KeyIndex index) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			// the mapping stays valid after the channel is closed
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new MappedStringProvider(mapped, index);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Construct a new provider for the binary bundle in the given buffer
+	 * and bind it to the given R class.
+	 *
+	 * @param buffer a buffer containing a binary bundle
+	 * @param R class containing the unique string id to id number mapping
+	 * @throws IOException if the buffer does not contain a valid binary bundle
+	 */
+	public MappedStringProvider(ByteBuffer buffer, Class<?> R) throws IOException {
+		this(buffer, KeyIndex.forClass(R));
+	}
+
+	/**
+	 * Construct a new provider for the binary bundle in the given buffer
+	 * and bind it to the given key index.
+	 *
+	 * @param buffer a buffer containing a binary bundle
+	 * @param index the unique string id to id number mapping
+	 * @throws IOException if the buffer does not contain a valid binary bundle
+	 */
+	public MappedStringProvider(ByteBuffer buffer, KeyIndex index) throws IOException {
+		this.buffer = buffer.duplicate();
+		this.buffer.order(ByteOrder.BIG_ENDIAN);
+
+		if (this.buffer.limit() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC) {
+			throw new IOException("MappedStringProvider: not a binary bundle file");
+		}
+		if (this.buffer.getInt(4) != VERSION) {
+			throw new IOException("MappedStringProvider: unsupported binary bundle version " + this.buffer.getInt(4));
+		}
+		count = this.buffer.getInt(8);
+		dataOffset = this.buffer.getInt(12);
+		if (count < 0 || dataOffset < HEADER_SIZE + (long)count * ENTRY_SIZE || dataOffset > this.buffer.limit()) {
+			throw new IOException("MappedStringProvider: corrupt binary bundle header");
+		}
+		checkEntries();
+
+		List<String> names = index.keys();
+		long[] pairs = new long[names.size()];
+		int n = 0;
+		for (String name : names) {
+			int entry = findEntry(name);
+			if (entry >= 0) {
+				int id = index.getId(index.indexOf(name));
+				pairs[n++] = ((long)id << 32) | entry;
+			}
+		}
+		Arrays.sort(pairs, 0, n);
+
+		ids = new int[n];
+		entries = new int[n];
+		for (int i = 0; i < n; i++) {
+			ids[i] = (int)(pairs[i] >> 32);
+			entries[i] = (int)pairs[i];
+		}
+	}
+
+	/**
+	 * Check that the entries are sorted by hash and that the name and the
+	 * string of each entry are inside the data, so that a truncated or
+	 * corrupt file is rejected when it is opened rather than failing later
+	 * in getString.
+	 */
+	private void checkEntries() throws IOException {
+		long size = buffer.limit() - dataOffset;
+		for (int entry = 0; entry < count; entry++) {
+			if (entry > 0 && entryInt(entry, 0) < entryInt(entry - 1, 0)) {
+				throw new IOException("MappedStringProvider: corrupt binary bundle: entry " + entry + " is out of order");
+			}
+			for (int field = 1; field < 5; field += 2) {
+				int offset = entryInt(entry, field);
+				int length = entryInt(entry, field + 1);
+				if (offset < 0 || length < 0 || (long)offset + length > size) {
+					throw new IOException("MappedStringProvider: corrupt binary bundle: entry " + entry + " is outside of the data");
+				}
+			}
+		}
+	}
+
+	private int entryInt(int entry, int field) {
+		return buffer.getInt(HEADER_SIZE + entry * ENTRY_SIZE + field * 4);
+	}
+
+	private String decode(int offset, int length) {
+		ByteBuffer dup = buffer.duplicate();
+		dup.position(dataOffset + offset);
+		dup.limit(dataOffset + offset + length);
+		byte[] bytes = new byte[length];
+		dup.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Return the index of the entry for the given key name, or -1 if there
+	 * is no entry for it.
+	 */
+	private int findEntry(String name) {
+		int hash = name.hashCode();
+		int low = 0;
+		int high = count - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int h = entryInt(mid, 0);
+			if (h < hash) {
+				low = mid + 1;
+			} else if (h > hash) {
+				high = mid - 1;
+			} else {
+				// back up to the first entry with this hash, then check the names
+				while (mid > 0 && entryInt(mid - 1, 0) == hash) {
+					mid--;
+				}
+				for (; mid < count && entryInt(mid, 0) == hash; mid++) {
+					if (name.equals(decode(entryInt(mid, 1), entryInt(mid, 2)))) {
+						return mid;
+					}
+				}
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String getString(int id) {
+		int i = Arrays.binarySearch(ids, id);
+		if (i < 0) {
+			return null;
+		}
+		int entry = entries[i];
+		return decode(entryInt(entry, 3), entryInt(entry, 4));
+	}
+
+	/**
+	 * Return the strings for all of the given ids at once. All of the
+	 * strings are decoded through one view of the mapped buffer and one
+	 * scratch array rather than allocating new ones for each string.
+	 */
+	@Override
+	public String[] getStrings(int[] ids) {
+		String[] strings = new String[ids.length];
+		ByteBuffer dup = buffer.duplicate();
+		byte[] scratch = new byte[64];
+
+		for (int i = 0; i < ids.length; i++) {
+			int index = Arrays.binarySearch(this.ids, ids[i]);
+			if (index < 0) continue;
+			int entry = entries[index];
+			int offset = dataOffset + entryInt(entry, 3);
+			int length = entryInt(entry, 4);
+			if (length > scratch.length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			dup.limit(offset + length);
+			dup.position(offset);
+			dup.get(scratch, 0, length);
+			strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	/**
+	 * Return the translation for the given key name directly, without
+	 * going through the ids of the R class.
+	 *
+	 * @param name the key name to look up
+	 * @return the translation, or null if there is none
+	 */
+	public String getString(String name) {
+		if (name == null) return null;
+		int entry = findEntry(name);
+		return entry < 0 ? null : decode(entryInt(entry, 3), entryInt(entry, 4));
+	}
+
+	/**
+	 * Return the number of entries in the binary bundle.
+	 *
+	 * @return the number of entries in the file
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Return the number of ids of the R class that have a translation
+	 * in the binary bundle.
+	 *
+	 * @return the number of ids bound to entries in the file
+	 */
+	public int getBoundCount() {
+		return ids.length;
+	}
+}
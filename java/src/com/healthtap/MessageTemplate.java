@@ -0,0 +1,232 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A translated string that has been split into literal text and named
+ * <code>{name}</code> slots, so that the slots can be filled in with a
+ * single pass over the string instead of one <code>replace</code> call per
+ * parameter.<p>
+ *
+ * The slots are the placeholder tokens found by {@link TokenStream}, the
+ * same ones that {@link IResourceBundle#pseudo(String)} does not
+ * pseudo-localize: a slot starts at a <code>{</code> and runs to the next
+ * <code>}</code>, and a <code>{</code> with no <code>}</code> after it is
+ * just text. With the java syntax, a character after a backslash is never
+ * the start of a slot, and printf-style specifiers such as
+ * <code>%1$s</code> are kept as text for String.format to deal with.<p>
+ *
+ * Templates are immutable and thread-safe. The templates returned by
+ * {@link #get(String, boolean)} are cached, so each translation is only
+ * parsed once.
+ *
+ * @author edwinhoogerbeets
+ */
+public final class MessageTemplate {
+	/**
+	 * The maximum number of templates to cache for each syntax. When the
+	 * cache is full it is emptied, which only costs parsing the strings
+	 * that are still in use again.
+	 */
+	private static final int MAX_CACHED = 4096;
+
+	private static final ConcurrentHashMap<String, MessageTemplate> plainCache = new ConcurrentHashMap<String, MessageTemplate>();
+	private static final ConcurrentHashMap<String, MessageTemplate> javaCache = new ConcurrentHashMap<String, MessageTemplate>();
+
+	private final String text;
+	private final String[] names;
+	// the start of the opening brace and the end of the closing brace of each slot
+	private final int[] bounds;
+
+	private MessageTemplate(String text, String[] names, int[] bounds) {
+		this.text = text;
+		this.names = names;
+		this.bounds = bounds;
+	}
+
+	/**
+	 * Parse the given string into a template without caching it.
+	 *
+	 * @param text the string to parse
+	 * @param javaSyntax true if backslash escapes and printf-style
+	 * specifiers should be recognized, as for the java output type
+	 * @return the template for the string
+	 * @throws IllegalArgumentException if the string is null
+	 */
+	public static MessageTemplate parse(String text, boolean javaSyntax) {
+		if (text == null) {
+			throw new IllegalArgumentException("MessageTemplate: text must not be null");
+		}
+		TokenStream tokens = TokenStream.tokenize(text, javaSyntax ? TokenStream.JAVA_SYNTAX : TokenStream.PLACEHOLDERS);
+		List<String> names = new ArrayList<String>(4);
+		int[] bounds = new int[tokens.size() * 2];
+		int count = 0;
+		for (int t = 0; t < tokens.size(); t++) {
+			if (tokens.getType(t) == TokenStream.PLACEHOLDER) {
+				int start = tokens.getStart(t);
+				int end = tokens.getEnd(t);
+				names.add(text.substring(start + 1, end - 1));
+				bounds[count * 2] = start;
+				bounds[count * 2 + 1] = end;
+				count++;
+			}
+		}
+
+		if (count == 0) {
+			return new MessageTemplate(text, new String[0], new int[0]);
+		}
+		int[] trimmed = new int[count * 2];
+		System.arraycopy(bounds, 0, trimmed, 0, trimmed.length);
+		return new MessageTemplate(text, names.toArray(new String[count]), trimmed);
+	}
+
+	/**
+	 * Return the template for the given string, parsing it only if it is
+	 * not already in the cache.
+	 *
+	 * @param text the string to parse
+	 * @param javaSyntax true if backslash escapes and printf-style
+	 * specifiers should be recognized, as for the java output type
+	 * @return the template for the string
+	 * @throws IllegalArgumentException if the string is null
+	 */
+	public static MessageTemplate get(String text, boolean javaSyntax) {
+		if (text == null) {
+			throw new IllegalArgumentException("MessageTemplate: text must not be null");
+		}
+		ConcurrentHashMap<String, MessageTemplate> cache = javaSyntax ? javaCache : plainCache;
+		MessageTemplate template = cache.get(text);
+		if (template == null) {
+			template = parse(text, javaSyntax);
+			if (cache.size() >= MAX_CACHED) {
+				cache.clear();
+			}
+			cache.put(text, template);
+		}
+		return template;
+	}
+
+	/**
+	 * @return the string that this template was parsed from
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @return the names of the slots in the order they appear in the
+	 * string. A name appears once for each slot that has it.
+	 */
+	public List<String> getNames() {
+		List<String> list = new ArrayList<String>(names.length);
+		Collections.addAll(list, names);
+		return Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * @return true if the string has at least one slot
+	 */
+	public boolean hasSlots() {
+		return names.length > 0;
+	}
+
+	/**
+	 * Fill in the slots with the values in the given map. Slots that have
+	 * no value or a null value are left as they are.
+	 *
+	 * @param params the values to fill in, by slot name
+	 * @return the filled in string
+	 */
+	public String format(Map<String, ?> params) {
+		if (names.length == 0 || params == null || params.isEmpty()) {
+			return text;
+		}
+		StringBuilder out = new StringBuilder(text.length() + 16 * names.length);
+		appendTo(out, params, null, false);
+		return out.toString();
+	}
+
+	/**
+	 * Fill in the slots with the given values. Slots that have no value or
+	 * a null value are left as they are.
+	 *
+	 * @param params the slot names and values to fill in, in pairs:
+	 * name, value, name, value...
+	 * @return the filled in string
+	 * @throws IllegalArgumentException if there is a name without a value
+	 */
+	public String format(Object... params) {
+		checkPairs(params);
+		if (names.length == 0 || params == null || params.length == 0) {
+			return text;
+		}
+		StringBuilder out = new StringBuilder(text.length() + 16 * names.length);
+		appendTo(out, null, params, false);
+		return out.toString();
+	}
+
+	static void checkPairs(Object[] params) {
+		if (params != null && (params.length & 1) != 0) {
+			throw new IllegalArgumentException("MessageTemplate: params must be pairs of names and values");
+		}
+	}
+
+	/**
+	 * Append the string to the given builder with the slots filled in from
+	 * either the map or the name and value pairs, optionally escaping the
+	 * values for html or xml.
+	 */
+	void appendTo(StringBuilder out, Map<String, ?> map, Object[] pairs, boolean escape) {
+		int last = 0;
+		for (int s = 0; s < names.length; s++) {
+			Object value = (map != null) ? map.get(names[s]) : lookup(pairs, names[s]);
+			if (value == null) {
+				continue;
+			}
+			int start = bounds[s * 2];
+			out.append(text, last, start);
+			String str = value.toString();
+			if (escape) {
+				IResourceBundle.appendEscaped(str, out);
+			} else {
+				out.append(str);
+			}
+			last = bounds[s * 2 + 1];
+		}
+		out.append(text, last, text.length());
+	}
+
+	private static Object lookup(Object[] pairs, String name) {
+		for (int i = 0; i < pairs.length; i += 2) {
+			if (name.equals(pairs[i])) {
+				return pairs[i + 1];
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
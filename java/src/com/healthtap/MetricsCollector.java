@@ -0,0 +1,302 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.healthtap.IResourceBundle.MissingType;
+
+/**
+ * A metrics listener that counts the lookups of the bundles it is installed
+ * in and keeps a histogram of the latency of the calls to their string
+ * providers. The counters are striped LongAdders, so many threads can
+ * update them at once without contending with each other.<p>
+ *
+ * The latency histogram has one bucket per power of two nanoseconds.
+ * Bucket 0 counts calls that took no measurable time, and bucket b counts
+ * calls that took from 2<sup>b-1</sup> up to 2<sup>b</sup>-1 nanoseconds.<p>
+ *
+ * A collector can be registered as a JMX MBean with
+ * {@link #registerMBean(String, Locale)} so that its counters can be
+ * watched with tools such as jconsole. Typically there is one collector
+ * for each bundle and locale.
+ *
+ * @author edwinhoogerbeets
+ */
+public class MetricsCollector implements MetricsListener, MetricsCollectorMBean {
+	/** The number of buckets in the latency histogram. */
+	public static final int BUCKETS = 64;
+
+	private final LongAdder found = new LongAdder();
+	private final LongAdder[] missing = newAdders(MissingType.values().length);
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder pseudo = new LongAdder();
+	private final LongAdder pseudoChars = new LongAdder();
+	private final LongAdder providerCalls = new LongAdder();
+	private final LongAdder providerNanos = new LongAdder();
+	private final LongAdder[] latency = newAdders(BUCKETS);
+
+	private volatile ObjectName objectName = null;
+
+	public MetricsCollector() {}
+
+	private static LongAdder[] newAdders(int n) {
+		LongAdder[] adders = new LongAdder[n];
+		for (int i = 0; i < n; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	/**
+	 * Return the index of the histogram bucket for the given latency.
+	 *
+	 * @param nanos a latency in nanoseconds
+	 * @return the index of the bucket that counts that latency
+	 */
+	public static int getBucket(long nanos) {
+		return nanos <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos);
+	}
+
+	/**
+	 * Return the largest latency that is counted in the given histogram
+	 * bucket.
+	 *
+	 * @param bucket the index of a bucket
+	 * @return the upper bound of the bucket in nanoseconds
+	 */
+	public static long getBucketUpperBound(int bucket) {
+		return bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+	}
+
+	@Override
+	public void translationFound(IResourceBundle bundle) {
+		found.increment();
+	}
+
+	@Override
+	public void translationMissing(IResourceBundle bundle, MissingType strategy) {
+		missing[strategy.ordinal()].increment();
+	}
+
+	@Override
+	public void cacheHit(IResourceBundle bundle) {
+		cacheHits.increment();
+	}
+
+	@Override
+	public void pseudoLocalized(IResourceBundle bundle, int length) {
+		pseudo.increment();
+		pseudoChars.add(length);
+	}
+
+	@Override
+	public void providerCalled(IResourceBundle bundle, int strings, long nanos) {
+		providerCalls.increment();
+		providerNanos.add(nanos);
+		latency[getBucket(nanos)].increment();
+	}
+
+	@Override
+	public long getFoundCount() {
+		return found.sum();
+	}
+
+	@Override
+	public long getMissingCount() {
+		long sum = 0;
+		for (LongAdder adder : missing) {
+			sum += adder.sum();
+		}
+		return sum;
+	}
+
+	/**
+	 * Return the number of missing translations that were handled with the
+	 * given missing string strategy.
+	 *
+	 * @param strategy the missing string strategy
+	 * @return the number of missing translations handled with it
+	 */
+	public long getMissingCount(MissingType strategy) {
+		return missing[strategy.ordinal()].sum();
+	}
+
+	@Override
+	public long getMissingSourceCount() {
+		return getMissingCount(MissingType.SOURCE);
+	}
+
+	@Override
+	public long getMissingPseudoCount() {
+		return getMissingCount(MissingType.PSEUDO);
+	}
+
+	@Override
+	public long getMissingEmptyCount() {
+		return getMissingCount(MissingType.EMPTY);
+	}
+
+	@Override
+	public long getMissingPlaceholderCount() {
+		return getMissingCount(MissingType.PLACEHOLDER);
+	}
+
+	@Override
+	public long getCacheHitCount() {
+		return cacheHits.sum();
+	}
+
+	@Override
+	public long getPseudoCount() {
+		return pseudo.sum();
+	}
+
+	@Override
+	public long getPseudoCharCount() {
+		return pseudoChars.sum();
+	}
+
+	@Override
+	public long getProviderCallCount() {
+		return providerCalls.sum();
+	}
+
+	@Override
+	public long getProviderTimeNanos() {
+		return providerNanos.sum();
+	}
+
+	@Override
+	public long[] getProviderLatencyHistogram() {
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = latency[i].sum();
+		}
+		return counts;
+	}
+
+	/**
+	 * Return an upper bound for the given percentile of the latency of the
+	 * calls to the string provider. The result is the upper bound of the
+	 * histogram bucket that the percentile falls in, so it is at most
+	 * twice the actual value.
+	 *
+	 * @param percentile the percentile to return, from 0 to 100
+	 * @return the latency in nanoseconds, or 0 if there were no calls
+	 */
+	public long getProviderLatencyPercentile(double percentile) {
+		long[] counts = getProviderLatencyHistogram();
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long target = Math.max(1, (long)Math.ceil(total * percentile / 100.0));
+		long cumulative = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			cumulative += counts[i];
+			if (cumulative >= target) {
+				return getBucketUpperBound(i);
+			}
+		}
+		return getBucketUpperBound(BUCKETS - 1);
+	}
+
+	@Override
+	public long getProviderLatencyP50Nanos() {
+		return getProviderLatencyPercentile(50);
+	}
+
+	@Override
+	public long getProviderLatencyP99Nanos() {
+		return getProviderLatencyPercentile(99);
+	}
+
+	@Override
+	public void reset() {
+		found.reset();
+		for (LongAdder adder : missing) {
+			adder.reset();
+		}
+		cacheHits.reset();
+		pseudo.reset();
+		pseudoChars.reset();
+		providerCalls.reset();
+		providerNanos.reset();
+		for (LongAdder adder : latency) {
+			adder.reset();
+		}
+	}
+
+	/**
+	 * Register this collector as an MBean with the platform MBean server. The
+	 * object name is com.healthtap:type=IResourceBundle,name=&lt;name&gt;,locale=&lt;locale&gt;.
+	 *
+	 * @param name a name for the bundle, such as the name of its R class
+	 * @param locale the locale of the bundle
+	 * @return the object name this collector was registered under
+	 * @throws JMException if the collector could not be registered, for
+	 * example because another MBean already has the same name
+	 */
+	public synchronized ObjectName registerMBean(String name, Locale locale) throws JMException {
+		if (objectName != null) {
+			throw new IllegalStateException("MetricsCollector: already registered as " + objectName);
+		}
+		ObjectName on = new ObjectName("com.healthtap:type=IResourceBundle,name=" + ObjectName.quote(name) +
+			",locale=" + ObjectName.quote(locale.toLanguageTag()));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+		objectName = on;
+		return on;
+	}
+
+	/**
+	 * Unregister this collector from the platform MBean server, if it was
+	 * registered.
+	 *
+	 * @throws JMException if the collector could not be unregistered
+	 */
+	public synchronized void unregisterMBean() throws JMException {
+		ObjectName on = objectName;
+		if (on != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(on)) {
+				server.unregisterMBean(on);
+			}
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Return the object name that this collector is registered under, or
+	 * null if it is not registered.
+	 *
+	 * @return the object name of this collector, or null
+	 */
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+}
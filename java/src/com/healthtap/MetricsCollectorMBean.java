@@ -0,0 +1,72 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+/**
+ * The attributes and operations of a {@link MetricsCollector} that are
+ * visible through JMX.
+ *
+ * @author edwinhoogerbeets
+ */
+public interface MetricsCollectorMBean {
+	/** @return the number of lookups that found a translation */
+	public long getFoundCount();
+
+	/** @return the number of lookups that did not find a translation */
+	public long getMissingCount();
+
+	/** @return the number of missing translations that returned the source string */
+	public long getMissingSourceCount();
+
+	/** @return the number of missing translations that returned a pseudo-localized string */
+	public long getMissingPseudoCount();
+
+	/** @return the number of missing translations that returned an empty string */
+	public long getMissingEmptyCount();
+
+	/** @return the number of missing translations that returned a placeholder */
+	public long getMissingPlaceholderCount();
+
+	/** @return the number of lookups answered by the result cache */
+	public long getCacheHitCount();
+
+	/** @return the number of strings that were pseudo-localized */
+	public long getPseudoCount();
+
+	/** @return the total number of source characters that were pseudo-localized */
+	public long getPseudoCharCount();
+
+	/** @return the number of calls to the string provider */
+	public long getProviderCallCount();
+
+	/** @return the total time spent in the string provider in nanoseconds */
+	public long getProviderTimeNanos();
+
+	/** @return the median latency of calls to the string provider in nanoseconds */
+	public long getProviderLatencyP50Nanos();
+
+	/** @return the 99th percentile latency of calls to the string provider in nanoseconds */
+	public long getProviderLatencyP99Nanos();
+
+	/** @return the number of provider calls in each latency bucket */
+	public long[] getProviderLatencyHistogram();
+
+	/**
+	 * Set all of the counters back to zero.
+	 */
+	public void reset();
+}
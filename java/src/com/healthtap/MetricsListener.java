@@ -0,0 +1,76 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import com.healthtap.IResourceBundle.MissingType;
+
+/**
+ * A listener that an IResourceBundle tells about each of the lookups it
+ * does, so that they can be counted and timed. Install one with
+ * {@link IResourceBundle#setMetricsListener(MetricsListener)}. When no
+ * listener is installed, the bundle does not even read the clock.<p>
+ *
+ * The methods are called on whichever thread is doing the lookup, often
+ * many threads at once, so they must be thread-safe and they should
+ * return quickly. All of the methods do nothing by default, so a listener
+ * only needs to override the ones it is interested in. See
+ * {@link MetricsCollector} for a listener that counts everything.
+ *
+ * @author edwinhoogerbeets
+ */
+public interface MetricsListener {
+	/**
+	 * Called when a translation was found in the string provider.
+	 *
+	 * @param bundle the bundle that did the lookup
+	 */
+	public default void translationFound(IResourceBundle bundle) {}
+
+	/**
+	 * Called when there is no translation in the string provider, so the
+	 * missing string strategy of the bundle was used instead.
+	 *
+	 * @param bundle the bundle that did the lookup
+	 * @param strategy the missing string strategy that was used
+	 */
+	public default void translationMissing(IResourceBundle bundle, MissingType strategy) {}
+
+	/**
+	 * Called when the result of a lookup came from the result cache of the
+	 * bundle without looking it up again.
+	 *
+	 * @param bundle the bundle that did the lookup
+	 */
+	public default void cacheHit(IResourceBundle bundle) {}
+
+	/**
+	 * Called when a string was pseudo-localized.
+	 *
+	 * @param bundle the bundle that did the pseudo-localization
+	 * @param length the length of the source string
+	 */
+	public default void pseudoLocalized(IResourceBundle bundle, int length) {}
+
+	/**
+	 * Called after each call to the string provider of the bundle.
+	 *
+	 * @param bundle the bundle that called the provider
+	 * @param strings the number of strings asked for in the call
+	 * @param nanos how long the call took in nanoseconds
+	 */
+	public default void providerCalled(IResourceBundle bundle, int strings, long nanos) {}
+}
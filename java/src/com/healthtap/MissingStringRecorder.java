@@ -0,0 +1,455 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the source strings and keys that an IResourceBundle could not
+ * find a translation for, so that they can be fed back into the loctool.
+ * Install one in a bundle with
+ * {@link IResourceBundle#setMissingStringRecorder(MissingStringRecorder)}.<p>
+ *
+ * Recording a missing string never blocks and never does any I/O. Each
+ * distinct combination of locale, source string and key is stored once in
+ * a fixed-size lock-free hash table, so the memory used is bounded by the
+ * maximum number of entries given to the constructor. Once the table is
+ * full, new strings are dropped and counted instead of being stored.<p>
+ *
+ * A background daemon thread periodically writes all of the entries
+ * recorded so far to an XLIFF 1.2 file, with one &lt;file&gt; element per
+ * target locale, which the loctool can read like any other xliff file.
+ * The file is only rewritten when there are new entries, and it is
+ * replaced atomically where the file system allows it, so a reader
+ * never sees a partly written file.
+ *
+ * @author edwinhoogerbeets
+ */
+public class MissingStringRecorder implements Closeable {
+	/** The default maximum number of distinct missing strings to keep. */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	/** The default time between writes of the xliff file, in milliseconds. */
+	public static final long DEFAULT_FLUSH_INTERVAL = 10000L;
+
+	private static final String SOURCE_LOCALE = "en-US";
+
+	/**
+	 * One missing string.
+	 */
+	private static final class Entry {
+		final Locale locale;
+		final String source;
+		final String key;
+		final int hash;
+
+		Entry(Locale locale, String source, String key, int hash) {
+			this.locale = locale;
+			this.source = source;
+			this.key = key;
+			this.hash = hash;
+		}
+
+		boolean matches(int hash, Locale locale, String source, String key) {
+			return this.hash == hash && this.locale.equals(locale) &&
+				(this.source == null ? source == null : this.source.equals(source)) &&
+				(this.key == null ? key == null : this.key.equals(key));
+		}
+	}
+
+	private final File file;
+	private final String project;
+	private final int maxEntries;
+	private final AtomicReferenceArray<Entry> table;
+	private final int mask;
+	private final AtomicInteger size = new AtomicInteger();
+	private final AtomicLong version = new AtomicLong();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder invalid = new LongAdder();
+	private final AtomicLong flushes = new AtomicLong();
+	private final AtomicLong flushFailures = new AtomicLong();
+	private final ScheduledExecutorService executor;
+	private long flushedVersion = 0;
+
+	/**
+	 * Construct a new recorder that writes to the given file with the
+	 * default maximum number of entries and the default flush interval.
+	 *
+	 * @param file the xliff file to write the missing strings to
+	 * @param project the name of the project, which is written as the
+	 * product-name of each &lt;file&gt; element
+	 */
+	public MissingStringRecorder(File file, String project) {
+		this(file, project, DEFAULT_MAX_ENTRIES, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Construct a new recorder that writes to the given file.
+	 *
+	 * @param file the xliff file to write the missing strings to
+	 * @param project the name of the project, which is written as the
+	 * product-name of each &lt;file&gt; element
+	 * @param maxEntries the maximum number of distinct missing strings to keep
+	 * @param flushInterval the time between writes of the file in milliseconds,
+	 * or 0 to only write the file when {@link #flush()} or {@link #close()}
+	 * is called
+	 * @throws IllegalArgumentException if the file is null, maxEntries is
+	 * not positive or flushInterval is negative
+	 */
+	public MissingStringRecorder(File file, String project, int maxEntries, long flushInterval) {
+		if (file == null) {
+			throw new IllegalArgumentException("MissingStringRecorder: file must not be null");
+		}
+		if (maxEntries <= 0 || maxEntries > (1 << 28)) {
+			throw new IllegalArgumentException("MissingStringRecorder: maxEntries must be between 1 and 2^28");
+		}
+		if (flushInterval < 0) {
+			throw new IllegalArgumentException("MissingStringRecorder: flushInterval must not be negative");
+		}
+
+		this.file = file;
+		this.project = project;
+		this.maxEntries = maxEntries;
+
+		// keep the table at most half full so that probe sequences stay short
+		int capacity = Integer.highestOneBit(maxEntries) << 2;
+		this.table = new AtomicReferenceArray<Entry>(capacity);
+		this.mask = capacity - 1;
+
+		if (flushInterval > 0) {
+			executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "MissingStringRecorder");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			executor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						flush();
+					} catch (IOException e) {
+						// already counted in flushFailures, so try again next time
+					}
+				}
+			}, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+		} else {
+			executor = null;
+		}
+	}
+
+	private static int hash(Locale locale, String source, String key) {
+		int h = locale.hashCode();
+		h = 31 * h + (source == null ? 0 : source.hashCode());
+		h = 31 * h + (key == null ? 0 : key.hashCode());
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Record that there is no translation for the given source string and
+	 * key in the given locale. If the same combination was recorded before,
+	 * this does nothing. If the recorder is full, the string is dropped and
+	 * counted in {@link #getDroppedCount()}.
+	 *
+	 * @param locale the locale that has no translation
+	 * @param source the source string, or null if only the key is known
+	 * @param key the unique key of the string, or null if only the source
+	 * string is known
+	 */
+	public void record(Locale locale, String source, String key) {
+		if (locale == null || (source == null && key == null)) {
+			return;
+		}
+
+		int h = hash(locale, source, key);
+		Entry entry = null;
+		for (int i = h & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+			Entry current = table.get(i);
+			if (current == null) {
+				if (size.incrementAndGet() > maxEntries) {
+					size.decrementAndGet();
+					dropped.increment();
+					return;
+				}
+				if (entry == null) {
+					entry = new Entry(locale, source, key, h);
+				}
+				if (table.compareAndSet(i, null, entry)) {
+					version.incrementAndGet();
+					return;
+				}
+				// another thread took this slot first, so see if it is the same string
+				size.decrementAndGet();
+				current = table.get(i);
+			}
+			if (current.matches(h, locale, source, key)) {
+				return;
+			}
+		}
+		dropped.increment();
+	}
+
+	/**
+	 * Record a lookup that had neither a source string nor a key.
+	 */
+	public void recordInvalid() {
+		invalid.increment();
+	}
+
+	/**
+	 * Return the number of distinct missing strings recorded so far.
+	 *
+	 * @return the number of missing strings
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Return the maximum number of distinct missing strings that this
+	 * recorder keeps.
+	 *
+	 * @return the maximum number of entries
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Return the number of missing strings that were not recorded because
+	 * the recorder was full.
+	 *
+	 * @return the number of dropped strings
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Return the number of lookups that had neither a source string nor
+	 * a key.
+	 *
+	 * @return the number of invalid lookups
+	 */
+	public long getInvalidCount() {
+		return invalid.sum();
+	}
+
+	/**
+	 * Return the number of times the xliff file was written.
+	 *
+	 * @return the number of successful flushes
+	 */
+	public long getFlushCount() {
+		return flushes.get();
+	}
+
+	/**
+	 * Return the number of times writing the xliff file failed.
+	 *
+	 * @return the number of failed flushes
+	 */
+	public long getFlushFailureCount() {
+		return flushFailures.get();
+	}
+
+	/**
+	 * Return the file that this recorder writes to.
+	 *
+	 * @return the xliff file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Write all of the missing strings recorded so far to the xliff file
+	 * now, if there are any that were not written before. This is called
+	 * periodically on the background thread, so it is only necessary to
+	 * call it directly to make sure that the file is up to date.
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	public synchronized void flush() throws IOException {
+		long v = version.get();
+		if (v == flushedVersion) {
+			return;
+		}
+
+		try {
+			write(snapshot());
+			flushedVersion = v;
+			flushes.incrementAndGet();
+		} catch (IOException e) {
+			flushFailures.incrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Stop the background thread and write the xliff file one last time.
+	 *
+	 * @throws IOException if the file could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		flush();
+	}
+
+	private List<Entry> snapshot() {
+		List<Entry> entries = new ArrayList<Entry>(size.get());
+		for (int i = 0; i < table.length(); i++) {
+			Entry entry = table.get(i);
+			if (entry != null) {
+				entries.add(entry);
+			}
+		}
+		Collections.sort(entries, new Comparator<Entry>() {
+			@Override
+			public int compare(Entry left, Entry right) {
+				int c = left.locale.toLanguageTag().compareTo(right.locale.toLanguageTag());
+				if (c == 0) c = compareNullable(left.key, right.key);
+				if (c == 0) c = compareNullable(left.source, right.source);
+				return c;
+			}
+		});
+		return entries;
+	}
+
+	private static int compareNullable(String left, String right) {
+		if (left == null) return right == null ? 0 : -1;
+		if (right == null) return 1;
+		return left.compareTo(right);
+	}
+
+	private void write(List<Entry> entries) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8));
+			try {
+				writeXliff(entries, out);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private void writeXliff(List<Entry> entries, Writer out) throws IOException {
+		out.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+		out.write("<xliff version=\"1.2\">\n");
+
+		String current = null;
+		int id = 1;
+		for (Entry entry : entries) {
+			String tag = entry.locale.toLanguageTag();
+			if (!tag.equals(current)) {
+				if (current != null) {
+					out.write("    </body>\n  </file>\n");
+				}
+				current = tag;
+				out.write("  <file original=\"missing\" source-language=\"" + SOURCE_LOCALE + "\" target-language=\"");
+				writeEscaped(tag, out);
+				out.write("\"");
+				if (project != null) {
+					out.write(" product-name=\"");
+					writeEscaped(project, out);
+					out.write("\"");
+				}
+				out.write(">\n    <body>\n");
+			}
+
+			out.write("      <trans-unit id=\"" + (id++) + "\"");
+			if (entry.key != null) {
+				out.write(" resname=\"");
+				writeEscaped(entry.key, out);
+				out.write("\"");
+			}
+			out.write(" restype=\"string\" datatype=\"java\">\n        <source>");
+			if (entry.source != null) {
+				writeEscaped(entry.source, out);
+			}
+			out.write("</source>\n      </trans-unit>\n");
+		}
+		if (current != null) {
+			out.write("    </body>\n  </file>\n");
+		}
+		out.write("</xliff>\n");
+	}
+
+	private static void writeEscaped(String str, Writer out) throws IOException {
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+				case '&':
+					out.write("&amp;");
+					break;
+				case '<':
+					out.write("&lt;");
+					break;
+				case '>':
+					out.write("&gt;");
+					break;
+				case '"':
+					out.write("&quot;");
+					break;
+				default:
+					if (c < 0x20 && c != '\n' && c != '\t' && c != '\r') {
+						// not allowed in xml 1.0 at all
+						out.write('\uFFFD');
+					} else {
+						out.write(c);
+					}
+					break;
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+/**
+ * The plural categories of the Unicode CLDR. The ordinal of each category
+ * is its index in the arrays of plural variants returned by
+ * {@link IStringProvider#getPlurals(int)}.
+ *
+ * @author edwinhoogerbeets
+ */
+public enum PluralCategory {
+	ZERO, ONE, TWO, FEW, MANY, OTHER;
+
+	/**
+	 * @return the name of this category as used in the CLDR data and in
+	 * Android plurals resources, such as "one"
+	 */
+	public String getName() {
+		return name().toLowerCase();
+	}
+
+	/**
+	 * Return the category with the given CLDR name.
+	 *
+	 * @param name the name of the category, such as "few"
+	 * @return the category, or null if there is no category with that name
+	 */
+	public static PluralCategory forName(String name) {
+		for (PluralCategory c : values()) {
+			if (c.getName().equals(name)) {
+				return c;
+			}
+		}
+		return null;
+	}
+}
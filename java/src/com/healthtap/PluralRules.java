@@ -0,0 +1,328 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The Unicode CLDR plural rules for integer counts, for every locale in
+ * the loctool's db/pluralCategories.json.<p>
+ *
+ * The rules are written out as plain Java arithmetic and comparisons
+ * rather than parsed from the CLDR rule syntax and interpreted, so
+ * choosing the category for a count is a switch and a few branches. Many
+ * locales share the same rule, so there is one case per distinct rule
+ * and a table that maps each language to its rule.<p>
+ *
+ * Only integer counts are supported. Categories that the CLDR only uses
+ * for decimal numbers, such as "many" in Czech, are listed by
+ * {@link #getCategories()} but never returned by {@link #select(long)}.<p>
+ *
+ * Instances are immutable and thread-safe.
+ *
+ * @author edwinhoogerbeets
+ */
+public final class PluralRules {
+	private static final int ZERO = 0;
+	private static final int ONE = 1;
+	private static final int TWO = 2;
+	private static final int FEW = 3;
+	private static final int MANY = 4;
+	private static final int OTHER = 5;
+
+	// the distinct rules for integers
+	private static final int RULE_OTHER = 0;		// ja, zh...
+	private static final int RULE_ONE = 1;			// n = 1
+	private static final int RULE_ZERO_ONE = 2;		// n = 0,1
+	private static final int RULE_TZM = 3;			// n = 0..1 or n = 11..99
+	private static final int RULE_ICELANDIC = 4;	// i % 10 = 1 and i % 100 != 11
+	private static final int RULE_FILIPINO = 5;		// i % 10 != 4,6,9
+	private static final int RULE_ARABIC = 6;
+	private static final int RULE_WELSH = 7;
+	private static final int RULE_CORNISH = 8;
+	private static final int RULE_RUSSIAN = 9;
+	private static final int RULE_POLISH = 10;
+	private static final int RULE_CZECH = 11;
+	private static final int RULE_LITHUANIAN = 12;
+	private static final int RULE_BRETON = 13;
+	private static final int RULE_IRISH = 14;
+	private static final int RULE_MANX = 15;
+	private static final int RULE_MALTESE = 16;
+	private static final int RULE_BOSNIAN = 17;
+	private static final int RULE_ROMANIAN = 18;
+	private static final int RULE_TACHELHIT = 19;
+	private static final int RULE_CATALAN = 20;		// one, and many for millions
+	private static final int RULE_FRENCH = 21;		// one for 0 and 1, and many for millions
+	private static final int RULE_SLOVENIAN = 22;
+	private static final int RULE_GAELIC = 23;
+	private static final int RULE_ONE_TWO = 24;
+	private static final int RULE_ZERO_ONE_OTHER = 25;
+	private static final int RULE_LATVIAN = 26;
+
+	private static final HashMap<String, PluralRules> byLocale = new HashMap<String, PluralRules>();
+	private static final PluralRules ROOT = new PluralRules(RULE_OTHER, "other");
+
+	private static void add(int rule, String categories, String locales) {
+		PluralRules rules = (rule == RULE_OTHER) ? ROOT : new PluralRules(rule, categories);
+		for (String locale : locales.split(" ")) {
+			byLocale.put(locale, rules);
+		}
+	}
+
+	static {
+		add(RULE_OTHER, "other",
+			"bm bo dz hnj id ig ii ja jbo jv jw kde kea km ko lkt lo ms my nqo osa sah ses sg su th to tpi und vi wo yo yue zh in");
+		add(RULE_ONE, "one other",
+			"af an asa ast az bal bem bez bg brx ce cgg chr ckb da de dv ee el en eo et eu fi fo fur fy gl gsw ha haw hu " +
+			"ia io jgo jmc ka kaj kcg kk kkj kl ks ksb ku ky lb lg lij mas mgo ml mn mr nah nb nd ne nl nn nnh no nr ny " +
+			"nyn om or os pap ps rm rof rwk saq sc scn sd sdh seh sn so sq ss ssy st sv sw syr ta te teo tig tk tn tr ts " +
+			"ug ur uz ve vo vun wae xh xog yi ji");
+		add(RULE_ZERO_ONE, "one other",
+			"ak bho guw ln mg nso pa ti wa am as bn doi fa gu hi kn pcm zu hy ff kab si");
+		add(RULE_TZM, "one other", "tzm");
+		add(RULE_ICELANDIC, "one other", "is mk");
+		add(RULE_FILIPINO, "one other", "ceb fil tl");
+		add(RULE_ARABIC, "zero one two few many other", "ar ars");
+		add(RULE_WELSH, "zero one two few many other", "cy");
+		add(RULE_CORNISH, "zero one two few many other", "kw");
+		add(RULE_RUSSIAN, "one few many other", "be ru uk");
+		add(RULE_POLISH, "one few many other", "pl");
+		add(RULE_CZECH, "one few many other", "cs sk");
+		add(RULE_LITHUANIAN, "one few many other", "lt");
+		add(RULE_BRETON, "one two few many other", "br");
+		add(RULE_IRISH, "one two few many other", "ga");
+		add(RULE_MANX, "one two few many other", "gv");
+		add(RULE_MALTESE, "one two few many other", "mt");
+		add(RULE_BOSNIAN, "one few other", "bs hr sh sr");
+		add(RULE_ROMANIAN, "one few other", "mo ro");
+		add(RULE_TACHELHIT, "one few other", "shi");
+		add(RULE_CATALAN, "one many other", "ca es it pt-PT vec");
+		add(RULE_FRENCH, "one many other", "fr pt");
+		add(RULE_SLOVENIAN, "one two few other", "dsb hsb sl");
+		add(RULE_GAELIC, "one two few other", "gd");
+		add(RULE_ONE_TWO, "one two other", "he iw iu naq sat se sma smi smj smn sms");
+		add(RULE_ZERO_ONE_OTHER, "zero one other", "ksh lag");
+		add(RULE_LATVIAN, "zero one other", "lv prg");
+	}
+
+	private final int rule;
+	private final List<PluralCategory> categories;
+
+	private PluralRules(int rule, String categories) {
+		this.rule = rule;
+		List<PluralCategory> list = new ArrayList<PluralCategory>(6);
+		for (String name : categories.split(" ")) {
+			list.add(PluralCategory.forName(name));
+		}
+		this.categories = Collections.unmodifiableList(list);
+	}
+
+	/**
+	 * Return the plural rules for the given locale. Locales that have no
+	 * rules of their own use the rules of their language, and languages
+	 * that are not known use the root rules, where every count is "other".
+	 *
+	 * @param locale the locale to return the rules for, or null for the
+	 * default locale
+	 * @return the plural rules for the locale
+	 */
+	public static PluralRules forLocale(Locale locale) {
+		Locale l = (locale != null) ? locale : Locale.getDefault();
+		PluralRules rules = null;
+		if (l.getCountry().length() > 0) {
+			rules = byLocale.get(l.getLanguage() + "-" + l.getCountry());
+		}
+		if (rules == null) {
+			rules = byLocale.get(l.getLanguage());
+		}
+		return (rules != null) ? rules : ROOT;
+	}
+
+	/**
+	 * @return the categories that the CLDR defines for this locale, in
+	 * the order zero, one, two, few, many, other
+	 */
+	public List<PluralCategory> getCategories() {
+		return categories;
+	}
+
+	/**
+	 * Return the category for the given count.
+	 *
+	 * @param count the count
+	 * @return the plural category of the count
+	 */
+	public PluralCategory getCategory(long count) {
+		return PluralCategory.values()[select(count)];
+	}
+
+	/**
+	 * Return the ordinal of the {@link PluralCategory} for the given count,
+	 * which is the index of the variant to use in an array of plural
+	 * variants. Negative counts use the category of their absolute value.
+	 *
+	 * @param count the count
+	 * @return the ordinal of the plural category of the count
+	 */
+	public int select(long count) {
+		long n = (count < 0) ? -count : count;
+		long n10 = n % 10;
+		long n100 = n % 100;
+
+		switch (rule) {
+			case RULE_ONE:
+				return (n == 1) ? ONE : OTHER;
+
+			case RULE_ZERO_ONE:
+				return (n <= 1) ? ONE : OTHER;
+
+			case RULE_TZM:
+				return (n <= 1 || (n >= 11 && n <= 99)) ? ONE : OTHER;
+
+			case RULE_ICELANDIC:
+				return (n10 == 1 && n100 != 11) ? ONE : OTHER;
+
+			case RULE_FILIPINO:
+				return (n10 != 4 && n10 != 6 && n10 != 9) ? ONE : OTHER;
+
+			case RULE_ARABIC:
+				if (n <= 2) return (int)n;	// zero, one, two
+				if (n100 >= 3 && n100 <= 10) return FEW;
+				if (n100 >= 11) return MANY;
+				return OTHER;
+
+			case RULE_WELSH:
+				if (n <= 3) return (n == 3) ? FEW : (int)n;
+				return (n == 6) ? MANY : OTHER;
+
+			case RULE_CORNISH:
+				if (n <= 1) return (int)n;	// zero, one
+				if (n100 == 2 || n100 == 22 || n100 == 42 || n100 == 62 || n100 == 82) return TWO;
+				if (n % 1000 == 0) {
+					long n100000 = n % 100000;
+					if ((n100000 >= 1000 && n100000 <= 20000) || n100000 == 40000 || n100000 == 60000 || n100000 == 80000) return TWO;
+				}
+				if (n % 1000000 == 100000) return TWO;
+				if (n100 == 3 || n100 == 23 || n100 == 43 || n100 == 63 || n100 == 83) return FEW;
+				if (n100 == 1 || n100 == 21 || n100 == 41 || n100 == 61 || n100 == 81) return MANY;
+				return OTHER;
+
+			case RULE_RUSSIAN:
+				if (n10 == 1 && n100 != 11) return ONE;
+				if (n10 >= 2 && n10 <= 4 && (n100 < 12 || n100 > 14)) return FEW;
+				return MANY;
+
+			case RULE_POLISH:
+				if (n == 1) return ONE;
+				if (n10 >= 2 && n10 <= 4 && (n100 < 12 || n100 > 14)) return FEW;
+				return MANY;
+
+			case RULE_CZECH:
+				if (n == 1) return ONE;
+				return (n >= 2 && n <= 4) ? FEW : OTHER;
+
+			case RULE_LITHUANIAN:
+				if (n100 >= 11 && n100 <= 19) return OTHER;
+				if (n10 == 1) return ONE;
+				return (n10 >= 2) ? FEW : OTHER;
+
+			case RULE_BRETON:
+				if (n10 == 1 && n100 != 11 && n100 != 71 && n100 != 91) return ONE;
+				if (n10 == 2 && n100 != 12 && n100 != 72 && n100 != 92) return TWO;
+				if ((n10 == 3 || n10 == 4 || n10 == 9) &&
+						!(n100 >= 10 && n100 <= 19) && !(n100 >= 70 && n100 <= 79) && !(n100 >= 90)) return FEW;
+				if (n != 0 && n % 1000000 == 0) return MANY;
+				return OTHER;
+
+			case RULE_IRISH:
+				if (n == 1) return ONE;
+				if (n == 2) return TWO;
+				if (n >= 3 && n <= 6) return FEW;
+				if (n >= 7 && n <= 10) return MANY;
+				return OTHER;
+
+			case RULE_MANX:
+				if (n10 == 1) return ONE;
+				if (n10 == 2) return TWO;
+				if (n100 == 0 || n100 == 20 || n100 == 40 || n100 == 60 || n100 == 80) return FEW;
+				return OTHER;
+
+			case RULE_MALTESE:
+				if (n == 1) return ONE;
+				if (n == 2) return TWO;
+				if (n == 0 || (n100 >= 3 && n100 <= 10)) return FEW;
+				if (n100 >= 11 && n100 <= 19) return MANY;
+				return OTHER;
+
+			case RULE_BOSNIAN:
+				if (n10 == 1 && n100 != 11) return ONE;
+				if (n10 >= 2 && n10 <= 4 && (n100 < 12 || n100 > 14)) return FEW;
+				return OTHER;
+
+			case RULE_ROMANIAN:
+				if (n == 1) return ONE;
+				if (n == 0 || (n100 >= 1 && n100 <= 19)) return FEW;
+				return OTHER;
+
+			case RULE_TACHELHIT:
+				if (n <= 1) return ONE;
+				return (n <= 10) ? FEW : OTHER;
+
+			case RULE_CATALAN:
+				if (n == 1) return ONE;
+				return (n != 0 && n % 1000000 == 0) ? MANY : OTHER;
+
+			case RULE_FRENCH:
+				if (n <= 1) return ONE;
+				return (n % 1000000 == 0) ? MANY : OTHER;
+
+			case RULE_SLOVENIAN:
+				if (n100 == 1) return ONE;
+				if (n100 == 2) return TWO;
+				return (n100 == 3 || n100 == 4) ? FEW : OTHER;
+
+			case RULE_GAELIC:
+				if (n == 1 || n == 11) return ONE;
+				if (n == 2 || n == 12) return TWO;
+				return (n >= 3 && n <= 19) ? FEW : OTHER;
+
+			case RULE_ONE_TWO:
+				if (n == 1) return ONE;
+				return (n == 2) ? TWO : OTHER;
+
+			case RULE_ZERO_ONE_OTHER:
+				return (n <= 1) ? (int)n : OTHER;
+
+			case RULE_LATVIAN:
+				if (n10 == 0 || (n100 >= 11 && n100 <= 19)) return ZERO;
+				return (n10 == 1) ? ONE : OTHER;
+
+			case RULE_OTHER:
+			default:
+				return OTHER;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PluralRules" + categories;
+	}
+}
@@ -0,0 +1,358 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable table that maps characters to the pseudo-localized strings
+ * that replace them. The table is an array indexed directly by the
+ * character, so mapping a character does not allocate anything or probe
+ * a map. There is one shared table for each of the scripts that
+ * pseudo-localization supports.<p>
+ *
+ * Each table also caches the strings that were pseudo-localized with it,
+ * separately for each kind of output type and for lengthened and
+ * unlengthened output, so that a source string is only transformed once
+ * no matter how many bundles for the script ask for it.
+ *
+ * @author edwinhoogerbeets
+ */
+public final class PseudoTable {
+	private static final String[][] pseudoCyrl = {
+		{"a", "а"},
+		{"b", "б"},
+		{"c", "ч"},
+		{"d", "д"},
+		{"e", "э"},
+		{"f", "ф"},
+		{"g", "г"},
+		{"h", "х"},
+		{"i", "и"},
+		{"j", "ж"},
+		{"k", "к"},
+		{"l", "л"},
+		{"m", "м"},
+		{"n", "н"},
+		{"o", "о"},
+		{"p", "п"},
+		{"q", "ку"},
+		{"r", "р"},
+		{"s", "с"},
+		{"t", "т"},
+		{"u", "у"},
+		{"v", "в"},
+		{"x", "кс"},
+		{"y", "я"},
+		{"z", "з"},
+		{"A", "А"},
+		{"B", "Б"},
+		{"C", "Ч"},
+		{"D", "Д"},
+		{"E", "Э"},
+		{"F", "Ф"},
+		{"G", "Г"},
+		{"H", "Х"},
+		{"I", "И"},
+		{"J", "Ж"},
+		{"K", "К"},
+		{"L", "Л"},
+		{"M", "М"},
+		{"N", "Н"},
+		{"O", "О"},
+		{"P", "П"},
+		{"Q", "КУ"},
+		{"R", "Р"},
+		{"S", "С"},
+		{"T", "Т"},
+		{"U", "У"},
+		{"V", "В"},
+		{"X", "КС"},
+		{"Y", "Я"},
+		{"Z", "З"}
+	};
+	private static final String[][] pseudoHans = {
+		{"a", "阿"},
+		{"b", "不"},
+		{"c", "可"},
+		{"d", "的"},
+		{"e", "俄"},
+		{"f", "凡"},
+		{"g", "个"},
+		{"h", "和"},
+		{"i", "意"},
+		{"j", "中"},
+		{"k", "可"},
+		{"l", "了"},
+		{"m", "们"},
+		{"n", "尼"},
+		{"o", "夥"},
+		{"p", "琶"},
+		{"q", "氣"},
+		{"r", "熱"},
+		{"s", "思"},
+		{"t", "推"},
+		{"u", "思"},
+		{"v", "於"},
+		{"x", "相"},
+		{"y", "謝"},
+		{"z", "子"},
+		{"A", "阿"},
+		{"B", "不"},
+		{"C", "可"},
+		{"D", "的"},
+		{"E", "俄"},
+		{"F", "凡"},
+		{"G", "个"},
+		{"H", "和"},
+		{"I", "意"},
+		{"J", "中"},
+		{"K", "可"},
+		{"L", "了"},
+		{"M", "们"},
+		{"N", "尼"},
+		{"O", "夥"},
+		{"P", "琶"},
+		{"Q", "氣"},
+		{"R", "熱"},
+		{"S", "思"},
+		{"T", "推"},
+		{"U", "思"},
+		{"V", "於"},
+		{"X", "相"},
+		{"Y", "謝"},
+		{"Z", "子"}	
+	};
+	
+	private static final String[][] pseudoHebr = {
+		{"a", "ַ"},
+		{"b", "בּ"},
+		{"c", "ק"},
+		{"d", "ד"},
+		{"e", "ֶ"},
+		{"f", "פ"},
+		{"g", "ג"},
+		{"h", "ה"},
+		{"i", "ִ"},
+		{"j", "ג׳"},
+		{"k", "כ"},
+		{"l", "ל"},
+		{"m", "מ"},
+		{"n", "נ"},
+		{"o", "ֹ"},
+		{"p", "פ"},
+		{"q", "ק"},
+		{"r", "ר"},
+		{"s", "ס"},
+		{"t", "ט"},
+		{"u", "ֻ"},
+		{"v", "ב"},
+		{"w", "ו"},
+		{"x", "שׂק"},
+		{"y", "י"},
+		{"z", "ז"},
+		{"A", "ַ"},
+		{"B", "בּ"},
+		{"C", "ק"},
+		{"D", "דּ"},
+		{"E", "ֶ"},
+		{"F", "פ"},
+		{"G", "ג"},
+		{"H", "ה"},
+		{"I", "ִ"},
+		{"J", "ג׳"},
+		{"K", "כ"},
+		{"L", "ל"},
+		{"M", "מ"},
+		{"N", "נ"},
+		{"O", "ֹ"},
+		{"P", "פ"},
+		{"Q", "ק"},
+		{"R", "ר"},
+		{"S", "ס"},
+		{"T", "ט"},
+		{"U", "ֻ"},
+		{"V", "ב"},
+		{"W", "ו"},
+		{"X", "שׂק"},
+		{"Y", "י"},
+		{"Z", "ז"}
+	};
+
+	private static final String[][] pseudoLatn = {
+		{"a", "à"},
+		{"c", "ç"},
+		{"d", "ð"},
+		{"e", "ë"},
+		{"g", "ğ"},
+		{"h", "ĥ"},
+		{"i", "í"},
+		{"j", "ĵ"},
+		{"k", "ķ"},
+		{"l", "ľ"},
+		{"n", "ñ"},
+		{"o", "õ"},
+		{"p", "þ"},
+		{"r", "ŕ"},
+		{"s", "š"},
+		{"t", "ţ"},
+		{"u", "ü"},
+		{"w", "ŵ"},
+		{"y", "ÿ"},
+		{"z", "ž"},
+		{"A", "Ã"},
+		{"B", "ß"},
+		{"C", "Ç"},
+		{"D", "Ð"},
+		{"E", "Ë"},
+		{"G", "Ĝ"},
+		{"H", "Ħ"},
+		{"I", "Ï"},
+		{"J", "Ĵ"},
+		{"K", "ĸ"},
+		{"L", "Ľ"},
+		{"N", "Ň"},
+		{"O", "Ø"},
+		{"R", "Ŗ"},
+		{"S", "Š"},
+		{"T", "Ť"},
+		{"U", "Ú"},
+		{"W", "Ŵ"},
+		{"Y", "Ŷ"},
+		{"Z", "Ż"}	
+	};
+
+	/** The table for the Latin script. This is used for any script that has no table of its own. */
+	public static final PseudoTable LATN = new PseudoTable(pseudoLatn);
+	/** The table for the Cyrillic script. */
+	public static final PseudoTable CYRL = new PseudoTable(pseudoCyrl);
+	/** The table for the Simplified Han script. */
+	public static final PseudoTable HANS = new PseudoTable(pseudoHans);
+	/** The table for the Hebrew script. */
+	public static final PseudoTable HEBR = new PseudoTable(pseudoHebr);
+
+	/**
+	 * The maximum number of pseudo-localized results to cache for each
+	 * variant. When a cache is full it is emptied.
+	 */
+	private static final int MAX_RESULTS = 4096;
+
+	/** The number of variants of the results of pseudo-localization that are cached separately. */
+	static final int VARIANTS = 8;
+
+	private final String[] replacements;
+	private final List<ConcurrentHashMap<String, String>> results;
+
+	private PseudoTable(String[][] pseudo) {
+		results = new ArrayList<ConcurrentHashMap<String, String>>(VARIANTS);
+		for (int i = 0; i < VARIANTS; i++) {
+			results.add(new ConcurrentHashMap<String, String>());
+		}
+
+		char max = 0;
+		for (int i = 0; i < pseudo.length; i++) {
+			char c = pseudo[i][0].charAt(0);
+			if (c > max) max = c;
+		}
+		replacements = new String[max + 1];
+		for (int i = 0; i < pseudo.length; i++) {
+			replacements[pseudo[i][0].charAt(0)] = pseudo[i][1];
+		}
+	}
+
+	/**
+	 * Return the table to use for the given ISO 15924 script code.
+	 *
+	 * @param script the script code, such as "Cyrl"
+	 * @return the table for that script, or the Latin table if the
+	 * script does not have a table of its own
+	 */
+	public static PseudoTable forScript(String script) {
+		if (script != null) {
+			switch (script) {
+				case "Cyrl":
+					return CYRL;
+				case "Hans":
+					return HANS;
+				case "Hebr":
+					return HEBR;
+				default:
+					break;
+			}
+		}
+		return LATN;
+	}
+
+	/**
+	 * Return the replacement for the given character, or null if the
+	 * character is not replaced.
+	 *
+	 * @param c the character to look up
+	 * @return the replacement string, or null
+	 */
+	public String get(char c) {
+		return c < replacements.length ? replacements[c] : null;
+	}
+
+	/**
+	 * Append the pseudo-localized form of the given character to the given
+	 * builder. Characters that are not in the table are appended as-is.
+	 *
+	 * @param sb the builder to append to
+	 * @param c the character to pseudo-localize
+	 */
+	public void append(StringBuilder sb, char c) {
+		String replacement = c < replacements.length ? replacements[c] : null;
+		if (replacement != null) {
+			sb.append(replacement);
+		} else {
+			sb.append(c);
+		}
+	}
+
+	/**
+	 * Return the cached result of pseudo-localizing the given source string
+	 * with this table, or null if it is not cached.
+	 *
+	 * @param variant which variant of the output, as worked out by the
+	 * bundle from its output type and whether it lengthens strings, from
+	 * 0 to VARIANTS - 1
+	 * @param source the source string
+	 * @return the cached result, or null
+	 */
+	String getResult(int variant, String source) {
+		return results.get(variant).get(source);
+	}
+
+	/**
+	 * Cache the result of pseudo-localizing the given source string with
+	 * this table.
+	 *
+	 * @param variant which variant of the output, from 0 to VARIANTS - 1
+	 * @param source the source string
+	 * @param result the pseudo-localized string
+	 */
+	void putResult(int variant, String source, String result) {
+		ConcurrentHashMap<String, String> map = results.get(variant);
+		if (map.size() >= MAX_RESULTS) {
+			map.clear();
+		}
+		map.put(source, result);
+	}
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.healthtap.IResourceBundle.MissingType;
+
+/**
+ * A bounded cache of the final results of IResourceBundle.getString.
+ * Results are keyed by the source string, the unique key, the output
+ * type, the missing string strategy and the lengthen option, so that
+ * one cache gives correct results no matter how the bundle is
+ * configured. They can also be keyed by a scope object that is compared
+ * by identity, which bundles use so that bundles with different string
+ * providers can share one cache. When the cache is full, an entry is
+ * evicted according to the eviction policy given to the constructor.<p>
+ *
+ * The entries of a large cache are spread over a number of segments by
+ * the hash of their key, and each segment has its own lock and its own
+ * share of the maximum size. Threads looking up different strings then
+ * rarely wait for each other, but the eviction policy is applied within
+ * each segment, so the entry that is evicted is the least recently used
+ * or the first added in its segment rather than in the whole cache.
+ * Caches with fewer than {@link #MIN_SEGMENT_SIZE} entries per segment
+ * use fewer segments, so a small cache is a single exact LRU or FIFO.<p>
+ *
+ * All methods are thread-safe.
+ *
+ * @author edwinhoogerbeets
+ */
+public class ResultCache {
+	/**
+	 * The policy to use to pick which entry to evict when the cache is full.
+	 *
+	 * @author edwinhoogerbeets
+	 */
+	public enum EvictionPolicy {
+		/**
+		 * evict the entry that was used least recently.
+		 */
+		LRU,
+
+		/**
+		 * evict the entry that was added first.
+		 */
+		FIFO
+	};
+
+	/**
+	 * The default maximum number of entries in a cache.
+	 */
+	public static final int DEFAULT_SIZE = 4096;
+
+	/**
+	 * The maximum number of segments in a cache.
+	 */
+	public static final int MAX_SEGMENTS = 16;
+
+	/**
+	 * The smallest number of entries a segment is given. Caches too small
+	 * to give each of {@link #MAX_SEGMENTS} segments this many have fewer
+	 * segments.
+	 */
+	public static final int MIN_SEGMENT_SIZE = 64;
+
+	private final int maxSize;
+	private final EvictionPolicy policy;
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * One part of the cache with its own lock and maximum size.
+	 */
+	private final class Segment extends LinkedHashMap<Key, String> {
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, policy == EvictionPolicy.LRU);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+			if (size() > capacity) {
+				evictions.increment();
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The key of a cache entry.
+	 */
+	private static final class Key {
+		private final Object scope;
+		private final String source;
+		private final String key;
+		private final String type;
+		private final MissingType missing;
+		private final boolean lengthen;
+		private final int hash;
+
+		Key(Object scope, String source, String key, String type, MissingType missing, boolean lengthen) {
+			this.scope = scope;
+			this.source = source;
+			this.key = key;
+			this.type = type;
+			this.missing = missing;
+			this.lengthen = lengthen;
+
+			int h = System.identityHashCode(scope);
+			h = h * 31 + ((source != null) ? source.hashCode() : 0);
+			h = h * 31 + ((key != null) ? key.hashCode() : 0);
+			h = h * 31 + type.hashCode();
+			h = h * 31 + missing.ordinal();
+			this.hash = h * 2 + (lengthen ? 1 : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key other = (Key)o;
+			return hash == other.hash &&
+				scope == other.scope &&
+				lengthen == other.lengthen &&
+				missing == other.missing &&
+				type.equals(other.type) &&
+				(source == null ? other.source == null : source.equals(other.source)) &&
+				(key == null ? other.key == null : key.equals(other.key));
+		}
+	}
+
+	/**
+	 * Construct a new LRU cache with the default size.
+	 */
+	public ResultCache() {
+		this(DEFAULT_SIZE, EvictionPolicy.LRU);
+	}
+
+	/**
+	 * Construct a new cache.
+	 *
+	 * @param maxSize the maximum number of results to hold in the cache
+	 * @param policy the policy to use to evict entries when the cache is full
+	 * @throws IllegalArgumentException if maxSize is not positive or the
+	 * policy is null
+	 */
+	public ResultCache(int maxSize, EvictionPolicy policy) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("ResultCache: maxSize must be positive: " + maxSize);
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("ResultCache: policy must not be null");
+		}
+		this.maxSize = maxSize;
+		this.policy = policy;
+
+		int count = 1;
+		while (count < MAX_SEGMENTS && maxSize / (count * 2) >= MIN_SEGMENT_SIZE) {
+			count *= 2;
+		}
+		// share out the maximum size so that the segments add up to it exactly
+		segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+		}
+	}
+
+	private int segmentIndex(Key key) {
+		int h = key.hash;
+		return (h ^ (h >>> 16)) & (segments.length - 1);
+	}
+
+	private Segment segmentFor(Key key) {
+		return segments[segmentIndex(key)];
+	}
+
+	/**
+	 * Return the cached result for the given lookup, or null if it is
+	 * not in the cache.
+	 *
+	 * @param source the source string that was looked up, or null
+	 * @param key the unique key that was looked up, or null
+	 * @param type the output type of the bundle
+	 * @param missing the missing string strategy of the bundle
+	 * @param lengthen the lengthen option of the bundle
+	 * @return the cached result, or null
+	 */
+	public String get(String source, String key, String type, MissingType missing, boolean lengthen) {
+		return get(null, source, key, type, missing, lengthen);
+	}
+
+	/**
+	 * Return the cached result for the given lookup in the given scope,
+	 * or null if it is not in the cache.
+	 *
+	 * @param scope the scope of the result, compared by identity, or null
+	 * @param source the source string that was looked up, or null
+	 * @param key the unique key that was looked up, or null
+	 * @param type the output type of the bundle
+	 * @param missing the missing string strategy of the bundle
+	 * @param lengthen the lengthen option of the bundle
+	 * @return the cached result, or null
+	 */
+	public String get(Object scope, String source, String key, String type, MissingType missing, boolean lengthen) {
+		Key k = new Key(scope, source, key, type, missing, lengthen);
+		Segment segment = segmentFor(k);
+		String result;
+		synchronized (segment) {
+			result = segment.get(k);
+		}
+		if (result != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * Add a result to the cache, evicting another entry if the cache is full.
+	 * Null results are not cached.
+	 *
+	 * @param source the source string that was looked up, or null
+	 * @param key the unique key that was looked up, or null
+	 * @param type the output type of the bundle
+	 * @param missing the missing string strategy of the bundle
+	 * @param lengthen the lengthen option of the bundle
+	 * @param result the result of the lookup
+	 */
+	public void put(String source, String key, String type, MissingType missing, boolean lengthen, String result) {
+		put(null, source, key, type, missing, lengthen, result);
+	}
+
+	/**
+	 * Add a result in the given scope to the cache, evicting another entry
+	 * if the cache is full. Null results are not cached.
+	 *
+	 * @param scope the scope of the result, compared by identity, or null
+	 * @param source the source string that was looked up, or null
+	 * @param key the unique key that was looked up, or null
+	 * @param type the output type of the bundle
+	 * @param missing the missing string strategy of the bundle
+	 * @param lengthen the lengthen option of the bundle
+	 * @param result the result of the lookup
+	 */
+	public void put(Object scope, String source, String key, String type, MissingType missing, boolean lengthen, String result) {
+		if (result == null) return;
+		Key k = new Key(scope, source, key, type, missing, lengthen);
+		Segment segment = segmentFor(k);
+		synchronized (segment) {
+			segment.put(k, result);
+		}
+	}
+
+	/**
+	 * Return true if results for all of the given source strings, with no
+	 * unique key, could be added to the cache in the given scope without
+	 * evicting any entry. Entries are evicted per segment, so the room is
+	 * checked in each segment rather than in the cache as a whole. Sources
+	 * that are already cached take no more room. Other threads may add
+	 * entries at any time, so the answer is only right as of the call.
+	 *
+	 * @param scope the scope of the results, compared by identity, or null
+	 * @param sources the source strings that would be added
+	 * @param type the output type of the bundle
+	 * @param missing the missing string strategy of the bundle
+	 * @param lengthen the lengthen option of the bundle
+	 * @return true if the results fit without evicting anything
+	 */
+	public boolean fits(Object scope, List<String> sources, String type, MissingType missing, boolean lengthen) {
+		if (sources.size() > maxSize) {
+			return false;
+		}
+		int[] needed = new int[segments.length];
+		for (String source : sources) {
+			Key k = new Key(scope, source, null, type, missing, lengthen);
+			int i = segmentIndex(k);
+			Segment segment = segments[i];
+			synchronized (segment) {
+				if (!segment.containsKey(k)) {
+					needed[i]++;
+				}
+			}
+		}
+		for (int i = 0; i < segments.length; i++) {
+			Segment segment = segments[i];
+			synchronized (segment) {
+				if (needed[i] > segment.capacity - segment.size()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Remove all entries from the cache. The counters are not reset.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Return the number of entries currently in the cache.
+	 * @return the number of entries in the cache
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Return the maximum number of entries this cache will hold.
+	 * @return the maximum size of the cache
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Return the number of segments the entries of this cache are spread
+	 * over.
+	 * @return the number of segments
+	 */
+	public int getSegmentCount() {
+		return segments.length;
+	}
+
+	/**
+	 * Return the eviction policy of this cache.
+	 * @return the eviction policy
+	 */
+	public EvictionPolicy getEvictionPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Return the number of lookups that were found in the cache.
+	 * @return the number of cache hits
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Return the number of lookups that were not found in the cache.
+	 * @return the number of cache misses
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Return the number of entries that were evicted because the cache was full.
+	 * @return the number of evictions
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+}
@@ -0,0 +1,351 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An index of the string ids of an R class that uses a minimal perfect
+ * hash, so that every key is found with exactly one probe and the tables
+ * have no empty slots.<p>
+ *
+ * A StringIndex is normally generated at build time by the
+ * {@link StringIndexGenerator}, which reads the R class or the strings.xml
+ * files it was made from and writes a class with the tables encoded as
+ * string constants. Loading that class does not reflect over the R class,
+ * which makes starting up faster and still works when a shrinker renames
+ * or removes the fields of the R class. The index can be passed to
+ * IResourceBundle wherever an R class is accepted.<p>
+ *
+ * The hash is the "hash, displace" scheme: each key is first hashed into
+ * a bucket, and each bucket stores either the slot of its only key, or a
+ * seed for a second hash that sends all of the keys in the bucket to free
+ * slots. Normally the hashes are worked out from String.hashCode(), which
+ * is cached in the key strings. If two of the keys have the same
+ * hashCode, the characters of the keys are hashed instead.
+ *
+ * @author edwinhoogerbeets
+ */
+public final class StringIndex extends KeyIndex {
+	// give up on a bucket after trying this many seeds
+	private static final int MAX_SEED = 1 << 22;
+
+	// the chars that the ints are encoded with start here, so that
+	// none of them are control characters, quotes or surrogates
+	private static final char BASE = 0x1000;
+
+	private final String[] keys;
+	private final int[] ids;
+	private final int[] seeds;
+	private final boolean charHash;
+
+	private StringIndex(String[] keys, int[] ids, int[] seeds, boolean charHash) {
+		this.keys = keys;
+		this.ids = ids;
+		this.seeds = seeds;
+		this.charHash = charHash;
+	}
+
+	private static int mix(int h, int seed) {
+		h ^= seed * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h & 0x7fffffff;
+	}
+
+	/**
+	 * Map a hash to the range 0 to n-1 with a multiply and a shift, which
+	 * is much quicker than the remainder.
+	 */
+	private static int reduce(int hash, int n) {
+		return (int)(((long)hash * n) >>> 31);
+	}
+
+	private static int hash(String key, boolean charHash, int seed) {
+		if (!charHash) {
+			return mix(key.hashCode(), seed);
+		}
+		int h = 0x811C9DC5 ^ seed;
+		for (int i = 0; i < key.length(); i++) {
+			h = (h ^ key.charAt(i)) * 0x01000193;
+		}
+		return mix(h, seed);
+	}
+
+	/**
+	 * Build an index that maps each of the given names to the id at the
+	 * same position in the ids array.
+	 *
+	 * @param names the key names
+	 * @param ids the id of each key
+	 * @return a new index
+	 * @throws IllegalArgumentException if the arrays are null or have
+	 * different lengths, or if a name is null, empty or appears more than once
+	 */
+	public static StringIndex build(String[] names, int[] ids) {
+		if (names == null || ids == null || names.length != ids.length) {
+			throw new IllegalArgumentException("StringIndex: names and ids must be arrays of the same length");
+		}
+		int n = names.length;
+		Set<String> unique = new HashSet<String>();
+		Set<Integer> hashCodes = new HashSet<Integer>();
+		for (String name : names) {
+			if (name == null || name.length() == 0) {
+				throw new IllegalArgumentException("StringIndex: names must not be null or empty");
+			}
+			if (!unique.add(name)) {
+				throw new IllegalArgumentException("StringIndex: duplicate name " + name);
+			}
+			hashCodes.add(name.hashCode());
+		}
+		boolean charHash = hashCodes.size() < n;
+
+		String[] keys = new String[n];
+		int[] slotIds = new int[n];
+		int[] seeds = new int[n];
+		if (n == 0) {
+			return new StringIndex(keys, slotIds, seeds, charHash);
+		}
+
+		// group the keys by bucket
+		int[] counts = new int[n + 1];
+		int[] bucketOf = new int[n];
+		for (int i = 0; i < n; i++) {
+			bucketOf[i] = reduce(hash(names[i], charHash, 0), n);
+			counts[bucketOf[i] + 1]++;
+		}
+		for (int b = 0; b < n; b++) {
+			counts[b + 1] += counts[b];
+		}
+		int[] members = new int[n];
+		int[] fill = Arrays.copyOf(counts, n);
+		for (int i = 0; i < n; i++) {
+			members[fill[bucketOf[i]]++] = i;
+		}
+
+		// place the biggest buckets first while there is the most room
+		Integer[] order = new Integer[n];
+		for (int b = 0; b < n; b++) {
+			order[b] = b;
+		}
+		final int[] sizes = new int[n];
+		for (int b = 0; b < n; b++) {
+			sizes[b] = counts[b + 1] - counts[b];
+		}
+		Arrays.sort(order, (a, b) -> sizes[b] - sizes[a]);
+
+		boolean[] used = new boolean[n];
+		int[] slots = new int[n];
+		int next = 0;
+		for (int b : order) {
+			int size = sizes[b];
+			if (size == 0) {
+				break;
+			}
+			int first = counts[b];
+			if (size == 1) {
+				// a bucket with one key can go straight into any free slot
+				while (used[next]) {
+					next++;
+				}
+				place(names, ids, keys, slotIds, used, members[first], next);
+				seeds[b] = -next - 1;
+				continue;
+			}
+
+			int seed = 1;
+			for (;; seed++) {
+				if (seed == MAX_SEED) {
+					throw new IllegalStateException("StringIndex: could not find a perfect hash for " + n + " keys");
+				}
+				int placed = 0;
+				for (; placed < size; placed++) {
+					int slot = reduce(hash(names[members[first + placed]], charHash, seed), n);
+					if (used[slot]) {
+						break;
+					}
+					used[slot] = true;
+					slots[placed] = slot;
+				}
+				if (placed == size) {
+					break;
+				}
+				for (int j = 0; j < placed; j++) {
+					used[slots[j]] = false;
+				}
+			}
+			for (int j = 0; j < size; j++) {
+				place(names, ids, keys, slotIds, used, members[first + j], slots[j]);
+			}
+			seeds[b] = seed;
+		}
+		return new StringIndex(keys, slotIds, seeds, charHash);
+	}
+
+	private static void place(String[] names, int[] ids, String[] keys, int[] slotIds, boolean[] used, int i, int slot) {
+		used[slot] = true;
+		keys[slot] = names[i];
+		slotIds[slot] = ids[i];
+	}
+
+	/**
+	 * Build an index with all of the keys of the given index.
+	 *
+	 * @param index the index to copy
+	 * @return a new index
+	 */
+	public static StringIndex build(KeyIndex index) {
+		List<String> names = index.keys();
+		String[] keys = names.toArray(new String[names.size()]);
+		int[] ids = new int[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			ids[i] = index.getId(index.indexOf(keys[i]));
+		}
+		return build(keys, ids);
+	}
+
+	@Override
+	public int indexOf(String key) {
+		int n = keys.length;
+		if (key == null || n == 0) return NOT_FOUND;
+		int seed = seeds[reduce(hash(key, charHash, 0), n)];
+		int slot = (seed < 0) ? -seed - 1 : reduce(hash(key, charHash, seed), n);
+		return key.equals(keys[slot]) ? slot : NOT_FOUND;
+	}
+
+	@Override
+	public int getId(int slot) {
+		return ids[slot];
+	}
+
+	@Override
+	public int size() {
+		return keys.length;
+	}
+
+	@Override
+	public List<String> keys() {
+		return Collections.unmodifiableList(new ArrayList<String>(Arrays.asList(keys)));
+	}
+
+	/**
+	 * Return true if the hashes of this index are worked out from the
+	 * characters of the keys because some of the keys have the same
+	 * hashCode.
+	 *
+	 * @return true if the characters of the keys are hashed
+	 */
+	public boolean isCharHash() {
+		return charHash;
+	}
+
+	private static void encode(int value, StringBuilder sb) {
+		sb.append((char)(BASE + (value >>> 21)));
+		sb.append((char)(BASE + ((value >>> 10) & 0x7FF)));
+		sb.append((char)(BASE + (value & 0x3FF)));
+	}
+
+	private static int[] decodeInts(String str, int n) {
+		if (str.length() != n * 3) {
+			throw new IllegalArgumentException("StringIndex: encoded data has the wrong length");
+		}
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++) {
+			values[i] = ((str.charAt(i*3) - BASE) << 21) |
+				((str.charAt(i*3 + 1) - BASE) << 10) |
+				(str.charAt(i*3 + 2) - BASE);
+		}
+		return values;
+	}
+
+	/**
+	 * Return the key names of this index in slot order, separated by
+	 * newlines, for writing into a generated class.
+	 *
+	 * @return the encoded key names
+	 * @throws IllegalArgumentException if a key name contains a newline
+	 */
+	public String encodeKeys() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i].indexOf('\n') != -1) {
+				throw new IllegalArgumentException("StringIndex: key names must not contain a newline");
+			}
+			if (i > 0) {
+				sb.append('\n');
+			}
+			sb.append(keys[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Return the ids in slot order followed by the seeds of the buckets,
+	 * each encoded as three chars, for writing into a generated class.
+	 *
+	 * @return the encoded ids and seeds
+	 */
+	public String encodeInts() {
+		StringBuilder sb = new StringBuilder(keys.length * 6);
+		for (int id : ids) {
+			encode(id, sb);
+		}
+		for (int seed : seeds) {
+			encode(seed, sb);
+		}
+		return sb.toString();
+	}
+
+	private static String join(String[] chunks) {
+		if (chunks.length == 1) {
+			return chunks[0];
+		}
+		StringBuilder sb = new StringBuilder();
+		for (String chunk : chunks) {
+			sb.append(chunk);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Rebuild an index from the data written by the StringIndexGenerator.
+	 * The data is split into chunks because a string constant in a class
+	 * file cannot be longer than 64K bytes. This is only meant to be
+	 * called by generated classes.
+	 *
+	 * @param charHash whether the characters of the keys are hashed
+	 * @param keyChunks the chunks of the encoded key names
+	 * @param intChunks the chunks of the encoded ids and seeds
+	 * @return the index
+	 * @throws IllegalArgumentException if the data is not valid
+	 */
+	public static StringIndex decode(boolean charHash, String[] keyChunks, String[] intChunks) {
+		String keyData = join(keyChunks);
+		String[] keys = keyData.length() == 0 ? new String[0] : keyData.split("\n", -1);
+		int n = keys.length;
+		int[] values = decodeInts(join(intChunks), n * 2);
+		return new StringIndex(keys, Arrays.copyOfRange(values, 0, n), Arrays.copyOfRange(values, n, n * 2), charHash);
+	}
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generate the source of a class that holds a {@link StringIndex} for an R
+ * class, so that the index does not have to be built by reflection at run
+ * time. The names and ids can come either from the compiled R class, or
+ * from the strings.xml files that it is generated from.<p>
+ *
+ * When the names come from strings.xml files, there are no R ids, so each
+ * name is given the id of its position in the sorted list of names. Those
+ * ids only make sense to string providers that are bound to the index by
+ * name, such as the {@link MappedStringProvider}.<p>
+ *
+ * The generated class has one public static final field named INDEX:
+ *
+ * <pre>
+ * IResourceBundle rb = new IResourceBundle(RStringIndex.INDEX, provider, locale);
+ * </pre>
+ *
+ * Usage: java com.healthtap.StringIndexGenerator (-class R-class | strings.xml ...) class-name output-dir
+ *
+ * @author edwinhoogerbeets
+ */
+public class StringIndexGenerator {
+	// the longest string constant written, in chars. Each char takes at
+	// most 3 bytes in a class file, which keeps each one under 64K bytes.
+	private static final int CHUNK_SIZE = 16000;
+
+	private StringIndexGenerator() {}
+
+	/**
+	 * Build an index of the string ids of the given R class.
+	 *
+	 * @param R class containing the unique string id to id number mapping
+	 * @return a new index
+	 */
+	public static StringIndex fromClass(Class<?> R) {
+		return StringIndex.build(KeyIndex.forClass(R));
+	}
+
+	/**
+	 * Build an index of the names of the strings in the given strings.xml
+	 * files. Each name is given the id of its position in the sorted list
+	 * of all of the names.
+	 *
+	 * @param files the strings.xml files
+	 * @return a new index
+	 * @throws IOException if a file cannot be read or parsed
+	 */
+	public static StringIndex fromStringsXml(List<File> files) throws IOException {
+		BundleCompiler compiler = new BundleCompiler();
+		for (File file : files) {
+			InputStream in = new FileInputStream(file);
+			try {
+				compiler.addStringsXml(in);
+			} finally {
+				in.close();
+			}
+		}
+		List<String> names = new ArrayList<String>(compiler.getNames());
+		Collections.sort(names);
+		int[] ids = new int[names.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i;
+		}
+		return StringIndex.build(names.toArray(new String[names.size()]), ids);
+	}
+
+	/**
+	 * Write the Java source of a class that holds the given index.
+	 *
+	 * @param index the index to write
+	 * @param className the fully qualified name of the class to generate
+	 * @param from a description of where the index came from, for the
+	 * comment on the class
+	 * @param out where to write the source
+	 * @throws IOException if the source cannot be written
+	 */
+	public static void write(StringIndex index, String className, String from, Writer out) throws IOException {
+		int dot = className.lastIndexOf('.');
+		String simpleName = className.substring(dot + 1);
+		if (dot > 0) {
+			out.write("package " + className.substring(0, dot) + ";\n\n");
+		}
+		out.write("import com.healthtap.StringIndex;\n\n");
+		out.write("/**\n");
+		out.write(" * The index of the " + index.size() + " strings in " + from + ".<p>\n");
+		out.write(" *\n");
+		out.write(" * Generated by " + StringIndexGenerator.class.getName() + ". Do not edit.\n");
+		out.write(" */\n");
+		out.write("public final class " + simpleName + " {\n");
+		out.write("\tprivate " + simpleName + "() {}\n\n");
+		out.write("\tpublic static final StringIndex INDEX = StringIndex.decode(" + index.isCharHash() + ",\n");
+		writeChunks(index.encodeKeys(), out);
+		out.write(",\n");
+		writeChunks(index.encodeInts(), out);
+		out.write(");\n");
+		out.write("}\n");
+	}
+
+	private static void writeChunks(String data, Writer out) throws IOException {
+		out.write("\t\tnew String[] {\n");
+		int start = 0;
+		do {
+			int end = Math.min(start + CHUNK_SIZE, data.length());
+			out.write("\t\t\t\"");
+			for (int i = start; i < end; i++) {
+				char c = data.charAt(i);
+				switch (c) {
+					case '\n': out.write("\\n"); break;
+					case '"': out.write("\\\""); break;
+					case '\\': out.write("\\\\"); break;
+					default:
+						if (c < ' ' || c > '~') {
+							out.write(String.format("\\u%04x", (int)c));
+						} else {
+							out.write(c);
+						}
+						break;
+				}
+			}
+			out.write("\",\n");
+			start = end;
+		} while (start < data.length());
+		out.write("\t\t}");
+	}
+
+	/**
+	 * Write the source of a class that holds the given index to a file
+	 * under the given source directory, in the directory for its package.
+	 *
+	 * @param index the index to write
+	 * @param className the fully qualified name of the class to generate
+	 * @param from a description of where the index came from
+	 * @param dir the root directory of the generated sources
+	 * @return the file that was written
+	 * @throws IOException if the file cannot be written
+	 */
+	public static File write(StringIndex index, String className, String from, File dir) throws IOException {
+		File file = new File(dir, className.replace('.', File.separatorChar) + ".java");
+		File parent = file.getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("StringIndexGenerator: cannot create directory " + parent);
+		}
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+		try {
+			write(index, className, from, out);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	public static void main(String[] argv) {
+		if (argv.length < 3 || (argv[0].equals("-class") && argv.length != 4)) {
+			System.out.println("Usage: java com.healthtap.StringIndexGenerator -class R-class class-name output-dir");
+			System.out.println("       java com.healthtap.StringIndexGenerator strings.xml [strings.xml ...] class-name output-dir");
+			return;
+		}
+
+		String className = argv[argv.length - 2];
+		File dir = new File(argv[argv.length - 1]);
+		try {
+			StringIndex index;
+			String from;
+			if (argv[0].equals("-class")) {
+				index = fromClass(Class.forName(argv[1]));
+				from = argv[1];
+			} else {
+				List<File> files = new ArrayList<File>();
+				for (int i = 0; i < argv.length - 2; i++) {
+					files.add(new File(argv[i]));
+				}
+				index = fromStringsXml(files);
+				from = (files.size() == 1) ? files.get(0).getName() : files.size() + " strings.xml files";
+			}
+			File file = write(index, className, from, dir);
+			System.out.println("Wrote " + index.size() + " keys to " + file);
+		} catch (ClassNotFoundException e) {
+			System.err.println("StringIndexGenerator: cannot find class " + e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println("StringIndexGenerator: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+/**
+ * An annotation processor that works out the ids of literal source strings
+ * at compile time.<p>
+ *
+ * For each class annotated with {@link StringKeys}, the processor finds
+ * all of the calls to a method named getString whose first argument is a
+ * string literal, and whose second argument, if there is one, is not a
+ * string literal key. It hashes each of those literals with
+ * {@link HashKey#hash(String)} and looks the key up in the R class given
+ * in the annotation. It then generates a class with the name of the
+ * annotated class followed by "StringKeys", in the same package, that has
+ * a constant for each literal that refers to its field in the R class:
+ *
+ * <pre>
+ * &#47;** "Signing in..." *&#47;
+ * static final int SIGNING_IN = com.example.R.string.r479509761;
+ * </pre>
+ *
+ * Passing the constant to {@link IResourceBundle#getString(String, int)}
+ * turns the lookup into a single read from the string provider, and as
+ * the constant is a compile time constant, the compiler puts the number
+ * right into the call site.<p>
+ *
+ * Literals that have no entry in the R class get a warning at each call
+ * site and no constant. To make them errors instead, pass
+ * <code>-Ahealthtap.missingKeys=error</code> to javac. The processor is
+ * run by passing <code>-processor com.healthtap.StringKeyProcessor</code>
+ * to javac with this library on the processor path. It uses the javac
+ * tree API to see the method bodies, so it does nothing with other
+ * compilers.
+ *
+ * @author edwinhoogerbeets
+ */
+@SupportedAnnotationTypes("com.healthtap.StringKeys")
+@SupportedOptions(StringKeyProcessor.MISSING_KEYS_OPTION)
+public class StringKeyProcessor extends AbstractProcessor {
+	/**
+	 * The processor option that says how to report literals that have
+	 * no entry in the R class: "warning", the default, or "error".
+	 */
+	public static final String MISSING_KEYS_OPTION = "healthtap.missingKeys";
+
+	/** The suffix added to the name of an annotated class to name its generated class */
+	public static final String SUFFIX = "StringKeys";
+
+	private static final int MAX_NAME_LENGTH = 48;
+
+	private Trees trees;
+
+	@Override
+	public synchronized void init(ProcessingEnvironment env) {
+		super.init(env);
+		try {
+			trees = Trees.instance(env);
+		} catch (IllegalArgumentException e) {
+			// not running inside javac
+			trees = null;
+		}
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+		for (Element element : round.getElementsAnnotatedWith(StringKeys.class)) {
+			if (element instanceof TypeElement) {
+				if (trees == null) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+						"StringKeyProcessor: the javac tree API is not available, so no keys were generated", element);
+					return true;
+				}
+				process((TypeElement)element);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A literal source string found in a getString call, and the name of
+	 * its field in the R class, or null if it has none.
+	 */
+	private static final class Literal {
+		final String source;
+		final String field;
+
+		Literal(String source, String field) {
+			this.source = source;
+			this.field = field;
+		}
+	}
+
+	private void process(final TypeElement type) {
+		final TypeElement R = getRClass(type);
+		if (R == null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+				"StringKeyProcessor: the R class of " + type.getQualifiedName() + " cannot be found", type);
+			return;
+		}
+
+		final Set<String> fields = new HashSet<String>();
+		for (VariableElement field : ElementFilter.fieldsIn(R.getEnclosedElements())) {
+			if (field.getModifiers().contains(Modifier.STATIC) && field.asType().getKind() == TypeKind.INT) {
+				fields.add(field.getSimpleName().toString());
+			}
+		}
+
+		final Diagnostic.Kind missingKind = "error".equalsIgnoreCase(processingEnv.getOptions().get(MISSING_KEYS_OPTION)) ?
+			Diagnostic.Kind.ERROR : Diagnostic.Kind.WARNING;
+		final Map<String, Literal> literals = new LinkedHashMap<String, Literal>();
+
+		TreePath path = trees.getPath(type);
+		if (path == null) {
+			return;
+		}
+		new TreePathScanner<Void, Void>() {
+			@Override
+			public Void visitMethodInvocation(MethodInvocationTree node, Void p) {
+				String source = getLiteralSource(node);
+				if (source != null && !literals.containsKey(source)) {
+					// a literal that is itself a key is looked up directly, the
+					// same way IResourceBundle.getTranslation does it
+					String field = fields.contains(source) ? source : HashKey.hash(source);
+					literals.put(source, new Literal(source, fields.contains(field) ? field : null));
+				}
+				if (source != null && literals.get(source).field == null) {
+					trees.printMessage(missingKind, "StringKeyProcessor: " + R.getQualifiedName() +
+						" has no entry " + HashKey.hash(source) + " for \"" + escape(source) + "\"",
+						node, getCurrentPath().getCompilationUnit());
+				}
+				return super.visitMethodInvocation(node, p);
+			}
+		}.scan(path, null);
+
+		try {
+			generate(type, R, literals.values());
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+				"StringKeyProcessor: cannot write the keys of " + type.getQualifiedName() + ": " + e.getMessage(), type);
+		}
+	}
+
+	private TypeElement getRClass(TypeElement type) {
+		TypeMirror mirror;
+		try {
+			type.getAnnotation(StringKeys.class).value();
+			return null;
+		} catch (MirroredTypeException e) {
+			mirror = e.getTypeMirror();
+		}
+		if (mirror.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		return (TypeElement)((DeclaredType)mirror).asElement();
+	}
+
+	/**
+	 * Return the literal source string of the given call if it is a call to
+	 * getString that the processor handles, or null otherwise.
+	 */
+	private static String getLiteralSource(MethodInvocationTree node) {
+		ExpressionTree select = node.getMethodSelect();
+		String name;
+		if (select.getKind() == Tree.Kind.IDENTIFIER) {
+			name = ((IdentifierTree)select).getName().toString();
+		} else if (select.getKind() == Tree.Kind.MEMBER_SELECT) {
+			name = ((MemberSelectTree)select).getIdentifier().toString();
+		} else {
+			return null;
+		}
+		if (!name.equals("getString")) {
+			return null;
+		}
+
+		List<? extends ExpressionTree> args = node.getArguments();
+		if (args.isEmpty() || args.get(0).getKind() != Tree.Kind.STRING_LITERAL) {
+			return null;
+		}
+		if (args.size() > 1 && args.get(1).getKind() == Tree.Kind.STRING_LITERAL) {
+			// an explicit key, which is not hashed anyway
+			return null;
+		}
+		return (String)((LiteralTree)args.get(0)).getValue();
+	}
+
+	/**
+	 * Return the name of the generated class for the given type. Nested
+	 * classes are named after all of their enclosing classes.
+	 */
+	static String getGeneratedName(TypeElement type) {
+		StringBuilder name = new StringBuilder(type.getSimpleName());
+		for (Element e = type.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+			name.insert(0, '_').insert(0, e.getSimpleName());
+		}
+		return name.append(SUFFIX).toString();
+	}
+
+	/**
+	 * Turn a source string into the name of a constant, such as SIGNING_IN
+	 * for "Signing in...".
+	 */
+	static String getConstantName(String source) {
+		StringBuilder name = new StringBuilder();
+		boolean separator = false;
+		for (int i = 0; i < source.length() && name.length() < MAX_NAME_LENGTH; i++) {
+			char c = source.charAt(i);
+			if (c < 128 && Character.isLetterOrDigit(c)) {
+				if (separator && name.length() > 0) {
+					name.append('_');
+				}
+				name.append(Character.toUpperCase(c));
+				separator = false;
+			} else {
+				separator = true;
+			}
+		}
+		if (name.length() == 0) {
+			return "STRING";
+		}
+		if (Character.isDigit(name.charAt(0))) {
+			name.insert(0, '_');
+		}
+		return name.toString();
+	}
+
+	private void generate(TypeElement type, TypeElement R, Iterable<Literal> literals) throws IOException {
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+		String simpleName = getGeneratedName(type);
+		String qualifiedName = pkg.isUnnamed() ? simpleName : pkg.getQualifiedName() + "." + simpleName;
+
+		Writer out = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+		try {
+			if (!pkg.isUnnamed()) {
+				out.write("package " + pkg.getQualifiedName() + ";\n\n");
+			}
+			out.write("/**\n");
+			out.write(" * The ids of the literal strings passed to getString in\n");
+			out.write(" * {@link " + type.getQualifiedName() + "}, for use with\n");
+			out.write(" * {@link com.healthtap.IResourceBundle#getString(String, int)}.<p>\n");
+			out.write(" *\n");
+			out.write(" * Generated by " + StringKeyProcessor.class.getName() + ". Do not edit.\n");
+			out.write(" */\n");
+			out.write("final class " + simpleName + " {\n");
+			out.write("\tprivate " + simpleName + "() {}\n");
+
+			Map<String, String> used = new HashMap<String, String>();
+			for (Literal literal : literals) {
+				if (literal.field == null) {
+					continue;
+				}
+				String name = getConstantName(literal.source);
+				String base = name;
+				for (int n = 2; used.containsKey(name); n++) {
+					name = base + "_" + n;
+				}
+				used.put(name, literal.source);
+
+				out.write("\n\t/** \"" + escape(literal.source).replace("*/", "*&#47;") + "\" */\n");
+				out.write("\tstatic final int " + name + " = " + R.getQualifiedName() + "." + literal.field + ";\n");
+			}
+			out.write("}\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Escape a string so that it can be shown on one line.
+	 */
+	private static String escape(String str) {
+		StringBuilder sb = new StringBuilder(str.length());
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			switch (c) {
+				case '\n': sb.append("\\n"); break;
+				case '\t': sb.append("\\t"); break;
+				case '\r': sb.append("\\r"); break;
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				default:
+					if (c < ' ') {
+						sb.append(String.format("\\u%04x", (int)c));
+					} else {
+						sb.append(c);
+					}
+					break;
+			}
+		}
+		return sb.toString();
+	}
+}
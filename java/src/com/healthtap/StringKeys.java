@@ -0,0 +1,54 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose calls to getString with a literal source string
+ * should have their ids worked out at compile time by
+ * {@link StringKeyProcessor}. For a class Foo, the processor generates a
+ * class FooStringKeys in the same package with one constant for each of
+ * those source strings, which can be passed to
+ * {@link IResourceBundle#getString(String, int)} so that the string does
+ * not have to be hashed at run time.
+ *
+ * <pre>
+ * &#64;StringKeys(R.string.class)
+ * public class Foo {
+ *     String title(IResourceBundle rb) {
+ *         return rb.getString("Signing in...", FooStringKeys.SIGNING_IN);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author edwinhoogerbeets
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface StringKeys {
+	/**
+	 * @return the class containing the unique string id to id number
+	 * mapping that the source strings are looked up in
+	 */
+	Class<?> value();
+}
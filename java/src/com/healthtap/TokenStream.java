@@ -0,0 +1,423 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A source or translated string split into tokens: runs of plain text,
+ * html and xml tags, entities, <code>{name}</code> placeholders, printf
+ * style format specifiers and backslash escapes. Which kinds of token are
+ * recognized depends on the syntax flags, which IResourceBundle works out
+ * from its output type. Everything that is not recognized is text.<p>
+ *
+ * The string is tokenized in one pass from left to right, and no
+ * character is looked at more than a small constant number of times, so
+ * tokenizing takes linear time even for strings that are nothing but
+ * unterminated tags or braces. The tokens are stored as two arrays of
+ * primitives rather than as objects.<p>
+ *
+ * Malformed markup is read the same way for every purpose, which is not
+ * always the way the old pseudo-localization scanner read it:
+ *
+ * <ul>
+ * <li>An ampersand is only the start of an entity when it is followed by
+ * a name or a number and a semicolon, as in &amp;amp; or &amp;#39;. A bare
+ * ampersand, such as the one in "AT&amp;T rocks", is text, so the text
+ * after it is pseudo-localized. The old scanner copied everything from
+ * the ampersand up to the next semicolon or space unchanged.
+ * <li>An opening brace with no closing brace after it is text, so the
+ * text after it is pseudo-localized. The old scanner copied everything
+ * from the brace to the end of the string unchanged.
+ * <li>An opening angle bracket with no closing bracket after it is a tag
+ * that runs to the end of the string, as before.
+ * </ul>
+ *
+ * Token streams are immutable and thread-safe. The ones returned by
+ * {@link #of(String, int)} are cached.
+ *
+ * @author edwinhoogerbeets
+ */
+public final class TokenStream {
+	/** Plain text. */
+	public static final int TEXT = 0;
+	/** An html or xml tag, such as &lt;b&gt;. */
+	public static final int TAG = 1;
+	/** An html or xml entity, such as &amp;amp;. */
+	public static final int ENTITY = 2;
+	/** A placeholder, such as {email}. */
+	public static final int PLACEHOLDER = 3;
+	/** A java format specifier, such as %1$s. */
+	public static final int FORMAT = 4;
+	/** A java backslash escape, such as \n or a unicode escape. */
+	public static final int ESCAPE = 5;
+
+	/** Recognize tags. */
+	public static final int TAGS = 1;
+	/** Recognize entities. */
+	public static final int ENTITIES = 2;
+	/** Recognize placeholders. */
+	public static final int PLACEHOLDERS = 4;
+	/** Recognize java format specifiers. */
+	public static final int FORMAT_SPECS = 8;
+	/** Recognize java backslash escapes. */
+	public static final int ESCAPES = 16;
+
+	/** The syntax of the html and xml output types. */
+	public static final int HTML_SYNTAX = TAGS | ENTITIES | PLACEHOLDERS;
+	/** The syntax of the java output type. */
+	public static final int JAVA_SYNTAX = ESCAPES | FORMAT_SPECS | PLACEHOLDERS;
+
+	private static final int ALL = TAGS | ENTITIES | PLACEHOLDERS | FORMAT_SPECS | ESCAPES;
+
+	/**
+	 * The maximum number of token streams to cache for each syntax. When
+	 * a cache is full it is emptied.
+	 */
+	private static final int MAX_CACHED = 4096;
+
+	/** Entities longer than this are not entities. */
+	private static final int MAX_ENTITY = 32;
+
+	private static final String FLAGS = "-#+ 0,(";
+	private static final String CONVERSIONS = "bBhHsScCdoxXeEfgGaAtT%n";
+
+	private static final AtomicReferenceArray<ConcurrentHashMap<String, TokenStream>> caches =
+		new AtomicReferenceArray<ConcurrentHashMap<String, TokenStream>>(ALL + 1);
+
+	private final String source;
+	private final int syntax;
+	private final byte[] types;
+	// the end of each token. Each token starts where the previous one ends.
+	private final int[] ends;
+
+	private TokenStream(String source, int syntax, byte[] types, int[] ends) {
+		this.source = source;
+		this.syntax = syntax;
+		this.types = types;
+		this.ends = ends;
+	}
+
+	/**
+	 * Tokenize the given string without caching the result.
+	 *
+	 * @param source the string to tokenize
+	 * @param syntax the kinds of token to recognize, as a combination of
+	 * the flags TAGS, ENTITIES, PLACEHOLDERS, FORMAT_SPECS and ESCAPES
+	 * @return the tokens of the string
+	 * @throws IllegalArgumentException if the string is null
+	 */
+	public static TokenStream tokenize(String source, int syntax) {
+		if (source == null) {
+			throw new IllegalArgumentException("TokenStream: source must not be null");
+		}
+		int n = source.length();
+		byte[] types = new byte[8];
+		int[] ends = new int[8];
+		int count = 0;
+
+		boolean tags = (syntax & TAGS) != 0;
+		boolean entities = (syntax & ENTITIES) != 0;
+		boolean placeholders = (syntax & PLACEHOLDERS) != 0;
+		boolean formats = (syntax & FORMAT_SPECS) != 0;
+		boolean escapes = (syntax & ESCAPES) != 0;
+
+		// the next closing brace, so that the string is only searched for
+		// one again after it has been passed. Once there are none left,
+		// there is no need to search any more.
+		int nextClose = -1;
+
+		int textStart = 0;
+		int i = 0;
+		while (i < n) {
+			char c = source.charAt(i);
+			int type = TEXT;
+			int end = i + 1;
+
+			if (c == '<' && tags) {
+				int close = source.indexOf('>', i + 1);
+				type = TAG;
+				end = (close < 0) ? n : close + 1;
+			} else if (c == '&' && entities) {
+				int e = getEntityEnd(source, i);
+				if (e > 0) {
+					type = ENTITY;
+					end = e;
+				}
+			} else if (c == '{' && placeholders) {
+				if (nextClose < i) {
+					nextClose = source.indexOf('}', i + 1);
+					if (nextClose < 0) {
+						nextClose = Integer.MAX_VALUE;
+					}
+				}
+				if (nextClose != Integer.MAX_VALUE) {
+					type = PLACEHOLDER;
+					end = nextClose + 1;
+				}
+			} else if (c == '%' && formats) {
+				int e = getFormatEnd(source, i);
+				if (e > 0) {
+					type = FORMAT;
+					end = e;
+				}
+			} else if (c == '\\' && escapes) {
+				type = ESCAPE;
+				if (i + 1 < n) {
+					end = (source.charAt(i + 1) == 'u' && i + 5 < n) ? i + 6 : i + 2;
+				}
+			}
+
+			if (type == TEXT) {
+				i++;
+				continue;
+			}
+			if (count + 2 > ends.length) {
+				types = Arrays.copyOf(types, ends.length * 2);
+				ends = Arrays.copyOf(ends, ends.length * 2);
+			}
+			if (textStart < i) {
+				types[count] = TEXT;
+				ends[count++] = i;
+			}
+			types[count] = (byte)type;
+			ends[count++] = end;
+			i = textStart = end;
+		}
+		if (textStart < n) {
+			if (count == ends.length) {
+				types = Arrays.copyOf(types, count + 1);
+				ends = Arrays.copyOf(ends, count + 1);
+			}
+			types[count] = TEXT;
+			ends[count++] = n;
+		}
+
+		return new TokenStream(source, syntax, Arrays.copyOf(types, count), Arrays.copyOf(ends, count));
+	}
+
+	/**
+	 * Return the tokens of the given string, tokenizing it only if it is
+	 * not already in the cache.
+	 *
+	 * @param source the string to tokenize
+	 * @param syntax the kinds of token to recognize, as a combination of
+	 * the flags TAGS, ENTITIES, PLACEHOLDERS, FORMAT_SPECS and ESCAPES
+	 * @return the tokens of the string
+	 * @throws IllegalArgumentException if the string is null
+	 */
+	public static TokenStream of(String source, int syntax) {
+		if (source == null) {
+			throw new IllegalArgumentException("TokenStream: source must not be null");
+		}
+		syntax &= ALL;
+		ConcurrentHashMap<String, TokenStream> cache = caches.get(syntax);
+		if (cache == null) {
+			caches.compareAndSet(syntax, null, new ConcurrentHashMap<String, TokenStream>());
+			cache = caches.get(syntax);
+		}
+		TokenStream tokens = cache.get(source);
+		if (tokens == null) {
+			tokens = tokenize(source, syntax);
+			if (cache.size() >= MAX_CACHED) {
+				cache.clear();
+			}
+			cache.put(source, tokens);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Return the end of the entity that starts at the given ampersand, or
+	 * 0 if it is not the start of an entity. An entity is a name or a
+	 * number sign and a number, followed by a semicolon.
+	 */
+	private static int getEntityEnd(String source, int start) {
+		int limit = Math.min(source.length(), start + MAX_ENTITY);
+		int i = start + 1;
+		if (i < limit && source.charAt(i) == '#') {
+			i++;
+		}
+		int nameStart = i;
+		while (i < limit && Character.isLetterOrDigit(source.charAt(i))) {
+			i++;
+		}
+		return (i > nameStart && i < limit && source.charAt(i) == ';') ? i + 1 : 0;
+	}
+
+	/**
+	 * Return the end of the format specifier that starts at the given
+	 * percent sign, or 0 if it is not the start of one. This matches the
+	 * same specifiers as the pattern
+	 * <code>%(\d+\$)?([\-#\+ 0,\(])?(\d+)?(\.\d+)?[bBhHsScCdoxXeEfgGaAtT%n]</code>,
+	 * but without a regular expression or a copy of the rest of the string.
+	 */
+	static int getFormatEnd(String source, int start) {
+		int n = source.length();
+		int i = start + 1;
+
+		// an argument index is digits followed by a dollar sign
+		int digits = skipDigits(source, i);
+		if (digits > i && digits < n && source.charAt(digits) == '$') {
+			i = digits + 1;
+		}
+		if (i < n && FLAGS.indexOf(source.charAt(i)) >= 0) {
+			i++;
+		}
+		i = skipDigits(source, i);
+		if (i + 1 < n && source.charAt(i) == '.' && isDigit(source.charAt(i + 1))) {
+			i = skipDigits(source, i + 1);
+		}
+		return (i < n && CONVERSIONS.indexOf(source.charAt(i)) >= 0) ? i + 1 : 0;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static int skipDigits(String source, int i) {
+		while (i < source.length() && isDigit(source.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * @return the string that was tokenized
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return the kinds of token that were recognized
+	 */
+	public int getSyntax() {
+		return syntax;
+	}
+
+	/**
+	 * @return the number of tokens
+	 */
+	public int size() {
+		return ends.length;
+	}
+
+	/**
+	 * @param index the index of the token
+	 * @return the type of the token, such as TEXT or PLACEHOLDER
+	 */
+	public int getType(int index) {
+		return types[index];
+	}
+
+	/**
+	 * @param index the index of the token
+	 * @return the index in the source string where the token starts
+	 */
+	public int getStart(int index) {
+		return (index == 0) ? 0 : ends[index - 1];
+	}
+
+	/**
+	 * @param index the index of the token
+	 * @return the index in the source string just past the end of the token
+	 */
+	public int getEnd(int index) {
+		return ends[index];
+	}
+
+	/**
+	 * @param index the index of the token
+	 * @return the text of the token
+	 */
+	public String getText(int index) {
+		return source.substring(getStart(index), ends[index]);
+	}
+
+	/**
+	 * Return true if any of the tokens has the given type.
+	 *
+	 * @param type the type of token to look for
+	 * @return true if there is a token of that type
+	 */
+	public boolean contains(int type) {
+		for (byte t : types) {
+			if (t == type) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check that a translation has the same placeholders and format
+	 * specifiers as its source string, each the same number of times,
+	 * though not necessarily in the same order. A translation that is
+	 * missing a placeholder, or has one that the source does not, will
+	 * not be filled in properly.
+	 *
+	 * @param source the source string
+	 * @param translation the translation of the source string
+	 * @param syntax the kinds of token to recognize in both strings
+	 * @return a description of each problem found, or an empty list if
+	 * there are none
+	 */
+	public static List<String> validate(String source, String translation, int syntax) {
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		count(of(source, syntax), counts, 1);
+		count(of(translation, syntax), counts, -1);
+
+		List<String> problems = new ArrayList<String>();
+		for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+			int diff = entry.getValue();
+			if (diff > 0) {
+				problems.add("translation is missing " + entry.getKey() + (diff > 1 ? " " + diff + " times" : ""));
+			} else if (diff < 0) {
+				problems.add("translation has extra " + entry.getKey() + (diff < -1 ? " " + (-diff) + " times" : ""));
+			}
+		}
+		return problems;
+	}
+
+	private static void count(TokenStream tokens, Map<String, Integer> counts, int delta) {
+		for (int i = 0; i < tokens.size(); i++) {
+			int type = tokens.getType(i);
+			if (type == PLACEHOLDER || type == FORMAT) {
+				String text = tokens.getText(i);
+				Integer c = counts.get(text);
+				counts.put(text, (c == null ? 0 : c) + delta);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("TokenStream[");
+		for (int i = 0; i < ends.length; i++) {
+			if (i > 0) sb.append(", ");
+			sb.append(types[i]).append(":\"").append(source, getStart(i), ends[i]).append('"');
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -26,9 +26,27 @@ public class AllTests extends TestSuite {
 
 	public static TestSuite suite() {
 		TestSuite suite = new TestSuite("Android tests");
+		suite.addTestSuite(AllocationBudgetTest.class);
+		suite.addTestSuite(BundleCompilerTest.class);
+		suite.addTestSuite(BundleFactoryTest.class);
+		suite.addTestSuite(CompactStringProviderTest.class);
+		suite.addTestSuite(HashCollisionAuditTest.class);
 		suite.addTestSuite(HashKeyTest.class);
 		suite.addTestSuite(IResourceBundleTest.class);
+		suite.addTestSuite(KeyIndexTest.class);
+		suite.addTestSuite(LikelySubtagsCompilerTest.class);
+		suite.addTestSuite(LocaleFallbackTest.class);
+		suite.addTestSuite(MappedStringProviderTest.class);
+		suite.addTestSuite(MessageTemplateTest.class);
+		suite.addTestSuite(MetricsCollectorTest.class);
+		suite.addTestSuite(MissingStringRecorderTest.class);
+		suite.addTestSuite(PluralRulesTest.class);
+		suite.addTestSuite(PseudoTableTest.class);
+		suite.addTestSuite(ResultCacheTest.class);
 		suite.addTestSuite(ScriptInfoTest.class);
+		suite.addTestSuite(StringIndexTest.class);
+		suite.addTestSuite(StringKeyProcessorTest.class);
+		suite.addTestSuite(TokenStreamTest.class);
 		return suite;
 	}
 }
@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import com.healthtap.HashKey;
+import com.healthtap.IResourceBundle;
+import com.healthtap.ScriptInfo;
+
+import junit.framework.TestCase;
+
+
+/**
+ * Check that the lookup hot path does not allocate more bytes per operation
+ * than it used to. Each budget is the number of bytes measured when the
+ * budget was set plus some headroom, so a test failing here means that a
+ * change made the operation allocate noticeably more. If the change is
+ * intended, measure again and raise the budget in the same commit. When a
+ * change cuts the allocation, lower the budget to about one and a half
+ * times the new value in the same commit as well, or the budget stops
+ * catching anything.<p>
+ *
+ * The bytes are measured with the per-thread allocation counter of the
+ * HotSpot ThreadMXBean. On JVMs that do not have it, these tests pass
+ * without checking anything.
+ *
+ * @author edwin
+ *
+ */
+public class AllocationBudgetTest extends TestCase
+{
+	private static final int WARMUP = 20000;
+	private static final int ITERATIONS = 10000;
+
+	private IResourceBundle rb;
+	private IResourceBundle html;
+	private IResourceBundle pseudo;
+
+	@Override
+	protected void setUp()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(l), l).freeze();
+		html = rb.withType(IResourceBundle.HTML_TYPE);
+		Locale zxx = Locale.forLanguageTag("zxx-XX");
+		pseudo = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(zxx), zxx).freeze();
+	}
+
+	/**
+	 * Return the HotSpot ThreadMXBean with allocation counting turned on,
+	 * or null if this JVM does not support it.
+	 */
+	private static com.sun.management.ThreadMXBean getAllocationCounter()
+	{
+		java.lang.management.ThreadMXBean bean;
+		try {
+			bean = ManagementFactory.getThreadMXBean();
+		} catch (Throwable e) {
+			return null;
+		}
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)bean;
+		if (!counter.isThreadAllocatedMemorySupported()) {
+			return null;
+		}
+		if (!counter.isThreadAllocatedMemoryEnabled()) {
+			counter.setThreadAllocatedMemoryEnabled(true);
+		}
+		return counter;
+	}
+
+	/**
+	 * Run the operation enough times for the JIT to compile it, then return
+	 * the average number of bytes it allocates on this thread per run, or
+	 * -1 if allocations cannot be counted on this JVM.
+	 */
+	private static long bytesPerOperation(Runnable operation)
+	{
+		com.sun.management.ThreadMXBean counter = getAllocationCounter();
+		if (counter == null) {
+			return -1;
+		}
+
+		for (int i = 0; i < WARMUP; i++) {
+			operation.run();
+		}
+
+		long id = Thread.currentThread().getId();
+		long before = counter.getThreadAllocatedBytes(id);
+		for (int i = 0; i < ITERATIONS; i++) {
+			operation.run();
+		}
+		long after = counter.getThreadAllocatedBytes(id);
+
+		return (after - before) / ITERATIONS;
+	}
+
+	private static void assertBudget(String name, long budget, Runnable operation)
+	{
+		long bytes = bytesPerOperation(operation);
+		if (bytes >= 0) {
+			assertTrue(name + " allocated " + bytes + " bytes per operation, which is over its budget of " + budget,
+				bytes <= budget);
+		}
+	}
+
+	public void testGetStringHit()
+	{
+		// measured at 112 bytes, which is the hash key of the source string
+		assertBudget("getString hit", 192, () -> rb.getString("Signing in..."));
+	}
+
+	public void testGetStringMiss()
+	{
+		// measured at 112 bytes, which is the hash key of the source string
+		assertBudget("getString miss", 192, () -> rb.getString("Not translated here"));
+	}
+
+	public void testGetStringHtmlEscaped()
+	{
+		// measured at 240 bytes: the hash key and the escaped translation
+		assertBudget("getString html", 360, () -> html.getString("Fish & Chips"));
+	}
+
+	public void testGetStringAppend()
+	{
+		final StringBuilder sb = new StringBuilder(64);
+		// measured at 112 bytes, which is the hash key of the source string
+		assertBudget("getString append", 192, () -> {
+			sb.setLength(0);
+			rb.getString("Signing in...", null, sb);
+		});
+	}
+
+	public void testHashKeyHash()
+	{
+		// measured at 112 bytes, which is the key string itself
+		assertBudget("HashKey.hash", 192, () -> HashKey.hash("Signing in..."));
+	}
+
+	public void testPseudo()
+	{
+		// measured at 0 bytes, as the result comes from the pseudo result cache
+		assertBudget("getStringPseudo", 64, () -> rb.getStringPseudo("Signing in..."));
+	}
+
+	public void testGetStringPseudoLocale()
+	{
+		// measured at 0 bytes, as the result comes from the pseudo result cache
+		assertBudget("getString zxx", 64, () -> pseudo.getString("Signing in..."));
+	}
+
+	public void testGetScriptByLocaleCached()
+	{
+		final Locale l = Locale.forLanguageTag("de-DE");
+		// cached results should not allocate at all
+		assertBudget("getScriptByLocale", 0, () -> ScriptInfo.getScriptByLocale(l));
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.healthtap.BundleCompiler;
+import com.healthtap.MappedStringProvider;
+
+import junit.framework.TestCase;
+
+/**
+ * @author edwin
+ *
+ */
+public class BundleCompilerTest extends TestCase
+{
+	public static final String STRINGS_XML =
+		"<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+		"<resources xmlns:tools=\"http://schemas.android.com/tools\">\n" +
+		"  <string name=\"r479509761\" i18n=\"Signing in\">Connexion en cours...</string>\n" +
+		"  <string name=\"r554153194\">N\\'actualisez pas</string>\n" +
+		"  <string name=\"r429260889\">Services &amp; Palm &lt;b&gt;</string>\n" +
+		"  <string-array name=\"array\">\n" +
+		"    <item>not compiled</item>\n" +
+		"  </string-array>\n" +
+		"</resources>\n";
+
+	public void testUnescape()
+	{
+		assertEquals("N'actualisez pas", BundleCompiler.unescape("N\\'actualisez pas"));
+		assertEquals("a \"b\" c", BundleCompiler.unescape("a \\\"b\\\" c"));
+		assertEquals("a\nb\tc", BundleCompiler.unescape("a\\nb\\tc"));
+		assertEquals("a\\b", BundleCompiler.unescape("a\\\\b"));
+		assertEquals("@a", BundleCompiler.unescape("\\@a"));
+		assertEquals("a\u00A0b", BundleCompiler.unescape("a\\u00A0b"));
+	}
+
+	public void testUnescapeNoEscapes()
+	{
+		String str = "Connexion en cours...";
+		assertSame(str, BundleCompiler.unescape(str));
+	}
+
+	public void testUnescapeTrailingBackslash()
+	{
+		assertEquals("abc\\", BundleCompiler.unescape("abc\\"));
+	}
+
+	public void testUnescapeBadUnicode()
+	{
+		assertEquals("uzzzz", BundleCompiler.unescape("\\uzzzz"));
+		assertEquals("u12", BundleCompiler.unescape("\\u12"));
+	}
+
+	public void testAddStringsXml() throws IOException
+	{
+		BundleCompiler compiler = new BundleCompiler();
+		compiler.addStringsXml(new ByteArrayInputStream(STRINGS_XML.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(3, compiler.size());
+	}
+
+	public void testAddStringsXmlBadXml()
+	{
+		BundleCompiler compiler = new BundleCompiler();
+		try {
+			compiler.addStringsXml(new ByteArrayInputStream("<resources><string>".getBytes(StandardCharsets.UTF_8)));
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testWriteHeader() throws IOException
+	{
+		BundleCompiler compiler = new BundleCompiler();
+		compiler.addString("a", "b");
+		compiler.addString("cd", "é");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		compiler.write(out);
+
+		ByteBuffer buf = ByteBuffer.wrap(out.toByteArray());
+		assertEquals(MappedStringProvider.MAGIC, buf.getInt(0));
+		assertEquals(MappedStringProvider.VERSION, buf.getInt(4));
+		assertEquals(2, buf.getInt(8));
+		assertEquals(MappedStringProvider.HEADER_SIZE + 2 * MappedStringProvider.ENTRY_SIZE, buf.getInt(12));
+		// "a", "b", "cd" and the two byte UTF-8 encoding of "é"
+		assertEquals(buf.getInt(12) + 6, out.size());
+	}
+}
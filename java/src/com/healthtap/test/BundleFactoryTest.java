@@ -0,0 +1,202 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import com.healthtap.BundleFactory;
+import com.healthtap.IResourceBundle;
+import com.healthtap.IResourceBundle.MissingType;
+import com.healthtap.IStringProvider;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class BundleFactoryTest extends TestCase
+{
+	private IStringProvider provider(String tag)
+	{
+		return new IResourceBundleTest().new MockResources(Locale.forLanguageTag(tag));
+	}
+
+	public void testGetBundleCached()
+	{
+		BundleFactory factory = new BundleFactory();
+		IStringProvider fr = provider("fr-FR");
+		Locale l = Locale.forLanguageTag("fr-FR");
+
+		IResourceBundle rb = factory.getBundle(R.string.class, fr, l);
+		assertNotNull(rb);
+		assertTrue(rb.isFrozen());
+		assertEquals(l, rb.getLocale());
+		assertEquals(IResourceBundle.RAW_TYPE, rb.getType());
+		assertEquals("Connexion en cours...", rb.getString("Signing in..."));
+
+		assertSame(rb, factory.getBundle(R.string.class, fr, Locale.forLanguageTag("fr-FR")));
+		assertEquals(1, factory.getCreationCount());
+		assertEquals(1, factory.getHitCount());
+		assertTrue(factory.getCreationTimeNanos() > 0);
+		assertEquals(1, factory.size());
+	}
+
+	public void testGetBundleByType()
+	{
+		BundleFactory factory = new BundleFactory();
+		IStringProvider fr = provider("fr-FR");
+		Locale l = Locale.forLanguageTag("fr-FR");
+
+		IResourceBundle html = factory.getBundle(R.string.class, fr, l, "HTML");
+		assertEquals(IResourceBundle.HTML_TYPE, html.getType());
+		assertEquals("Fish &amp; Chips", html.getString("Fish & Chips"));
+		assertSame(html, factory.getBundle(R.string.class, fr, l, IResourceBundle.HTML_TYPE));
+
+		IResourceBundle raw = factory.getBundle(R.string.class, fr, l);
+		assertNotSame(html, raw);
+		// the html bundle is a view of the raw one, so only one was constructed
+		assertEquals(1, factory.getCreationCount());
+		assertEquals(2, factory.size());
+	}
+
+	public void testGetBundleDifferentKeys()
+	{
+		BundleFactory factory = new BundleFactory();
+		IStringProvider fr = provider("fr-FR");
+		IStringProvider de = provider("de-DE");
+
+		IResourceBundle a = factory.getBundle(R.string.class, fr, Locale.forLanguageTag("fr-FR"));
+		IResourceBundle b = factory.getBundle(R.string.class, fr, Locale.forLanguageTag("fr-CA"));
+		IResourceBundle c = factory.getBundle(R.string.class, de, Locale.forLanguageTag("fr-FR"));
+		IResourceBundle d = factory.getBundle(BundleFactoryTest.class, fr, Locale.forLanguageTag("fr-FR"));
+
+		assertNotSame(a, b);
+		assertNotSame(a, c);
+		assertNotSame(a, d);
+		assertEquals(4, factory.getCreationCount());
+	}
+
+	public void testGetBundleDefaultLocale()
+	{
+		BundleFactory factory = new BundleFactory();
+		IStringProvider fr = provider("fr-FR");
+		IResourceBundle rb = factory.getBundle(R.string.class, fr, null);
+		assertEquals(Locale.getDefault(), rb.getLocale());
+		assertSame(rb, factory.getBundle(R.string.class, fr, Locale.getDefault()));
+	}
+
+	public void testGetBundleNullArguments()
+	{
+		BundleFactory factory = new BundleFactory();
+		try {
+			factory.getBundle(null, provider("fr-FR"), Locale.forLanguageTag("fr-FR"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			factory.getBundle(R.string.class, provider("fr-FR"), Locale.forLanguageTag("fr-FR"), null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testInitializer()
+	{
+		BundleFactory factory = new BundleFactory(rb -> rb.setMissingType(MissingType.PLACEHOLDER));
+		IStringProvider fr = provider("fr-FR");
+		Locale l = Locale.forLanguageTag("fr-FR");
+
+		IResourceBundle rb = factory.getBundle(R.string.class, fr, l);
+		assertEquals(MissingType.PLACEHOLDER, rb.getMissing());
+		assertEquals("????", rb.getString("Not here"));
+		assertEquals(MissingType.PLACEHOLDER, factory.getBundle(R.string.class, fr, l, IResourceBundle.XML_TYPE).getMissing());
+	}
+
+	public void testClear()
+	{
+		BundleFactory factory = new BundleFactory();
+		IStringProvider fr = provider("fr-FR");
+		Locale l = Locale.forLanguageTag("fr-FR");
+
+		IResourceBundle rb = factory.getBundle(R.string.class, fr, l);
+		factory.clear();
+		assertEquals(0, factory.size());
+		assertNotSame(rb, factory.getBundle(R.string.class, fr, l));
+		assertEquals(2, factory.getCreationCount());
+	}
+
+	public void testUnusedBundlesCollected() throws InterruptedException
+	{
+		BundleFactory factory = new BundleFactory();
+		IStringProvider fr = provider("fr-FR");
+
+		factory.getBundle(R.string.class, fr, Locale.forLanguageTag("fr-FR"));
+		factory.getBundle(R.string.class, fr, Locale.forLanguageTag("fr-CA"), IResourceBundle.HTML_TYPE);
+		IResourceBundle kept = factory.getBundle(R.string.class, fr, Locale.forLanguageTag("fr-BE"));
+		assertEquals(4, factory.size());
+
+		for (int i = 0; i < 50 && factory.size() > 1; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(1, factory.size());
+		assertSame(kept, factory.getBundle(R.string.class, fr, Locale.forLanguageTag("fr-BE")));
+	}
+
+	public void testConcurrentFirstRequestBuildsOnce() throws InterruptedException
+	{
+		final BundleFactory factory = new BundleFactory();
+		final IStringProvider fr = provider("fr-FR");
+		final int threads = 16;
+		final CountDownLatch start = new CountDownLatch(1);
+		final ConcurrentLinkedQueue<IResourceBundle> results = new ConcurrentLinkedQueue<IResourceBundle>();
+
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final String type = (t % 2 == 0) ? IResourceBundle.RAW_TYPE : IResourceBundle.HTML_TYPE;
+			workers[t] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+						results.add(factory.getBundle(R.string.class, fr, Locale.forLanguageTag("ru-RU"), type));
+					} catch (InterruptedException e) {
+						// fall through and let the count below fail
+					}
+				}
+			});
+			workers[t].start();
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		assertEquals(threads, results.size());
+		assertEquals(1, factory.getCreationCount());
+		IResourceBundle raw = factory.getBundle(R.string.class, fr, Locale.forLanguageTag("ru-RU"));
+		IResourceBundle html = factory.getBundle(R.string.class, fr, Locale.forLanguageTag("ru-RU"), IResourceBundle.HTML_TYPE);
+		for (IResourceBundle rb : results) {
+			assertTrue(rb == raw || rb == html);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.util.HashMap;
+import java.util.Locale;
+
+import com.healthtap.CompactStringProvider;
+import com.healthtap.IResourceBundle;
+
+import junit.framework.TestCase;
+
+/**
+ * @author edwin
+ *
+ */
+public class CompactStringProviderTest extends TestCase
+{
+	public void testGetString()
+	{
+		CompactStringProvider p = new CompactStringProvider(1, new String[] {"Connexion en cours...", null, "Terminé"});
+		assertEquals("Connexion en cours...", p.getString(1));
+		assertNull(p.getString(2));
+		assertEquals("Terminé", p.getString(3));
+		assertEquals(2, p.size());
+	}
+
+	public void testGetStringOutOfRange()
+	{
+		CompactStringProvider p = new CompactStringProvider(100, new String[] {"a", "b"});
+		assertNull(p.getString(99));
+		assertNull(p.getString(102));
+		assertNull(p.getString(Integer.MIN_VALUE));
+		assertNull(p.getString(Integer.MAX_VALUE));
+	}
+
+	public void testGetStringEmpty()
+	{
+		CompactStringProvider p = new CompactStringProvider(0, new String[] {"", null, ""});
+		assertEquals("", p.getString(0));
+		assertNull(p.getString(1));
+		assertEquals("", p.getString(2));
+		assertTrue(p.containsId(0));
+		assertFalse(p.containsId(1));
+	}
+
+	public void testGetStringNonLatin1()
+	{
+		CompactStringProvider p = new CompactStringProvider(0, new String[] {"Done", "保持备份打开", "Инвалид"});
+		assertEquals("Done", p.getString(0));
+		assertEquals("保持备份打开", p.getString(1));
+		assertEquals("Инвалид", p.getString(2));
+	}
+
+	public void testMemorySizeLatin1()
+	{
+		CompactStringProvider p = new CompactStringProvider(0, new String[] {"abcd", "éfgh"});
+		// 8 bytes of text plus 3 offsets
+		assertEquals(8 + 12, p.getMemorySize());
+	}
+
+	public void testMemorySizeUTF16()
+	{
+		CompactStringProvider p = new CompactStringProvider(0, new String[] {"ab", "子"});
+		assertEquals(6 + 12, p.getMemorySize());
+	}
+
+	public void testNullArray()
+	{
+		try {
+			new CompactStringProvider(0, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testFromMap()
+	{
+		HashMap<Integer, String> map = new HashMap<Integer, String>();
+		map.put(0x7f0c0003, "Listo");
+		map.put(0x7f0c0001, "Falló");
+		CompactStringProvider p = CompactStringProvider.fromMap(map);
+		assertEquals("Falló", p.getString(0x7f0c0001));
+		assertNull(p.getString(0x7f0c0002));
+		assertEquals("Listo", p.getString(0x7f0c0003));
+		assertEquals(2, p.size());
+	}
+
+	public void testFromMapEmpty()
+	{
+		CompactStringProvider p = CompactStringProvider.fromMap(new HashMap<Integer, String>());
+		assertEquals(0, p.size());
+		assertNull(p.getString(0));
+	}
+
+	public void testFromMapTooSparse()
+	{
+		HashMap<Integer, String> map = new HashMap<Integer, String>();
+		map.put(1, "a");
+		map.put(1000000, "b");
+		try {
+			CompactStringProvider.fromMap(map);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testWithResourceBundle()
+	{
+		CompactStringProvider p = new CompactStringProvider(1, new String[] {"Connexion en cours...", null, null, null, null, "Services Palm"});
+		IResourceBundle rb = new IResourceBundle(R.string.class, p, Locale.forLanguageTag("fr-FR"));
+		assertEquals("Connexion en cours...", rb.getString("Signing in..."));
+		assertEquals("Services Palm", rb.getString("Palm Services"));
+		assertEquals("Done", rb.getString("Done"));
+	}
+}
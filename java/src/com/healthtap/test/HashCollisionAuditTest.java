@@ -0,0 +1,186 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.healthtap.HashCollisionAudit;
+import com.healthtap.HashCollisionAudit.Collision;
+import com.healthtap.HashKey;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class HashCollisionAuditTest extends TestCase
+{
+	// two different strings with the same hash key
+	private static final String FIRST = "ehdxubls";
+	private static final String SECOND = "demzebiw";
+
+	public void testKnownCollision()
+	{
+		assertEquals(HashKey.hash(FIRST), HashKey.hash(SECOND));
+		assertEquals("r964840167", HashKey.hash(FIRST));
+	}
+
+	public void testNoCollisions()
+	{
+		HashCollisionAudit audit = new HashCollisionAudit();
+		audit.add("Done", "a.xml", 1);
+		audit.add("Cancel", "a.xml", 2);
+		audit.add("Done", "b.xml", 7);
+		assertTrue(audit.audit().isEmpty());
+		assertEquals(3, audit.size());
+		assertEquals(2, audit.getDistinctCount());
+	}
+
+	public void testCollisionReportedWithLocations()
+	{
+		HashCollisionAudit audit = new HashCollisionAudit();
+		audit.add(FIRST, "a.xml", 3);
+		audit.add("Done", "a.xml", 4);
+		audit.add(SECOND, "b.xml", 10);
+		audit.add(FIRST, "c.xml", 5);
+
+		List<Collision> collisions = audit.audit();
+		assertEquals(1, collisions.size());
+		Collision c = collisions.get(0);
+		assertEquals("r964840167", c.getKey());
+		assertEquals(FIRST, c.getFirst());
+		assertEquals(Arrays.asList("a.xml:3", "c.xml:5"), c.getFirstLocations());
+		assertEquals(SECOND, c.getSecond());
+		assertEquals(Arrays.asList("b.xml:10"), c.getSecondLocations());
+		assertEquals("r964840167: \"ehdxubls\" [a.xml:3, c.xml:5] collides with \"demzebiw\" [b.xml:10]", c.toString());
+	}
+
+	public void testEquivalentStringsNotReported()
+	{
+		HashCollisionAudit audit = new HashCollisionAudit();
+		audit.add("Done", "a.xml", 1);
+		audit.add("  Done ", "a.xml", 2);
+		audit.add("Can\\'t  find\tid", "a.xml", 3);
+		audit.add("Can't find id", "a.xml", 4);
+		assertTrue(audit.audit().isEmpty());
+		assertEquals(2, audit.getDistinctCount());
+	}
+
+	public void testEveryPairReported()
+	{
+		HashCollisionAudit audit = new HashCollisionAudit();
+		audit.add(FIRST, null, 1);
+		audit.add(SECOND, null, 2);
+		audit.add(" " + SECOND, null, 3);
+		audit.add("x" + FIRST, null, 4);
+
+		List<Collision> collisions = audit.audit();
+		assertEquals(1, collisions.size());
+		assertEquals(Arrays.asList(":2", ":3"), collisions.get(0).getSecondLocations());
+	}
+
+	public void testEquivalentStringsMatchRegexNormalization()
+	{
+		char[] alphabet = {'\\', '\\', '\\', 'n', 't', '\'', '"', 'a', ' ', '\t', '\n', '\r', '\f', '\u000b', '\u0001'};
+		Random random = new Random(20161017L);
+		StringBuilder sb = new StringBuilder();
+		HashCollisionAudit audit = new HashCollisionAudit();
+		Set<String> normalized = new HashSet<String>();
+
+		for (int i = 0; i < 5000; i++) {
+			sb.setLength(0);
+			int len = random.nextInt(8);
+			for (int j = 0; j < len; j++) {
+				sb.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			String str = sb.toString();
+			audit.add(str, "random.xml", i + 1);
+			normalized.add(regexNormalize(str));
+		}
+
+		audit.audit();
+		assertEquals(normalized.size(), audit.getDistinctCount());
+	}
+
+	public void testAddReader() throws IOException
+	{
+		HashCollisionAudit audit = new HashCollisionAudit();
+		audit.add(new BufferedReader(new StringReader("Done\n" + FIRST + "\nCancel\n" + SECOND + "\n")), "strings.txt");
+		assertEquals(4, audit.size());
+
+		List<Collision> collisions = audit.audit();
+		assertEquals(1, collisions.size());
+		assertEquals(Arrays.asList("strings.txt:2"), collisions.get(0).getFirstLocations());
+		assertEquals(Arrays.asList("strings.txt:4"), collisions.get(0).getSecondLocations());
+	}
+
+	public void testAddNull()
+	{
+		try {
+			new HashCollisionAudit().add(null, "a.xml", 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testLargeCorpus()
+	{
+		HashCollisionAudit audit = new HashCollisionAudit();
+		for (int i = 0; i < 100000; i++) {
+			audit.add("string " + i, "big.xml", i + 1);
+		}
+		audit.add(FIRST, "big.xml", 100001);
+		audit.add(SECOND, "big.xml", 100002);
+
+		List<Collision> collisions = audit.audit();
+		assertEquals(100002, audit.size());
+		boolean found = false;
+		for (Collision c : collisions) {
+			assertEquals(HashKey.hash(c.getFirst()), HashKey.hash(c.getSecond()));
+			assertFalse(c.getFirst().equals(c.getSecond()));
+			if (c.getFirst().equals(FIRST)) {
+				found = true;
+			}
+		}
+		assertTrue(found);
+	}
+
+	private static String regexNormalize(String source)
+	{
+		return source.
+			replaceAll("^\\\\\\\\", " ").
+			replaceAll("([^\\\\])\\\\\\\\", "$1 ").
+			replaceAll("\\\\n", "\n").
+			replaceAll("\\\\t", "\t").
+			replaceAll("\\\\'", "'").
+			replaceAll("([^\\\\])\\\\'", "$1'").
+			replaceAll("\\\\\"", "\"").
+			replaceAll("([^\\\\])\\\\\"", "$1\"").
+			replaceAll("[ \n\t\r\f]+", " ").
+			trim();
+	}
+}
@@ -16,6 +16,10 @@
  */
 package com.healthtap.test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import junit.framework.TestCase;
 import com.healthtap.HashKey;
 
@@ -96,4 +100,121 @@ public class HashKeyTest extends TestCase
     {
         assertEquals("r968833504", HashKey.hash("A \\\\n B"));
     }
+
+    public void testHashKeyBackslashRuns()
+    {
+        assertEquals(legacyHash("\\\\\\\\'a"), HashKey.hash("\\\\\\\\'a"));
+        assertEquals(legacyHash("a\\\\\\\\'"), HashKey.hash("a\\\\\\\\'"));
+        assertEquals(legacyHash("a\\\\\\\\\\\""), HashKey.hash("a\\\\\\\\\\\""));
+        assertEquals(legacyHash("\\\\\\n\\\\t"), HashKey.hash("\\\\\\n\\\\t"));
+        assertEquals(legacyHash("\\"), HashKey.hash("\\"));
+    }
+
+    public void testHashKeyTrimControlChars()
+    {
+        assertEquals(legacyHash("\u0001 foo \u000b\u0002 "), HashKey.hash("\u0001 foo \u000b\u0002 "));
+        assertEquals(legacyHash("foo \u000b bar"), HashKey.hash("foo \u000b bar"));
+        assertEquals("r0", HashKey.hash(" \t\n "));
+        assertEquals("r0", HashKey.hash(""));
+    }
+
+    public void testHashKeyMatchesRegexNormalization()
+    {
+        char[] alphabet = {'\\', '\\', '\\', 'n', 't', '\'', '"', 'a', ' ', '\t', '\n', '\r', '\f', '\u000b', '\u0001'};
+        Random random = new Random(20161017L);
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 20000; i++) {
+            sb.setLength(0);
+            int len = random.nextInt(16);
+            for (int j = 0; j < len; j++) {
+                sb.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String str = sb.toString();
+            assertEquals("'" + str + "'", legacyHash(str), HashKey.hash(str));
+        }
+    }
+
+    public void testHashKeyCharSequence()
+    {
+        StringBuilder sb = new StringBuilder("Can\'t find ");
+        sb.append(" id");
+        assertEquals("r743945592", HashKey.hash(sb));
+        assertEquals(743945592, HashKey.hashValue(sb));
+    }
+
+    public void testHashKeyCharArrayRange()
+    {
+        char[] buffer = "xxCan\'t find id  yy".toCharArray();
+        assertEquals("r743945592", HashKey.hash(buffer, 2, 15));
+        assertEquals(743945592, HashKey.hashValue(buffer, 2, 15));
+    }
+
+    public void testHashKeyCharArrayRangeOutOfBounds()
+    {
+        char[] buffer = "abc".toCharArray();
+        try {
+            HashKey.hash(buffer, 2, 2);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    public void testHashValuesMatchesHash()
+    {
+        Random random = new Random(20170301L);
+        List<String> sources = new ArrayList<String>();
+        // large enough to be split up and hashed in parallel
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = random.nextInt(40);
+            for (int j = 0; j < len; j++) {
+                sb.append((char)(' ' + random.nextInt(95)));
+            }
+            sources.add(sb.toString());
+        }
+
+        int[] values = HashKey.hashValues(sources);
+        assertEquals(sources.size(), values.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(HashKey.hash(sources.get(i)), "r" + values[i]);
+        }
+    }
+
+    public void testHashValuesSmallBatch()
+    {
+        int[] values = HashKey.hashValues(new CharSequence[] {"Experts", new StringBuilder("News")});
+        assertEquals(2, values.length);
+        assertEquals(343852585, values[0]);
+        assertEquals(613036745, values[1]);
+        assertEquals(0, HashKey.hashValues(new CharSequence[0]).length);
+    }
+
+    /**
+     * The original regular expression based implementation of the hash,
+     * kept to verify that the single-pass version gives identical results.
+     */
+    private static String legacyHash(String source)
+    {
+        String str = source.
+            replaceAll("^\\\\\\\\", " ").
+            replaceAll("([^\\\\])\\\\\\\\", "$1 ").
+            replaceAll("\\\\n", "\n").
+            replaceAll("\\\\t", "\t").
+            replaceAll("\\\\'", "'").
+            replaceAll("([^\\\\])\\\\'", "$1'").
+            replaceAll("\\\\\"", "\"").
+            replaceAll("([^\\\\])\\\\\"", "$1\"").
+            replaceAll("[ \n\t\r\f]+", " ").
+            trim();
+
+        long hash = 0;
+        for (int i = 0; i < str.length(); i++) {
+            hash += str.charAt(i);
+            hash *= 65521;
+            hash %= 1073741789L;
+        }
+        return "r" + hash;
+    }
 }
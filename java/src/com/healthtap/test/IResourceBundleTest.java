@@ -16,12 +16,29 @@
  */
 package com.healthtap.test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import com.healthtap.HashKey;
 import com.healthtap.IResourceBundle;
 import com.healthtap.IResourceBundle.MissingType;
+import com.healthtap.IResourceBundle.PreloadResult;
 import com.healthtap.IStringProvider;
+import com.healthtap.MetricsCollector;
+import com.healthtap.ResultCache;
+import com.healthtap.ResultCache.EvictionPolicy;
+import com.healthtap.StringIndex;
 
 import junit.framework.TestCase;
 
@@ -71,6 +88,46 @@ public class IResourceBundleTest extends TestCase
 		}
 	}
 		
+	/**
+	 * Exposes the protected escaping methods for testing.
+	 */
+	public static class EscapingBundle extends IResourceBundle {
+		public EscapingBundle() {
+			super(R.string.class, null, Locale.forLanguageTag("en-US"));
+		}
+
+		public String callEscape(String str) {
+			return escape(str);
+		}
+
+		public String callUnescape(String str) {
+			return unescape(str);
+		}
+	}
+
+	/**
+	 * Brackets missing strings, and makes views of its own type.
+	 */
+	public static class BracketingBundle extends IResourceBundle {
+		public BracketingBundle(Locale locale) {
+			super(R.string.class, new IResourceBundleTest().new MockResources(locale), locale);
+		}
+
+		private BracketingBundle(IResourceBundle other, String type, MissingType missing, boolean lengthen) {
+			super(other, type, missing, lengthen);
+		}
+
+		@Override
+		protected String getMissingString(String source) {
+			return "[" + super.getMissingString(source) + "]";
+		}
+
+		@Override
+		protected IResourceBundle newView(String type, MissingType missing, boolean lengthen) {
+			return new BracketingBundle(this, type, missing, lengthen);
+		}
+	}
+
 	public void testConstructorNotNull()
 	{
 		MockResources res = new MockResources();
@@ -463,6 +520,62 @@ public class IResourceBundleTest extends TestCase
 	}
 	*/
 	
+	public void testGetStringPseudoLengtheningLongStrings()
+	{
+		final Locale locale = Locale.forLanguageTag("de-DE");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(locale), locale);
+		resBundle.setLengthen(false);
+		IResourceBundle lengthened = resBundle.withLengthen(true);
+
+		StringBuilder source = new StringBuilder();
+		for (int n = 0; n < 700; n++) {
+			String plain = resBundle.getStringPseudo(source.toString());
+			int len = plain.length();
+			int add = (len <= 20) ? len / 2 : (len <= 40) ? len / 3 : len / 5;
+			StringBuilder expected = new StringBuilder(plain);
+			for (int i = add - 1; i >= 0; i--) {
+				expected.append(i % 10);
+			}
+			assertEquals(expected.toString(), lengthened.getStringPseudo(source.toString()));
+			source.append((char)('a' + n % 26));
+		}
+	}
+
+	public void testGetStringPseudoCached()
+	{
+		final Locale locale = Locale.forLanguageTag("de-DE");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(locale), locale);
+		String first = resBundle.getStringPseudo("Cached pseudo string");
+		assertSame(first, resBundle.getStringPseudo("Cached pseudo string"));
+
+		// another bundle for the same script shares the results
+		IResourceBundle other = new IResourceBundle(R.string.class, new MockResources(locale), Locale.forLanguageTag("fr-FR"));
+		assertSame(first, other.getStringPseudo("Cached pseudo string"));
+	}
+
+	public void testGetStringPseudoCachedPerTypeAndLengthen()
+	{
+		final Locale locale = Locale.forLanguageTag("de-DE");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(locale), locale);
+		String source = "<b>{name}</b> \\n %s";
+
+		String raw = resBundle.getStringPseudo(source);
+		String html = resBundle.withType(IResourceBundle.HTML_TYPE).getStringPseudo(source);
+		String java = resBundle.withType(IResourceBundle.JAVA_TYPE).getStringPseudo(source);
+		String shorter = resBundle.withLengthen(false).getStringPseudo(source);
+		assertFalse(raw.equals(html));
+		assertFalse(html.equals(java));
+		assertFalse(raw.equals(shorter));
+		assertEquals("<b>{name}</b> \\ñ %š", resBundle.withType(IResourceBundle.HTML_TYPE).withLengthen(false).getStringPseudo(source));
+		assertEquals(html, resBundle.withType(IResourceBundle.XML_TYPE).getStringPseudo(source));
+
+		// changing the settings of a mutable bundle does not return the old results
+		resBundle.setType(IResourceBundle.JAVA_TYPE);
+		assertEquals(java, resBundle.getStringPseudo(source));
+		resBundle.setLengthen(false);
+		assertFalse(java.equals(resBundle.getStringPseudo(source)));
+	}
+
 	public void testGetStringPseudoTypeJavaSkipPercentReplacements()
 	{
 		final Locale locale = Locale.forLanguageTag("de-DE");
@@ -645,4 +758,755 @@ public class IResourceBundleTest extends TestCase
         assertEquals("r276797171", resBundle.makeKey("This is a double quoted string with \\t tab chars in it"));
         assertEquals("r303137748", resBundle.makeKey("This is a single quoted string with \\t tab chars in it"));
 	}
+
+	public void testGetStringCached()
+	{
+		Locale l = Locale.forLanguageTag("es-ES");
+		MockResources res = new MockResources(l);
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, res, l);
+		ResultCache cache = new ResultCache(10, EvictionPolicy.LRU);
+		resBundle.setCache(cache);
+		assertSame(cache, resBundle.getCache());
+
+		assertEquals("  Aceptar ", resBundle.getString("  Done "));
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		assertEquals("  Aceptar ", resBundle.getString("  Done "));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	public void testGetStringCachedMissing()
+	{
+		Locale l = Locale.forLanguageTag("de-DE");
+		MockResources res = new MockResources(l);
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, res, l);
+		resBundle.setCache(new ResultCache(10, EvictionPolicy.LRU));
+		resBundle.setMissingType(MissingType.PSEUDO);
+
+		assertEquals("Ðõñ'ţ Úþðàţë àñ ëmàíľ6543210", resBundle.getString("Don't Update an email"));
+		assertEquals("Ðõñ'ţ Úþðàţë àñ ëmàíľ6543210", resBundle.getString("Don't Update an email"));
+		assertEquals(1, resBundle.getCache().getHitCount());
+	}
+
+	public void testGetStringCacheKeptOnConfigChange()
+	{
+		Locale l = Locale.forLanguageTag("de-DE");
+		MockResources res = new MockResources(l);
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, res, l);
+		resBundle.setCache(new ResultCache(10, EvictionPolicy.LRU));
+
+		assertEquals("Don't Update an email", resBundle.getString("Don't Update an email"));
+		assertEquals(1, resBundle.getCache().size());
+
+		resBundle.setMissingType(MissingType.EMPTY);
+		assertEquals(1, resBundle.getCache().size());
+		assertEquals("", resBundle.getString("Don't Update an email"));
+		assertEquals(2, resBundle.getCache().size());
+
+		resBundle.setMissingType(MissingType.SOURCE);
+		assertEquals("Don't Update an email", resBundle.getString("Don't Update an email"));
+		assertEquals(1, resBundle.getCache().getHitCount());
+
+		resBundle.setType(IResourceBundle.HTML_TYPE);
+		resBundle.setLengthen(false);
+		assertEquals(2, resBundle.getCache().size());
+	}
+
+	public void testGetStringCacheSharedWithViews()
+	{
+		Locale l = Locale.forLanguageTag("es-ES");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+		resBundle.setCache(new ResultCache(10, EvictionPolicy.LRU));
+		IResourceBundle frozen = resBundle.freeze();
+
+		resBundle.setStringProvider(new MockResources(Locale.forLanguageTag("es-MX")));
+
+		// the view still uses the old provider, and its results must not
+		// be served to the bundle that now uses the new one
+		assertEquals("Aceptar", frozen.getString("Done"));
+		assertEquals("Listo", resBundle.getString("Done"));
+		assertEquals("Aceptar", frozen.getString("Done"));
+		assertEquals(2, resBundle.getCache().size());
+		assertEquals(1, resBundle.getCache().getHitCount());
+
+		// changing the settings of the origin leaves the entries of the view alone
+		resBundle.setType(IResourceBundle.HTML_TYPE);
+		resBundle.setMissingType(MissingType.EMPTY);
+		resBundle.setLengthen(true);
+		assertEquals(2, resBundle.getCache().size());
+		assertEquals("Aceptar", frozen.getString("Done"));
+		assertEquals(2, resBundle.getCache().getHitCount());
+	}
+
+	public void testPreload()
+	{
+		final Locale locale = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(locale), locale);
+		resBundle.setCache(new ResultCache(100, EvictionPolicy.LRU));
+		MetricsCollector metrics = new MetricsCollector();
+		resBundle.setMetricsListener(metrics);
+
+		PreloadResult result = resBundle.preload();
+		assertEquals(8, result.getKeyCount());
+		assertEquals(2, result.getFoundCount());
+		assertTrue(result.getDurationNanos() > 0);
+		assertEquals(1, metrics.getProviderCallCount());
+		assertEquals(2, resBundle.getCache().size());
+		assertEquals(0, metrics.getFoundCount());
+
+		assertEquals("Connexion en cours...", resBundle.getString("r479509761"));
+		assertEquals(1, metrics.getCacheHitCount());
+		assertEquals("Services Palm", resBundle.getString("Palm Services"));
+	}
+
+	public void testPreloadKeepsCacheWhenKeysDoNotFit()
+	{
+		final Locale locale = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(locale), locale);
+		resBundle.setCache(new ResultCache(8, EvictionPolicy.LRU));
+
+		assertEquals("Services Palm", resBundle.getString("Palm Services"));
+		assertEquals(1, resBundle.getCache().size());
+
+		// 8 keys do not fit in the 7 free entries, so the cache is not filled
+		assertEquals(2, resBundle.preload().getFoundCount());
+		assertEquals(1, resBundle.getCache().size());
+		assertEquals("Services Palm", resBundle.getString("Palm Services"));
+		assertEquals(1, resBundle.getCache().getHitCount());
+	}
+
+	public void testPreloadBatches()
+	{
+		final int n = 3000;
+		String[] names = new String[n];
+		int[] ids = new int[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = "r" + i;
+			ids[i] = i + 1;
+		}
+		final int[] calls = new int[1];
+		IStringProvider provider = new IStringProvider() {
+			public String getString(int id) {
+				return (id % 2 == 0) ? "string " + id : null;
+			}
+			public String[] getStrings(int[] ids) {
+				calls[0]++;
+				return IStringProvider.super.getStrings(ids);
+			}
+		};
+		IResourceBundle resBundle = new IResourceBundle(StringIndex.build(names, ids), provider, Locale.forLanguageTag("de-DE"));
+		PreloadResult result = resBundle.preload();
+		assertEquals(n, result.getKeyCount());
+		assertEquals(n / 2, result.getFoundCount());
+		assertEquals(3, calls[0]);
+	}
+
+	public void testPreloadKeepsStripedCacheWhenKeysDoNotFit()
+	{
+		final int n = 3000;
+		String[] names = new String[n];
+		int[] ids = new int[n];
+		for (int i = 0; i < n; i++) {
+			names[i] = "r" + i;
+			ids[i] = i + 1;
+		}
+		IStringProvider provider = new IStringProvider() {
+			public String getString(int id) {
+				return "string " + id;
+			}
+		};
+		IResourceBundle resBundle = new IResourceBundle(StringIndex.build(names, ids), provider, Locale.forLanguageTag("de-DE"));
+		// room for 3008 entries in all, but only 188 in each of 16 segments,
+		// and the 3000 keys are not spread over them that evenly
+		resBundle.setCache(new ResultCache(3008, EvictionPolicy.LRU));
+		assertEquals(16, resBundle.getCache().getSegmentCount());
+
+		assertEquals(n, resBundle.preload().getFoundCount());
+		assertEquals(0, resBundle.getCache().size());
+		assertEquals(0, resBundle.getCache().getEvictionCount());
+	}
+
+	public void testPreloadAsync() throws Exception
+	{
+		final Locale locale = Locale.forLanguageTag("de-DE");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(locale), locale).freeze();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			PreloadResult result = resBundle.preloadAsync(executor).get(10, TimeUnit.SECONDS);
+			assertEquals(8, result.getKeyCount());
+			assertEquals(1, result.getFoundCount());
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(8, resBundle.preloadAsync().get(10, TimeUnit.SECONDS).getKeyCount());
+
+		try {
+			resBundle.preloadAsync(null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testPreloadPseudoLocale()
+	{
+		final Locale locale = Locale.forLanguageTag("zxx-XX");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(Locale.forLanguageTag("fr-FR")), locale);
+		resBundle.setCache(new ResultCache(100, EvictionPolicy.LRU));
+		assertEquals(2, resBundle.preload().getFoundCount());
+		// the pseudo locale never returns the translations, so they are not cached
+		assertEquals(0, resBundle.getCache().size());
+	}
+
+	public void testGetStringCacheOnProviderChange()
+	{
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(Locale.forLanguageTag("es-ES")), Locale.forLanguageTag("es-ES"));
+		resBundle.setCache(new ResultCache(10, EvictionPolicy.LRU));
+
+		assertEquals("Aceptar", resBundle.getString("Done"));
+
+		MockResources mx = new MockResources(Locale.forLanguageTag("es-MX"));
+		resBundle.setStringProvider(mx);
+		assertSame(mx, resBundle.getStringProvider());
+		assertEquals("Listo", resBundle.getString("Done"));
+		assertEquals("Listo", resBundle.getString("Done"));
+		assertEquals(1, resBundle.getCache().getHitCount());
+	}
+
+	public void testGetStringCacheOff()
+	{
+		Locale l = Locale.forLanguageTag("es-ES");
+		MockResources res = new MockResources(l);
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, res, l);
+		assertNull(resBundle.getCache());
+
+		resBundle.setCache(new ResultCache());
+		resBundle.setCache(null);
+		assertNull(resBundle.getCache());
+		assertEquals("Aceptar", resBundle.getString("Done"));
+	}
+
+	public void testFreezeIsImmutable()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+		assertFalse(resBundle.isFrozen());
+
+		IResourceBundle frozen = resBundle.freeze();
+		assertTrue(frozen.isFrozen());
+		assertSame(frozen, frozen.freeze());
+		assertEquals("Connexion en cours...", frozen.getString("Signing in..."));
+
+		try {
+			frozen.setType(IResourceBundle.HTML_TYPE);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			frozen.setMissingType(MissingType.PSEUDO);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			frozen.setLengthen(false);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			frozen.setStringProvider(new MockResources());
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			frozen.setCache(new ResultCache());
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals(IResourceBundle.RAW_TYPE, frozen.getType());
+	}
+
+	public void testFreezeIsASnapshot()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+		IResourceBundle frozen = resBundle.freeze();
+
+		resBundle.setType(IResourceBundle.HTML_TYPE);
+		resBundle.setMissingType(MissingType.EMPTY);
+
+		assertEquals(IResourceBundle.RAW_TYPE, frozen.getType());
+		assertEquals(MissingType.SOURCE, frozen.getMissing());
+		assertEquals("Fish & Chips", frozen.getString("Fish & Chips"));
+		assertEquals("", resBundle.getString("Fish & Chips"));
+	}
+
+	public void testWithTypeSharesState()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+		resBundle.setCache(new ResultCache(10, EvictionPolicy.LRU));
+
+		IResourceBundle html = resBundle.withType("HTML");
+		assertTrue(html.isFrozen());
+		assertEquals(IResourceBundle.HTML_TYPE, html.getType());
+		assertEquals(IResourceBundle.RAW_TYPE, resBundle.getType());
+		assertSame(resBundle.getStringProvider(), html.getStringProvider());
+		assertSame(resBundle.getCache(), html.getCache());
+		assertSame(resBundle.getLocale(), html.getLocale());
+		assertSame(html, html.withType(IResourceBundle.HTML_TYPE));
+
+		assertEquals("Fish &amp; Chips", html.getString("Fish & Chips"));
+		assertEquals("Fish & Chips", resBundle.getString("Fish & Chips"));
+		assertEquals("Services Palm", html.getString("Palm Services"));
+	}
+
+	public void testWithMissingAndLengthen()
+	{
+		Locale l = Locale.forLanguageTag("de-DE");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+
+		IResourceBundle pseudo = resBundle.withMissing(MissingType.PSEUDO);
+		assertEquals(MissingType.PSEUDO, pseudo.getMissing());
+		assertEquals(MissingType.SOURCE, resBundle.getMissing());
+		assertSame(pseudo, pseudo.withMissing(MissingType.PSEUDO));
+		assertEquals("Ðõñ'ţ Úþðàţë àñ ëmàíľ6543210", pseudo.getString("Don't Update an email"));
+
+		IResourceBundle shortPseudo = pseudo.withLengthen(false);
+		assertFalse(shortPseudo.isLengthen());
+		assertEquals(MissingType.PSEUDO, shortPseudo.getMissing());
+		assertEquals("Ðõñ'ţ Úþðàţë àñ ëmàíľ", shortPseudo.getString("Don't Update an email"));
+		assertEquals("Nicht aktualisieren", shortPseudo.getString("Don't Update"));
+	}
+
+	public void testSharedViewsConcurrent() throws InterruptedException
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle base = new IResourceBundle(R.string.class, new MockResources(l), l);
+		base.setCache(new ResultCache(8, EvictionPolicy.LRU));
+
+		final IResourceBundle[] views = {
+			base.freeze(),
+			base.withType(IResourceBundle.HTML_TYPE),
+			base.withMissing(MissingType.PSEUDO),
+			base.withType(IResourceBundle.XML_TYPE).withMissing(MissingType.PSEUDO).withLengthen(false),
+			base.withMissing(MissingType.PLACEHOLDER)
+		};
+		final String[] sources = {
+			"Signing in...",
+			"Palm Services",
+			"Fish & Chips",
+			"  Don't Update an email ",
+			"<b>{name}</b> is here"
+		};
+
+		// work out the expected results on a private, uncached bundle with the same settings
+		final String[][] expected = new String[views.length][sources.length];
+		for (int v = 0; v < views.length; v++) {
+			IResourceBundle rb = new IResourceBundle(R.string.class, new MockResources(l), l);
+			rb.setType(views[v].getType());
+			rb.setMissingType(views[v].getMissing());
+			rb.setLengthen(views[v].isLengthen());
+			for (int s = 0; s < sources.length; s++) {
+				expected[v][s] = rb.getString(sources[s]);
+			}
+		}
+
+		final int threads = 8;
+		final int iterations = 20000;
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<String>();
+
+		for (int t = 0; t < threads; t++) {
+			final int seed = t;
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < iterations; i++) {
+							int v = (i + seed) % views.length;
+							int s = (i * 7 + seed) % sources.length;
+							String result = views[v].getString(sources[s]);
+							if (!expected[v][s].equals(result)) {
+								failures.add(views[v].getType() + "/" + views[v].getMissing() + ": " + sources[s] + " -> " + result);
+								return;
+							}
+						}
+					} catch (Throwable e) {
+						failures.add(e.toString());
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+			thread.start();
+		}
+
+		start.countDown();
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		assertTrue(failures.toString(), failures.isEmpty());
+		assertTrue(base.getCache().getEvictionCount() > 0);
+	}
+
+	public void testGetStrings()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+
+		String[] results = resBundle.getStrings(new String[] {
+			"Signing in...",
+			"Not translated",
+			null,
+			"  Palm Services\n",
+			"r479509761"
+		});
+		assertEquals(5, results.length);
+		assertEquals("Connexion en cours...", results[0]);
+		assertEquals("Not translated", results[1]);
+		assertNull(results[2]);
+		assertEquals("  Services Palm\n", results[3]);
+		assertEquals("Connexion en cours...", results[4]);
+	}
+
+	public void testGetStringsEmpty()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+		assertEquals(0, resBundle.getStrings(new String[0]).length);
+	}
+
+	public void testGetStringsSameAsGetString()
+	{
+		String[] sources = {
+			"Signing in...",
+			"Palm Services",
+			"Don't Update",
+			"Fish & Chips",
+			"  <b>{name}</b> is here ",
+			"Done"
+		};
+		String[] locales = {"fr-FR", "de-DE", "es-MX", "zxx-XX"};
+
+		for (String tag : locales) {
+			Locale l = Locale.forLanguageTag(tag);
+			IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+			IResourceBundle[] views = {
+				resBundle.freeze(),
+				resBundle.withType(IResourceBundle.HTML_TYPE),
+				resBundle.withMissing(MissingType.PSEUDO).withType(IResourceBundle.JAVA_TYPE),
+				resBundle.withMissing(MissingType.EMPTY)
+			};
+			for (IResourceBundle rb : views) {
+				String[] results = rb.getStrings(sources);
+				for (int i = 0; i < sources.length; i++) {
+					assertEquals(tag + " " + rb.getType(), rb.getString(sources[i]), results[i]);
+				}
+			}
+		}
+	}
+
+	public void testGetStringsCached()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+		resBundle.setCache(new ResultCache(10, EvictionPolicy.LRU));
+
+		assertEquals("Connexion en cours...", resBundle.getString("Signing in..."));
+		String[] results = resBundle.getStrings(new String[] {"Signing in...", "Palm Services"});
+		assertEquals("Connexion en cours...", results[0]);
+		assertEquals("Services Palm", results[1]);
+		assertEquals(1, resBundle.getCache().getHitCount());
+		assertEquals(2, resBundle.getCache().size());
+	}
+
+	public void testGetStringsBatchFailsFallsBackToSingle()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		MockResources res = new MockResources(l) {
+			@Override
+			public String[] getStrings(int[] ids) {
+				throw new IllegalStateException("store unavailable");
+			}
+		};
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, res, l);
+
+		String[] results = resBundle.getStrings(new String[] {"Signing in...", "Palm Services", "Done"});
+		assertEquals("Connexion en cours...", results[0]);
+		assertEquals("Services Palm", results[1]);
+		assertEquals("Done", results[2]);
+	}
+
+	public void testGetStringsDefaultProvider()
+	{
+		MockResources res = new MockResources(Locale.forLanguageTag("es-ES"));
+		String[] results = res.getStrings(new int[] {3, 1, 5});
+		assertEquals(3, results.length);
+		assertEquals("Aceptar", results[0]);
+		assertNull(results[1]);
+		assertEquals("Se envió un mensaje de verificación a {email}.", results[2]);
+	}
+
+	public void testEscape()
+	{
+		EscapingBundle rb = new EscapingBundle();
+		assertNull(rb.callEscape(null));
+		assertEquals("", rb.callEscape(""));
+		assertEquals("&lt;b&gt;Fish &amp; Chips&lt;/b&gt;", rb.callEscape("<b>Fish & Chips</b>"));
+		assertEquals("&amp;amp;", rb.callEscape("&amp;"));
+	}
+
+	public void testEscapeNothingToEscapeReturnsSame()
+	{
+		EscapingBundle rb = new EscapingBundle();
+		String str = "Nothing to see here";
+		assertSame(str, rb.callEscape(str));
+	}
+
+	public void testUnescape()
+	{
+		EscapingBundle rb = new EscapingBundle();
+		assertNull(rb.callUnescape(null));
+		assertEquals("<b>Fish & Chips</b>", rb.callUnescape("&lt;b&gt;Fish &amp; Chips&lt;/b&gt;"));
+		assertEquals("&amp;", rb.callUnescape("&amp;amp;"));
+		assertEquals("& a;", rb.callUnescape("& a;"));
+	}
+
+	public void testUnescapeNothingToUnescapeReturnsSame()
+	{
+		EscapingBundle rb = new EscapingBundle();
+		String str = "Nothing to see here";
+		assertSame(str, rb.callUnescape(str));
+	}
+
+	public void testUnescapeSameAsReplaceAll()
+	{
+		EscapingBundle rb = new EscapingBundle();
+		Random random = new Random(20161017L);
+		String alphabet = "&amp;ltgx <>";
+
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = random.nextInt(16);
+			for (int j = 0; j < length; j++) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			String str = sb.toString();
+
+			String expected = str.replaceAll("&amp;", "&").replaceAll("&lt;", "<").replaceAll("&gt;", ">");
+			assertEquals(str, expected, rb.callUnescape(str));
+
+			expected = str.replaceAll("&", "&amp;").replaceAll("<", "&lt;").replaceAll(">", "&gt;");
+			assertEquals(str, expected, rb.callEscape(str));
+		}
+	}
+
+	public void testGetStringAppendable() throws IOException
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+
+		StringWriter out = new StringWriter();
+		resBundle.getString("  Signing in...\t", null, out);
+		out.write('|');
+		resBundle.withType(IResourceBundle.HTML_TYPE).getString(" Fish & Chips ", null, out);
+		assertEquals("  Connexion en cours...\t|  Fish &amp; Chips  ", out.toString());
+	}
+
+	public void testGetStringStringBuilder()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+
+		StringBuilder sb = new StringBuilder("> ");
+		resBundle.getString(null, "r479509761", sb);
+		resBundle.getString(null, null, sb);
+		assertEquals("> Connexion en cours...", sb.toString());
+	}
+
+	public void testGetStringAppendableSameAsGetString()
+	{
+		String[] sources = {
+			"Signing in...",
+			"Palm Services",
+			"Don't Update",
+			"Fish & Chips",
+			"  <b>{name}</b> is here ",
+			"   ",
+			"Done"
+		};
+		String[] locales = {"fr-FR", "de-DE", "zxx-XX"};
+
+		for (String tag : locales) {
+			Locale l = Locale.forLanguageTag(tag);
+			IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+			IResourceBundle cached = new IResourceBundle(R.string.class, new MockResources(l), l);
+			cached.setCache(new ResultCache());
+			IResourceBundle[] views = {
+				resBundle.freeze(),
+				resBundle.withType(IResourceBundle.XML_TYPE),
+				resBundle.withMissing(MissingType.PSEUDO).withType(IResourceBundle.HTML_TYPE),
+				resBundle.withMissing(MissingType.PLACEHOLDER),
+				cached.withType(IResourceBundle.HTML_TYPE)
+			};
+			for (IResourceBundle rb : views) {
+				for (String source : sources) {
+					StringBuilder sb = new StringBuilder();
+					rb.getString(source, null, sb);
+					assertEquals(tag + " " + rb.getType(), rb.getString(source), sb.toString());
+				}
+			}
+		}
+	}
+
+	public void testGetStringById()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle rb = new IResourceBundle(R.string.class, new MockResources(l), l);
+
+		assertEquals("Connexion en cours...", rb.getString("Signing in...", R.string.r479509761));
+		assertEquals(" Connexion en cours...\t", rb.getString(" Signing in...\t", R.string.r479509761));
+		assertEquals("Done", rb.getString("Done", R.string.r481239240));
+		assertEquals("Not here", rb.getString("Not here", 12345));
+		assertEquals("????", rb.withMissing(MissingType.PLACEHOLDER).getString("Done", R.string.r481239240));
+		assertNull(rb.getString(null, R.string.r479509761));
+	}
+
+	public void testGetStringByIdSameAsGetString() throws Exception
+	{
+		String[] sources = {
+			"Signing in...",
+			"Palm Services",
+			"Don't Update",
+			"Fish & Chips",
+			"  <b>{name}</b> is here ",
+			"Done"
+		};
+		String[] locales = {"fr-FR", "de-DE", "es-MX", "zxx-XX"};
+
+		for (String tag : locales) {
+			Locale l = Locale.forLanguageTag(tag);
+			IResourceBundle resBundle = new IResourceBundle(R.string.class, new MockResources(l), l);
+			IResourceBundle[] views = {
+				resBundle.freeze(),
+				resBundle.withType(IResourceBundle.XML_TYPE),
+				resBundle.withMissing(MissingType.PSEUDO).withType(IResourceBundle.HTML_TYPE),
+				resBundle.withMissing(MissingType.EMPTY)
+			};
+			for (IResourceBundle rb : views) {
+				for (String source : sources) {
+					int id;
+					try {
+						id = R.string.class.getField(HashKey.hash(source)).getInt(null);
+					} catch (NoSuchFieldException e) {
+						id = 12345;
+					}
+					assertEquals(tag + " " + rb.getType(), rb.getString(source), rb.getString(source, id));
+				}
+			}
+		}
+	}
+
+	public void testRestoreWhitespaceMatchesRegex()
+	{
+		char[] alphabet = {' ', '\t', '\n', '\r', '\f', '\u000B', 'a', '\u2028', '\u0085', '\u00A0'};
+		Pattern start = Pattern.compile("^\\s*");
+		Pattern end = Pattern.compile("\\s*$");
+		Locale l = Locale.forLanguageTag("de-DE");
+		IResourceBundle rb = new IResourceBundle(R.string.class, new MockResources(l), l);
+		Random random = new Random(20170305L);
+		StringBuilder sb = new StringBuilder();
+
+		for (int i = 0; i < 5000; i++) {
+			sb.setLength(0);
+			int len = random.nextInt(8);
+			for (int j = 0; j < len; j++) {
+				sb.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			String source = sb.toString();
+			Matcher ms = start.matcher(source);
+			Matcher me = end.matcher(source);
+			String expected = (ms.find() ? ms.group() : "") + source + (me.find() ? me.group() : "");
+			// untranslated strings come back as the source with its whitespace added again
+			String chars = Arrays.toString(source.chars().toArray());
+			assertEquals(chars, expected, rb.getString(source, 12345));
+			assertEquals(chars, expected, rb.getString(source));
+			StringBuilder out = new StringBuilder();
+			rb.getString(source, null, out);
+			assertEquals(chars, expected, out.toString());
+		}
+	}
+
+	public void testGetPseudoCharacterOverride()
+	{
+		Locale l = Locale.forLanguageTag("de-DE");
+		IResourceBundle plain = new IResourceBundle(R.string.class, new MockResources(l), l);
+		IResourceBundle custom = new IResourceBundle(R.string.class, new MockResources(l), l) {
+			@Override
+			protected String getPseudoCharacter(String character)
+			{
+				return "a".equals(character) ? "@" : super.getPseudoCharacter(character);
+			}
+		};
+		plain.setLengthen(false);
+		custom.setLengthen(false);
+
+		String expected = plain.getStringPseudo("banana").replace(plain.getStringPseudo("a"), "@");
+		assertEquals(expected, custom.getStringPseudo("banana"));
+		// views of the subclass use the override too
+		assertEquals("<b>@</b>", custom.withType(IResourceBundle.HTML_TYPE).getStringPseudo("<b>a</b>"));
+		// the bundles share a pseudo table, but not the results of the override
+		assertFalse(plain.getStringPseudo("banana").contains("@"));
+	}
+
+	public void testViewsKeepSubclass()
+	{
+		BracketingBundle rb = new BracketingBundle(Locale.forLanguageTag("fr-FR"));
+		assertEquals("[Not here]", rb.getString("Not here"));
+
+		IResourceBundle frozen = rb.freeze();
+		assertTrue(frozen instanceof BracketingBundle);
+		assertTrue(frozen.isFrozen());
+		assertEquals("[Not here]", frozen.getString("Not here"));
+		assertEquals("Connexion en cours...", frozen.getString("Signing in..."));
+
+		IResourceBundle empty = frozen.withMissing(MissingType.EMPTY);
+		assertTrue(empty instanceof BracketingBundle);
+		assertEquals("[]", empty.getString("Not here"));
+		assertTrue(rb.withType(IResourceBundle.HTML_TYPE) instanceof BracketingBundle);
+		assertTrue(rb.withLengthen(false) instanceof BracketingBundle);
+	}
+
+	public void testViewOfSubclassWithoutNewView()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle rb = new IResourceBundle(R.string.class, new MockResources(l), l) {
+			@Override
+			protected String getMissingString(String source)
+			{
+				return "[" + super.getMissingString(source) + "]";
+			}
+		};
+		try {
+			rb.freeze();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("getMissingString"));
+		}
+		try {
+			rb.withType(IResourceBundle.HTML_TYPE);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		// subclasses that only add methods do not change how views behave
+		assertFalse(new EscapingBundle().freeze() instanceof EscapingBundle);
+	}
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.util.List;
+
+import com.healthtap.KeyIndex;
+
+import junit.framework.TestCase;
+
+/**
+ * @author edwin
+ *
+ */
+public class KeyIndexTest extends TestCase
+{
+	public static class Mixed {
+		public static final int r1 = 1;
+		public static final int r2 = 2;
+		public static final String notAnId = "foo";
+		public final int instanceField = 3;
+	}
+
+	public void testForClassSharedInstance()
+	{
+		assertSame(KeyIndex.forClass(R.string.class), KeyIndex.forClass(R.string.class));
+	}
+
+	public void testSize()
+	{
+		assertEquals(8, KeyIndex.forClass(R.string.class).size());
+	}
+
+	public void testIndexOfFound()
+	{
+		KeyIndex index = KeyIndex.forClass(R.string.class);
+		int slot = index.indexOf("r479509761");
+		assertTrue(slot != KeyIndex.NOT_FOUND);
+		assertEquals(1, index.getId(slot));
+
+		slot = index.indexOf("r54872206617124");
+		assertTrue(slot != KeyIndex.NOT_FOUND);
+		assertEquals(8, index.getId(slot));
+	}
+
+	public void testIndexOfNotFound()
+	{
+		KeyIndex index = KeyIndex.forClass(R.string.class);
+		assertEquals(KeyIndex.NOT_FOUND, index.indexOf("r1234"));
+		assertEquals(KeyIndex.NOT_FOUND, index.indexOf(""));
+		assertEquals(KeyIndex.NOT_FOUND, index.indexOf(null));
+	}
+
+	public void testContainsKey()
+	{
+		KeyIndex index = KeyIndex.forClass(R.string.class);
+		assertTrue(index.containsKey("r177793402"));
+		assertFalse(index.containsKey("r177793403"));
+	}
+
+	public void testKeys()
+	{
+		List<String> keys = KeyIndex.forClass(R.string.class).keys();
+		assertEquals(8, keys.size());
+		assertTrue(keys.contains("r429260889"));
+		assertTrue(keys.contains("r554153194"));
+	}
+
+	public void testOnlyStaticIntFields()
+	{
+		KeyIndex index = KeyIndex.forClass(Mixed.class);
+		assertEquals(2, index.size());
+		assertTrue(index.containsKey("r1"));
+		assertTrue(index.containsKey("r2"));
+		assertFalse(index.containsKey("notAnId"));
+		assertFalse(index.containsKey("instanceField"));
+	}
+
+	public void testEmptyClass()
+	{
+		KeyIndex index = KeyIndex.forClass(Object.class);
+		assertEquals(0, index.size());
+		assertFalse(index.containsKey("r1"));
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.healthtap.LikelySubtagsCompiler;
+
+import junit.framework.TestCase;
+
+/**
+ * @author edwin
+ *
+ */
+public class LikelySubtagsCompilerTest extends TestCase
+{
+	public static final String LIKELY_SUBTAGS =
+		"# comment\n" +
+		"\n" +
+		"zh zh-Hans-CN\n" +
+		"zh-TW zh-Hant-TW\n" +
+		"  HK\tzh-Hant-HK  \n";
+
+	public void testAddLines() throws IOException
+	{
+		LikelySubtagsCompiler compiler = new LikelySubtagsCompiler();
+		compiler.add(new BufferedReader(new StringReader(LIKELY_SUBTAGS)));
+		assertEquals(3, compiler.size());
+	}
+
+	public void testAddReplaces()
+	{
+		LikelySubtagsCompiler compiler = new LikelySubtagsCompiler();
+		compiler.add("sr", "sr-Latn-RS");
+		compiler.add("sr", "sr-Cyrl-RS");
+		assertEquals(1, compiler.size());
+	}
+
+	public void testAddBadSpec()
+	{
+		LikelySubtagsCompiler compiler = new LikelySubtagsCompiler();
+		try {
+			compiler.add("zh-Hant-TW", "zh-Hant-TW");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			compiler.add("", "zh-Hans-CN");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(0, compiler.size());
+	}
+
+	public void testAddBadLikely()
+	{
+		LikelySubtagsCompiler compiler = new LikelySubtagsCompiler();
+		try {
+			compiler.add("zh", "zh-CN");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			compiler.add("zh", "zh--CN");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			compiler.add("zh", "zh-Hàns-CN");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testAddBadLine() throws IOException
+	{
+		LikelySubtagsCompiler compiler = new LikelySubtagsCompiler();
+		try {
+			compiler.add(new BufferedReader(new StringReader("zh zh-Hans-CN\nzh-TW\n")));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().indexOf("line 2") > -1);
+		}
+	}
+
+	public void testWrite() throws IOException
+	{
+		LikelySubtagsCompiler compiler = new LikelySubtagsCompiler();
+		compiler.add(new BufferedReader(new StringReader(LIKELY_SUBTAGS)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		compiler.write(out);
+
+		ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+		assertEquals(0x48544c53, buffer.getInt());
+		assertEquals(1, buffer.getInt());
+		// HK, zh, Hant, Hans, CN, TW
+		assertEquals(6, buffer.getShort());
+		assertEquals(3, buffer.getShort());
+		assertEquals(6 * 8 + 3 * 5 * 2, buffer.remaining());
+
+		// the mappings are sorted by spec, so HK is first
+		byte[] subtag = new byte[8];
+		buffer.get(subtag);
+		assertEquals("HK\0\0\0\0\0\0", new String(subtag, StandardCharsets.US_ASCII));
+		buffer.position(buffer.position() + 5 * 8);
+		assertEquals(0, buffer.getShort());
+		assertEquals(-1, buffer.getShort());
+		assertEquals(1, buffer.getShort());
+		assertEquals(2, buffer.getShort());
+		assertEquals(0, buffer.getShort());
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import com.healthtap.IResourceBundle;
+import com.healthtap.IStringProvider;
+import com.healthtap.LocaleFallback;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class LocaleFallbackTest extends TestCase
+{
+	public static class SparseR {
+		public static final int first = 1;
+		public static final int second = 1000000;
+	}
+
+	private static class MapProvider implements IStringProvider {
+		private final HashMap<Integer, String> map = new HashMap<Integer, String>();
+		private int calls = 0;
+
+		MapProvider put(int id, String str) {
+			map.put(id, str);
+			return this;
+		}
+
+		public String getString(int id) {
+			calls++;
+			return map.get(id);
+		}
+	}
+
+	private static Locale parent(String tag)
+	{
+		return LocaleFallback.getParent(Locale.forLanguageTag(tag));
+	}
+
+	private static List<Locale> chain(String... tags)
+	{
+		Locale[] locales = new Locale[tags.length];
+		for (int i = 0; i < tags.length; i++) {
+			locales[i] = Locale.forLanguageTag(tags[i]);
+		}
+		return Arrays.asList(locales);
+	}
+
+	public void testGetParentRegion()
+	{
+		assertEquals(Locale.forLanguageTag("es"), parent("es-MX"));
+		assertEquals(Locale.forLanguageTag("en"), parent("en-US"));
+		assertEquals(Locale.forLanguageTag("zh"), parent("zh-CN"));
+		assertEquals(Locale.forLanguageTag("sr"), parent("sr-RS"));
+	}
+
+	public void testGetParentRegionWithUnusualScript()
+	{
+		assertEquals(Locale.forLanguageTag("zh-Hant"), parent("zh-TW"));
+		assertEquals(Locale.forLanguageTag("zh-Hant"), parent("zh-HK"));
+	}
+
+	public void testGetParentExplicitScript()
+	{
+		assertEquals(Locale.forLanguageTag("zh-Hant"), parent("zh-Hant-HK"));
+		assertEquals(Locale.forLanguageTag("sr-Latn"), parent("sr-Latn-RS"));
+		assertEquals(Locale.forLanguageTag("zh"), parent("zh-Hans"));
+	}
+
+	public void testGetParentRoot()
+	{
+		assertNull(parent("es"));
+		assertNull(parent("zh-Hant"));
+		assertNull(parent("sr-Latn"));
+		assertNull(LocaleFallback.getParent(Locale.ROOT));
+		assertNull(LocaleFallback.getParent(null));
+	}
+
+	public void testGetParentVariant()
+	{
+		assertEquals(Locale.forLanguageTag("de-DE"), LocaleFallback.getParent(new Locale("de", "DE", "POSIX")));
+	}
+
+	public void testGetChain()
+	{
+		assertEquals(chain("es-MX", "es"), LocaleFallback.getChain(Locale.forLanguageTag("es-MX")));
+		assertEquals(chain("zh-Hant-HK", "zh-Hant"), LocaleFallback.getChain(Locale.forLanguageTag("zh-Hant-HK")));
+		assertEquals(chain("zh-TW", "zh-Hant"), LocaleFallback.getChain(Locale.forLanguageTag("zh-TW")));
+		assertEquals(chain("zh-CN", "zh"), LocaleFallback.getChain(Locale.forLanguageTag("zh-CN")));
+		assertEquals(chain("fr"), LocaleFallback.getChain(Locale.forLanguageTag("fr")));
+		assertEquals(LocaleFallback.getChain(Locale.getDefault()), LocaleFallback.getChain(null));
+	}
+
+	public void testFlattenPrecedence()
+	{
+		MapProvider mx = new MapProvider().put(3, "Listo");
+		MapProvider es = new MapProvider().put(2, "Falló").put(3, "Aceptar").put(5, "Se envió");
+
+		IStringProvider flat = LocaleFallback.flatten(R.string.class, Arrays.asList(mx, null, es));
+		assertEquals("Listo", flat.getString(3));
+		assertEquals("Falló", flat.getString(2));
+		assertEquals("Se envió", flat.getString(5));
+		assertNull(flat.getString(1));
+		assertNull(flat.getString(12345));
+	}
+
+	public void testFlattenReadsProvidersOnce()
+	{
+		MapProvider mx = new MapProvider().put(3, "Listo");
+		MapProvider es = new MapProvider().put(3, "Aceptar");
+		IStringProvider flat = LocaleFallback.flatten(R.string.class, Arrays.asList(mx, es));
+		int mxCalls = mx.calls;
+		int esCalls = es.calls;
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals("Listo", flat.getString(3));
+		}
+		assertEquals(mxCalls, mx.calls);
+		assertEquals(esCalls, es.calls);
+		// the id found in the first provider is not asked for again
+		assertEquals(mxCalls - 1, esCalls);
+	}
+
+	public void testFlattenSparseIds()
+	{
+		MapProvider p = new MapProvider().put(1, "one").put(1000000, "million");
+		IStringProvider flat = LocaleFallback.flatten(SparseR.class, Arrays.asList(p));
+		assertEquals("one", flat.getString(1));
+		assertEquals("million", flat.getString(1000000));
+		assertNull(flat.getString(2));
+	}
+
+	public void testFlattenProviderThrows()
+	{
+		IStringProvider broken = new IStringProvider() {
+			public String getString(int id) {
+				throw new IllegalStateException("broken");
+			}
+		};
+		MapProvider es = new MapProvider().put(3, "Aceptar");
+		IStringProvider flat = LocaleFallback.flatten(R.string.class, Arrays.asList(broken, es));
+		assertEquals("Aceptar", flat.getString(3));
+	}
+
+	public void testLoadWithBundle()
+	{
+		final IResourceBundleTest outer = new IResourceBundleTest();
+		HashMap<Locale, IStringProvider> loaded = new HashMap<Locale, IStringProvider>();
+		loaded.put(Locale.forLanguageTag("es-MX"), new MapProvider().put(3, "Listo"));
+		loaded.put(Locale.forLanguageTag("es"), outer.new MockResources(new Locale("es", "ES")));
+
+		Locale l = Locale.forLanguageTag("es-MX");
+		IStringProvider flat = LocaleFallback.load(R.string.class, l, loaded::get);
+		IResourceBundle rb = new IResourceBundle(R.string.class, flat, l);
+
+		assertEquals("Listo", rb.getString("Done"));
+		assertEquals("Se envió un mensaje de verificación a {email}.", rb.getString(null, "r177793402"));
+		assertEquals("Signing in...", rb.getString("Signing in..."));
+	}
+}
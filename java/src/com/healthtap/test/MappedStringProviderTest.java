@@ -0,0 +1,210 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import com.healthtap.BundleCompiler;
+import com.healthtap.IResourceBundle;
+import com.healthtap.MappedStringProvider;
+
+import junit.framework.TestCase;
+
+/**
+ * @author edwin
+ *
+ */
+public class MappedStringProviderTest extends TestCase
+{
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		BundleCompiler compiler = new BundleCompiler();
+		compiler.addStringsXml(new ByteArrayInputStream(BundleCompilerTest.STRINGS_XML.getBytes(StandardCharsets.UTF_8)));
+		compiler.addString("r573025222", "保持备份打开");
+		compiler.addString("notInR", "foo");
+
+		file = File.createTempFile("strings", ".bin");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			compiler.write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		file.delete();
+	}
+
+	public void testOpen() throws IOException
+	{
+		MappedStringProvider p = MappedStringProvider.open(file, R.string.class);
+		assertEquals(5, p.size());
+		assertEquals(4, p.getBoundCount());
+	}
+
+	public void testGetStringById() throws IOException
+	{
+		MappedStringProvider p = MappedStringProvider.open(file, R.string.class);
+		assertEquals("Connexion en cours...", p.getString(R.string.r479509761));
+		assertEquals("N'actualisez pas", p.getString(R.string.r554153194));
+		assertEquals("Services & Palm <b>", p.getString(R.string.r429260889));
+		assertEquals("保持备份打开", p.getString(R.string.r573025222));
+		assertNull(p.getString(R.string.r481239240));
+		assertNull(p.getString(12345));
+	}
+
+	public void testGetStrings() throws IOException
+	{
+		MappedStringProvider p = MappedStringProvider.open(file, R.string.class);
+		String[] strings = p.getStrings(new int[] {
+			R.string.r573025222,
+			R.string.r481239240,
+			R.string.r479509761,
+			12345,
+			R.string.r429260889
+		});
+		assertEquals(5, strings.length);
+		assertEquals("保持备份打开", strings[0]);
+		assertNull(strings[1]);
+		assertEquals("Connexion en cours...", strings[2]);
+		assertNull(strings[3]);
+		assertEquals("Services & Palm <b>", strings[4]);
+	}
+
+	public void testGetStringByName() throws IOException
+	{
+		MappedStringProvider p = MappedStringProvider.open(file, R.string.class);
+		assertEquals("foo", p.getString("notInR"));
+		assertEquals("Connexion en cours...", p.getString("r479509761"));
+		assertNull(p.getString("r481239240"));
+		assertNull(p.getString((String)null));
+	}
+
+	public void testWithResourceBundle() throws IOException
+	{
+		MappedStringProvider p = MappedStringProvider.open(file, R.string.class);
+		IResourceBundle rb = new IResourceBundle(R.string.class, p, Locale.forLanguageTag("fr-FR"));
+		assertEquals("Connexion en cours...", rb.getString("Signing in..."));
+		assertEquals("Done", rb.getString("Done"));
+	}
+
+	public void testNotABundle()
+	{
+		try {
+			new MappedStringProvider(ByteBuffer.wrap("not a bundle at all".getBytes(StandardCharsets.UTF_8)), R.string.class);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testBadVersion() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BundleCompiler().write(out);
+		ByteBuffer buf = ByteBuffer.wrap(out.toByteArray());
+		buf.putInt(4, 99);
+		try {
+			new MappedStringProvider(buf, R.string.class);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testEmptyBundle() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new BundleCompiler().write(out);
+		MappedStringProvider p = new MappedStringProvider(ByteBuffer.wrap(out.toByteArray()), R.string.class);
+		assertEquals(0, p.size());
+		assertNull(p.getString(R.string.r479509761));
+	}
+
+	private ByteBuffer readFile() throws IOException
+	{
+		byte[] bytes = new byte[(int)file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int n = 0;
+			while (n < bytes.length) {
+				n += in.read(bytes, n, bytes.length - n);
+			}
+		} finally {
+			in.close();
+		}
+		return ByteBuffer.wrap(bytes);
+	}
+
+	private void assertCorrupt(ByteBuffer buf)
+	{
+		try {
+			new MappedStringProvider(buf, R.string.class);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	public void testTruncatedData() throws IOException
+	{
+		ByteBuffer buf = readFile();
+		buf.limit(buf.limit() - 3);
+		assertCorrupt(buf.slice());
+	}
+
+	public void testEntryOutsideData() throws IOException
+	{
+		// the offset of the string of the first entry
+		ByteBuffer buf = readFile();
+		buf.putInt(MappedStringProvider.HEADER_SIZE + 12, buf.limit());
+		assertCorrupt(buf);
+
+		// the length of the name of the first entry
+		buf = readFile();
+		buf.putInt(MappedStringProvider.HEADER_SIZE + 8, -1);
+		assertCorrupt(buf);
+
+		// the length of the string of the last entry
+		buf = readFile();
+		int count = buf.getInt(8);
+		buf.putInt(MappedStringProvider.HEADER_SIZE + (count - 1) * MappedStringProvider.ENTRY_SIZE + 16, Integer.MAX_VALUE);
+		assertCorrupt(buf);
+	}
+
+	public void testEntriesOutOfOrder() throws IOException
+	{
+		ByteBuffer buf = readFile();
+		buf.putInt(MappedStringProvider.HEADER_SIZE, Integer.MAX_VALUE);
+		assertCorrupt(buf);
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.healthtap.IResourceBundle;
+import com.healthtap.MessageTemplate;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class MessageTemplateTest extends TestCase
+{
+	private IResourceBundle bundle(String tag, String type)
+	{
+		Locale l = Locale.forLanguageTag(tag);
+		IResourceBundle rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(l), l);
+		rb.setType(type);
+		return rb;
+	}
+
+	public void testParseNames()
+	{
+		MessageTemplate t = MessageTemplate.parse("{greeting}, {name}! You have {count} {greeting}s.", false);
+		assertTrue(t.hasSlots());
+		assertEquals(Arrays.asList("greeting", "name", "count", "greeting"), t.getNames());
+	}
+
+	public void testParseNoSlots()
+	{
+		MessageTemplate t = MessageTemplate.parse("No slots here", false);
+		assertFalse(t.hasSlots());
+		assertEquals("No slots here", t.format("name", "value"));
+	}
+
+	public void testParseUnterminated()
+	{
+		MessageTemplate t = MessageTemplate.parse("a {b} c {d", false);
+		assertEquals(Arrays.asList("b"), t.getNames());
+		assertEquals("a B c {d", t.format("b", "B", "d", "D"));
+	}
+
+	public void testFormatMap()
+	{
+		MessageTemplate t = MessageTemplate.parse("{a} and {b} and {a}", false);
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("a", "x");
+		params.put("b", 42);
+		assertEquals("x and 42 and x", t.format(params));
+	}
+
+	public void testFormatMissingLeftAlone()
+	{
+		MessageTemplate t = MessageTemplate.parse("{a} and {b}", false);
+		assertEquals("x and {b}", t.format(Collections.singletonMap("a", "x")));
+		assertEquals("{a} and {b}", t.format("a", null));
+		assertEquals("{a} and {b}", t.format((Map<String, ?>)null));
+	}
+
+	public void testFormatValuesNotReparsed()
+	{
+		MessageTemplate t = MessageTemplate.parse("{a}{b}", false);
+		assertEquals("{b}B", t.format("a", "{b}", "b", "B"));
+	}
+
+	public void testFormatOddPairs()
+	{
+		MessageTemplate t = MessageTemplate.parse("{a}", false);
+		try {
+			t.format("a", "x", "b");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testParseNull()
+	{
+		try {
+			MessageTemplate.parse(null, false);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testJavaSyntax()
+	{
+		String text = "\\{not} %1$s {name} \\u007b%d{count}";
+		assertEquals(Arrays.asList("not", "name", "count"), MessageTemplate.parse(text, false).getNames());
+
+		MessageTemplate t = MessageTemplate.parse(text, true);
+		assertEquals(Arrays.asList("name", "count"), t.getNames());
+		assertEquals("\\{not} %1$s Bob \\u007b%d3", t.format("name", "Bob", "count", 3, "not", "x"));
+	}
+
+	public void testGetCached()
+	{
+		String text = new String("Cached {x}");
+		MessageTemplate t = MessageTemplate.get(text, false);
+		assertSame(t, MessageTemplate.get(new String("Cached {x}"), false));
+		assertNotSame(t, MessageTemplate.get(text, true));
+	}
+
+	public void testFormatStringTranslated()
+	{
+		IResourceBundle rb = bundle("es-MX", IResourceBundle.RAW_TYPE);
+		assertEquals("Se ha enviado un mensaje de verificación a a@b.com.",
+			rb.formatStringPairs("A verification email was sent to {email}.", "email", "a@b.com"));
+		assertEquals("Se ha enviado un mensaje de verificación a a@b.com.",
+			rb.formatString("A verification email was sent to {email}.", Collections.singletonMap("email", "a@b.com")));
+	}
+
+	public void testFormatStringSameAsReplace()
+	{
+		IResourceBundle rb = bundle("es-ES", IResourceBundle.RAW_TYPE);
+		String source = "A verification email was sent to {email}.";
+		assertEquals(rb.getString(source).replace("{email}", "x@y.org"), rb.formatStringPairs(source, "email", "x@y.org"));
+	}
+
+	public void testFormatStringUntranslated()
+	{
+		IResourceBundle rb = bundle("fr-FR", IResourceBundle.RAW_TYPE);
+		assertEquals("Hello Bob", rb.formatStringPairs("Hello {name}", "name", "Bob"));
+		assertEquals("Connexion en cours...", rb.formatStringPairs("Signing in...", "name", "Bob"));
+		assertEquals("Connexion en cours...", rb.formatStringPairs("Signing in..."));
+		assertNull(rb.formatStringPairs(null, "name", "Bob"));
+		assertEquals("Connexion en cours...", rb.formatString("Signing in...", null));
+		assertNull(rb.formatString(null, null));
+	}
+
+	public void testFormatStringEscapesValuesForHtml()
+	{
+		IResourceBundle rb = bundle("fr-FR", IResourceBundle.HTML_TYPE);
+		assertEquals("Fish &amp; Chips &lt;i&gt;", rb.formatStringPairs("{food} {tag}", "food", "Fish & Chips", "tag", "<i>"));
+
+		rb = bundle("fr-FR", IResourceBundle.RAW_TYPE);
+		assertEquals("<b>Fish & Chips</b>", rb.formatStringPairs("<b>{food}</b>", "food", "Fish & Chips"));
+	}
+
+	public void testFormatStringJavaType()
+	{
+		IResourceBundle rb = bundle("fr-FR", IResourceBundle.JAVA_TYPE);
+		assertEquals("\\{name} %s Bob", rb.formatStringPairs("\\{name} %s {name}", "name", "Bob"));
+	}
+
+	public void testFormatStringOddPairs()
+	{
+		IResourceBundle rb = bundle("fr-FR", IResourceBundle.RAW_TYPE);
+		try {
+			rb.formatStringPairs("Hello {name}", "name");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.healthtap.HashKey;
+import com.healthtap.IResourceBundle;
+import com.healthtap.IResourceBundle.MissingType;
+import com.healthtap.IStringProvider;
+import com.healthtap.MetricsCollector;
+import com.healthtap.MetricsListener;
+import com.healthtap.ResultCache;
+import com.healthtap.StringIndex;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class MetricsCollectorTest extends TestCase
+{
+	private IResourceBundle newBundle(String tag, MetricsCollector metrics)
+	{
+		Locale l = Locale.forLanguageTag(tag);
+		IResourceBundle rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(l), l);
+		rb.setMetricsListener(metrics);
+		return rb;
+	}
+
+	public void testNoListener()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(l), l);
+		assertNull(rb.getMetricsListener());
+		assertEquals("Connexion en cours...", rb.getString("Signing in..."));
+	}
+
+	public void testFoundAndMissing()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("fr-FR", metrics);
+		assertSame(metrics, rb.getMetricsListener());
+
+		rb.getString("Signing in...");
+		rb.getString("Palm Services");
+		rb.getString("Not translated");
+
+		assertEquals(2, metrics.getFoundCount());
+		assertEquals(1, metrics.getMissingCount());
+		assertEquals(1, metrics.getMissingSourceCount());
+		assertEquals(0, metrics.getMissingPseudoCount());
+		// the untranslated string is not in R, so the provider is not asked for it
+		assertEquals(2, metrics.getProviderCallCount());
+		assertTrue(metrics.getProviderTimeNanos() >= 0);
+	}
+
+	public void testMissingByStrategy()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("fr-FR", metrics);
+
+		rb.withMissing(MissingType.EMPTY).getString("Not translated");
+		rb.withMissing(MissingType.PLACEHOLDER).getString("Not translated");
+		rb.withMissing(MissingType.PLACEHOLDER).getString("Not translated");
+		rb.withMissing(MissingType.PSEUDO).getString("Not translated");
+
+		assertEquals(4, metrics.getMissingCount());
+		assertEquals(0, metrics.getMissingSourceCount());
+		assertEquals(1, metrics.getMissingEmptyCount());
+		assertEquals(2, metrics.getMissingPlaceholderCount());
+		assertEquals(1, metrics.getMissingPseudoCount());
+		assertEquals(2, metrics.getMissingCount(MissingType.PLACEHOLDER));
+		assertEquals(1, metrics.getPseudoCount());
+		assertEquals("Not translated".length(), metrics.getPseudoCharCount());
+	}
+
+	public void testPluralFoundOnce()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IStringProvider provider = new IStringProvider() {
+			public String getString(int id) {
+				return null;
+			}
+			public String[] getPlurals(int id) {
+				return new String[] {null, "{count} one", null, "{count} few", "{count} many", "{count} other"};
+			}
+		};
+		String source = "{count} messages";
+		StringIndex index = StringIndex.build(new String[] {HashKey.hash(source)}, new int[] {1});
+		IResourceBundle rb = new IResourceBundle(index, provider, Locale.forLanguageTag("ru-RU"));
+		rb.setType(IResourceBundle.HTML_TYPE);
+		rb.setMetricsListener(metrics);
+
+		// four different variants, but one translation found
+		assertEquals("{count} few", rb.getPluralString(source, 2));
+		assertEquals(1, metrics.getFoundCount());
+		assertEquals(0, metrics.getMissingCount());
+
+		assertEquals("{count} one", rb.getPluralString(source, 1));
+		assertEquals(1, metrics.getFoundCount());
+		assertEquals(1, metrics.getCacheHitCount());
+
+		rb.getPluralString("Not translated", 2);
+		assertEquals(1, metrics.getFoundCount());
+		assertEquals(1, metrics.getMissingCount());
+	}
+
+	public void testCacheHit()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("fr-FR", metrics);
+		rb.setCache(new ResultCache());
+
+		rb.getString("Signing in...");
+		rb.getString("Signing in...");
+		rb.getStrings(new String[] {"Signing in...", "Palm Services"});
+
+		assertEquals(2, metrics.getCacheHitCount());
+		assertEquals(2, metrics.getFoundCount());
+	}
+
+	public void testPseudoLocale()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("zxx-XX", metrics);
+
+		rb.getString("Signing in...");
+		rb.getStringPseudo("Done");
+
+		assertEquals(2, metrics.getPseudoCount());
+		assertEquals(17, metrics.getPseudoCharCount());
+		assertEquals(0, metrics.getFoundCount());
+	}
+
+	public void testBatchIsOneProviderCall()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("fr-FR", metrics);
+
+		rb.getStrings(new String[] {"Signing in...", "Palm Services", "Done", "Not translated"});
+
+		assertEquals(1, metrics.getProviderCallCount());
+		assertEquals(2, metrics.getFoundCount());
+		assertEquals(2, metrics.getMissingCount());
+	}
+
+	public void testAppendCountsToo()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("fr-FR", metrics);
+
+		StringBuilder sb = new StringBuilder();
+		rb.getString("Signing in...", null, sb);
+		rb.getString("Not translated", null, sb);
+
+		assertEquals(1, metrics.getFoundCount());
+		assertEquals(1, metrics.getMissingCount());
+	}
+
+	public void testViewsShareListener()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("fr-FR", metrics);
+		IResourceBundle html = rb.withType(IResourceBundle.HTML_TYPE);
+		assertSame(metrics, html.getMetricsListener());
+
+		try {
+			html.setMetricsListener(null);
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	public void testCustomListener()
+	{
+		final AtomicInteger found = new AtomicInteger();
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(l), l);
+		rb.setMetricsListener(new MetricsListener() {
+			@Override
+			public void translationFound(IResourceBundle bundle) {
+				found.incrementAndGet();
+			}
+		});
+
+		rb.getString("Signing in...");
+		rb.getString("Not translated");
+		assertEquals(1, found.get());
+	}
+
+	public void testBuckets()
+	{
+		assertEquals(0, MetricsCollector.getBucket(0));
+		assertEquals(0, MetricsCollector.getBucket(-5));
+		assertEquals(1, MetricsCollector.getBucket(1));
+		assertEquals(2, MetricsCollector.getBucket(2));
+		assertEquals(2, MetricsCollector.getBucket(3));
+		assertEquals(3, MetricsCollector.getBucket(4));
+		assertEquals(10, MetricsCollector.getBucket(1000));
+		assertEquals(63, MetricsCollector.getBucket(Long.MAX_VALUE));
+
+		assertEquals(0, MetricsCollector.getBucketUpperBound(0));
+		assertEquals(1, MetricsCollector.getBucketUpperBound(1));
+		assertEquals(1023, MetricsCollector.getBucketUpperBound(10));
+		assertEquals(Long.MAX_VALUE, MetricsCollector.getBucketUpperBound(63));
+	}
+
+	public void testPercentiles()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		assertEquals(0, metrics.getProviderLatencyP50Nanos());
+
+		for (int i = 0; i < 98; i++) {
+			metrics.providerCalled(null, 1, 100);
+		}
+		metrics.providerCalled(null, 1, 5000);
+		metrics.providerCalled(null, 1, 100000);
+
+		assertEquals(127, metrics.getProviderLatencyP50Nanos());
+		assertEquals(8191, metrics.getProviderLatencyP99Nanos());
+		assertEquals(131071, metrics.getProviderLatencyPercentile(100));
+		assertEquals(98, metrics.getProviderLatencyHistogram()[7]);
+		assertEquals(100, metrics.getProviderCallCount());
+		assertEquals(98 * 100 + 5000 + 100000, metrics.getProviderTimeNanos());
+	}
+
+	public void testReset()
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("fr-FR", metrics);
+		rb.getString("Signing in...");
+		rb.getString("Not translated");
+
+		metrics.reset();
+		assertEquals(0, metrics.getFoundCount());
+		assertEquals(0, metrics.getMissingCount());
+		assertEquals(0, metrics.getProviderCallCount());
+		assertEquals(0, metrics.getProviderLatencyP99Nanos());
+	}
+
+	public void testConcurrentCounts() throws InterruptedException
+	{
+		final MetricsCollector metrics = new MetricsCollector();
+		final IResourceBundle rb = newBundle("fr-FR", metrics).freeze();
+		final int threads = 8;
+		final int iterations = 5000;
+
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < iterations; i++) {
+						rb.getString("Signing in...");
+						rb.getString("Not translated");
+					}
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		assertEquals(threads * iterations, metrics.getFoundCount());
+		assertEquals(threads * iterations, metrics.getMissingCount());
+		assertEquals(threads * iterations, metrics.getProviderCallCount());
+	}
+
+	public void testRegisterMBean() throws JMException
+	{
+		MetricsCollector metrics = new MetricsCollector();
+		IResourceBundle rb = newBundle("fr-FR", metrics);
+		rb.getString("Signing in...");
+
+		ObjectName on = metrics.registerMBean("com.healthtap.test.R", rb.getLocale());
+		try {
+			assertSame(on, metrics.getObjectName());
+			assertEquals("com.healthtap", on.getDomain());
+			assertEquals("IResourceBundle", on.getKeyProperty("type"));
+
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertTrue(server.isRegistered(on));
+			assertEquals(Long.valueOf(1), server.getAttribute(on, "FoundCount"));
+
+			server.invoke(on, "reset", new Object[0], new String[0]);
+			assertEquals(0, metrics.getFoundCount());
+
+			try {
+				metrics.registerMBean("com.healthtap.test.R", rb.getLocale());
+				fail();
+			} catch (IllegalStateException e) {
+				// expected
+			}
+		} finally {
+			metrics.unregisterMBean();
+		}
+		assertNull(metrics.getObjectName());
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(on));
+	}
+}
@@ -0,0 +1,292 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.healthtap.IResourceBundle;
+import com.healthtap.MissingStringRecorder;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class MissingStringRecorderTest extends TestCase
+{
+	private File file;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		file = File.createTempFile("missing", ".xliff");
+		file.delete();
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		file.delete();
+	}
+
+	private Document parse(File f) throws Exception
+	{
+		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+		return dbf.newDocumentBuilder().parse(f);
+	}
+
+	public void testRecordDeduplicates()
+	{
+		MissingStringRecorder recorder = new MissingStringRecorder(file, "test", 100, 0);
+		Locale fr = Locale.forLanguageTag("fr-FR");
+		Locale de = Locale.forLanguageTag("de-DE");
+
+		recorder.record(fr, "Done", "r481239240");
+		recorder.record(fr, "Done", "r481239240");
+		recorder.record(de, "Done", "r481239240");
+		recorder.record(fr, null, "someKey");
+		recorder.record(fr, null, null);
+		recorder.record(null, "Done", "r481239240");
+
+		assertEquals(3, recorder.size());
+		assertEquals(0, recorder.getDroppedCount());
+	}
+
+	public void testBoundedDropsWhenFull()
+	{
+		MissingStringRecorder recorder = new MissingStringRecorder(file, "test", 10, 0);
+		Locale fr = Locale.forLanguageTag("fr-FR");
+
+		for (int i = 0; i < 25; i++) {
+			recorder.record(fr, "string " + i, null);
+		}
+		recorder.record(fr, "string 3", null);
+
+		assertEquals(10, recorder.size());
+		assertEquals(10, recorder.getMaxEntries());
+		assertEquals(15, recorder.getDroppedCount());
+	}
+
+	public void testRecordInvalid()
+	{
+		MissingStringRecorder recorder = new MissingStringRecorder(file, "test", 10, 0);
+		recorder.recordInvalid();
+		recorder.recordInvalid();
+		assertEquals(2, recorder.getInvalidCount());
+		assertEquals(0, recorder.size());
+	}
+
+	public void testBadArguments()
+	{
+		try {
+			new MissingStringRecorder(null, "test");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new MissingStringRecorder(file, "test", 0, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new MissingStringRecorder(file, "test", 10, -1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testFlushWritesXliff() throws Exception
+	{
+		MissingStringRecorder recorder = new MissingStringRecorder(file, "myproject", 100, 0);
+		recorder.record(Locale.forLanguageTag("fr-FR"), "Fish & <b>Chips</b>", "r123");
+		recorder.record(Locale.forLanguageTag("de-DE"), "Done", "r481239240");
+		recorder.record(Locale.forLanguageTag("fr-FR"), "Done", "r481239240");
+		recorder.flush();
+
+		assertTrue(file.exists());
+		assertEquals(1, recorder.getFlushCount());
+
+		Document doc = parse(file);
+		Element root = doc.getDocumentElement();
+		assertEquals("xliff", root.getTagName());
+		assertEquals("1.2", root.getAttribute("version"));
+
+		NodeList files = root.getElementsByTagName("file");
+		assertEquals(2, files.getLength());
+		Element de = (Element)files.item(0);
+		assertEquals("de-DE", de.getAttribute("target-language"));
+		assertEquals("en-US", de.getAttribute("source-language"));
+		assertEquals("myproject", de.getAttribute("product-name"));
+		assertEquals(1, de.getElementsByTagName("trans-unit").getLength());
+
+		Element fr = (Element)files.item(1);
+		assertEquals("fr-FR", fr.getAttribute("target-language"));
+		NodeList units = fr.getElementsByTagName("trans-unit");
+		assertEquals(2, units.getLength());
+		Element unit = (Element)units.item(0);
+		assertEquals("r123", unit.getAttribute("resname"));
+		assertEquals("string", unit.getAttribute("restype"));
+		assertEquals("java", unit.getAttribute("datatype"));
+		assertEquals("Fish & <b>Chips</b>", unit.getElementsByTagName("source").item(0).getTextContent());
+	}
+
+	public void testFlushOnlyWhenChanged() throws IOException
+	{
+		MissingStringRecorder recorder = new MissingStringRecorder(file, "test", 100, 0);
+		recorder.flush();
+		assertFalse(file.exists());
+		assertEquals(0, recorder.getFlushCount());
+
+		recorder.record(Locale.forLanguageTag("fr-FR"), "Done", null);
+		recorder.flush();
+		recorder.flush();
+		assertEquals(1, recorder.getFlushCount());
+
+		recorder.record(Locale.forLanguageTag("fr-FR"), "Done", null);
+		recorder.flush();
+		assertEquals(1, recorder.getFlushCount());
+
+		recorder.record(Locale.forLanguageTag("fr-FR"), "Cancel", null);
+		recorder.close();
+		assertEquals(2, recorder.getFlushCount());
+	}
+
+	public void testFlushFailureCounted()
+	{
+		File bad = new File(file.getParentFile(), "no-such-directory/missing.xliff");
+		MissingStringRecorder recorder = new MissingStringRecorder(bad, "test", 100, 0);
+		recorder.record(Locale.forLanguageTag("fr-FR"), "Done", null);
+		try {
+			recorder.flush();
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(1, recorder.getFlushFailureCount());
+		assertEquals(0, recorder.getFlushCount());
+	}
+
+	public void testFlushesInBackground() throws Exception
+	{
+		MissingStringRecorder recorder = new MissingStringRecorder(file, "test", 100, 20);
+		try {
+			recorder.record(Locale.forLanguageTag("fr-FR"), "Done", "r481239240");
+			for (int i = 0; i < 250 && recorder.getFlushCount() == 0; i++) {
+				Thread.sleep(20);
+			}
+			assertEquals(1, recorder.getFlushCount());
+			assertEquals(1, parse(file).getElementsByTagName("trans-unit").getLength());
+		} finally {
+			recorder.close();
+		}
+	}
+
+	public void testWithResourceBundle() throws Exception
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		IResourceBundle rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(l), l);
+		MissingStringRecorder recorder = new MissingStringRecorder(file, "test", 100, 0);
+		rb.setMissingStringRecorder(recorder);
+		assertSame(recorder, rb.getMissingStringRecorder());
+
+		assertEquals("Connexion en cours...", rb.getString("Signing in..."));
+		assertEquals("Done", rb.getString("Done"));
+		assertEquals("Not here", rb.getString("Not here"));
+		rb.getString(null, "r659292829");
+		rb.withType(IResourceBundle.HTML_TYPE).getString("Not here");
+		rb.getStrings(new String[] {"Done", "Also not here", "Palm Services"});
+		rb.getString("Yet another", null, new StringBuilder());
+		rb.getString(null, "");
+
+		assertEquals(5, recorder.size());
+		assertEquals(1, recorder.getInvalidCount());
+
+		recorder.flush();
+		NodeList units = parse(file).getElementsByTagName("trans-unit");
+		assertEquals(5, units.getLength());
+		boolean foundDone = false;
+		for (int i = 0; i < units.getLength(); i++) {
+			Element unit = (Element)units.item(i);
+			if (unit.getAttribute("resname").equals("r481239240")) {
+				assertEquals("Done", unit.getElementsByTagName("source").item(0).getTextContent());
+				foundDone = true;
+			}
+		}
+		assertTrue(foundDone);
+	}
+
+	public void testConcurrentRecordDeduplicates() throws InterruptedException
+	{
+		final MissingStringRecorder recorder = new MissingStringRecorder(file, "test", 1000, 0);
+		final Locale l = Locale.forLanguageTag("fr-FR");
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t * 50;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < 20000; i++) {
+						recorder.record(l, "string " + ((offset + i) % 600), null);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(600, recorder.size());
+		assertEquals(0, recorder.getDroppedCount());
+	}
+
+	public void testConcurrentRecordBounded() throws InterruptedException
+	{
+		final MissingStringRecorder recorder = new MissingStringRecorder(file, "test", 100, 0);
+		final Locale l = Locale.forLanguageTag("fr-FR");
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < 1000; i++) {
+						recorder.record(l, "string " + thread + " " + i, null);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(100, recorder.size());
+		assertEquals(8000 - 100, recorder.getDroppedCount());
+	}
+}
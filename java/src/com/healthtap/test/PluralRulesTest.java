@@ -0,0 +1,281 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.healthtap.HashKey;
+import com.healthtap.IResourceBundle;
+import com.healthtap.IResourceBundle.MissingType;
+import com.healthtap.IStringProvider;
+import com.healthtap.LocaleFallback;
+import com.healthtap.PluralCategory;
+import com.healthtap.PluralRules;
+import com.healthtap.StringIndex;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class PluralRulesTest extends TestCase
+{
+	private static final String SOURCE = "{count} messages";
+
+	private PluralCategory category(String tag, long count)
+	{
+		return PluralRules.forLocale(Locale.forLanguageTag(tag)).getCategory(count);
+	}
+
+	/**
+	 * A provider with one plural string with id 1, and one plain string with id 2.
+	 */
+	private static class PluralProvider implements IStringProvider {
+		int pluralCalls = 0;
+		private final String[] variants;
+
+		PluralProvider(String... variants) {
+			this.variants = variants;
+		}
+
+		public String getString(int id) {
+			return (id == 2) ? "Plain & simple" : null;
+		}
+
+		public String[] getPlurals(int id) {
+			pluralCalls++;
+			return (id == 1) ? variants : null;
+		}
+	}
+
+	private StringIndex index()
+	{
+		return StringIndex.build(
+			new String[] {HashKey.hash(SOURCE), HashKey.hash("{count} plain")}, new int[] {1, 2});
+	}
+
+	private IResourceBundle bundle(IStringProvider provider, String tag)
+	{
+		return new IResourceBundle(index(), provider, Locale.forLanguageTag(tag));
+	}
+
+	public void testEnglish()
+	{
+		assertEquals(PluralCategory.OTHER, category("en-US", 0));
+		assertEquals(PluralCategory.ONE, category("en-US", 1));
+		assertEquals(PluralCategory.OTHER, category("en-US", 2));
+		assertEquals(PluralCategory.OTHER, category("en-US", 21));
+		assertEquals(PluralCategory.ONE, category("en-US", -1));
+	}
+
+	public void testFrench()
+	{
+		assertEquals(PluralCategory.ONE, category("fr-FR", 0));
+		assertEquals(PluralCategory.ONE, category("fr-FR", 1));
+		assertEquals(PluralCategory.OTHER, category("fr-FR", 2));
+		assertEquals(PluralCategory.MANY, category("fr-FR", 1000000));
+		assertEquals(PluralCategory.OTHER, category("fr-FR", 1000001));
+	}
+
+	public void testPortugal()
+	{
+		assertEquals(PluralCategory.ONE, category("pt-BR", 0));
+		assertEquals(PluralCategory.OTHER, category("pt-PT", 0));
+		assertEquals(PluralCategory.ONE, category("pt-PT", 1));
+	}
+
+	public void testRussian()
+	{
+		assertEquals(PluralCategory.ONE, category("ru-RU", 1));
+		assertEquals(PluralCategory.ONE, category("ru-RU", 21));
+		assertEquals(PluralCategory.FEW, category("ru-RU", 3));
+		assertEquals(PluralCategory.FEW, category("ru-RU", 22));
+		assertEquals(PluralCategory.MANY, category("ru-RU", 0));
+		assertEquals(PluralCategory.MANY, category("ru-RU", 11));
+		assertEquals(PluralCategory.MANY, category("ru-RU", 12));
+		assertEquals(PluralCategory.MANY, category("ru-RU", 25));
+	}
+
+	public void testPolish()
+	{
+		assertEquals(PluralCategory.ONE, category("pl-PL", 1));
+		assertEquals(PluralCategory.MANY, category("pl-PL", 21));
+		assertEquals(PluralCategory.FEW, category("pl-PL", 24));
+		assertEquals(PluralCategory.MANY, category("pl-PL", 14));
+	}
+
+	public void testArabic()
+	{
+		assertEquals(PluralCategory.ZERO, category("ar-EG", 0));
+		assertEquals(PluralCategory.ONE, category("ar-EG", 1));
+		assertEquals(PluralCategory.TWO, category("ar-EG", 2));
+		assertEquals(PluralCategory.FEW, category("ar-EG", 103));
+		assertEquals(PluralCategory.MANY, category("ar-EG", 111));
+		assertEquals(PluralCategory.OTHER, category("ar-EG", 100));
+		assertEquals(PluralCategory.OTHER, category("ar-EG", 102));
+	}
+
+	public void testCzech()
+	{
+		assertEquals(PluralCategory.ONE, category("cs-CZ", 1));
+		assertEquals(PluralCategory.FEW, category("cs-CZ", 4));
+		assertEquals(PluralCategory.OTHER, category("cs-CZ", 5));
+		assertEquals(PluralCategory.OTHER, category("cs-CZ", 22));
+	}
+
+	public void testNoPlurals()
+	{
+		assertEquals(PluralCategory.OTHER, category("ja-JP", 1));
+		assertEquals(PluralCategory.OTHER, category("zh-Hans-CN", 1));
+		assertEquals(PluralCategory.OTHER, category("xx-YY", 1));
+	}
+
+	public void testSelectIsOrdinal()
+	{
+		PluralRules rules = PluralRules.forLocale(Locale.forLanguageTag("cy-GB"));
+		for (long n = 0; n < 200; n++) {
+			assertEquals(rules.getCategory(n).ordinal(), rules.select(n));
+		}
+	}
+
+	/**
+	 * Every locale in the loctool's plural categories has rules with the
+	 * same categories, and the rules only choose categories that it has.
+	 */
+	public void testCategoriesMatchLoctool() throws IOException
+	{
+		File file = TestFiles.get("../db/pluralCategories.json");
+		assertTrue(file.exists());
+		String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+		Matcher entry = Pattern.compile("\"([\\w-]+)\"\\s*:\\s*\\[([^\\]]*)\\]").matcher(json);
+		Pattern name = Pattern.compile("\"(\\w+)\"");
+		int count = 0;
+		while (entry.find()) {
+			List<PluralCategory> expected = new ArrayList<PluralCategory>();
+			Matcher m = name.matcher(entry.group(2));
+			while (m.find()) {
+				expected.add(PluralCategory.forName(m.group(1)));
+			}
+			PluralRules rules = PluralRules.forLocale(Locale.forLanguageTag(entry.group(1)));
+			assertEquals(entry.group(1), expected, rules.getCategories());
+
+			for (long n = 0; n < 1100; n++) {
+				assertTrue(entry.group(1) + " " + n, expected.contains(rules.getCategory(n)));
+			}
+			count++;
+		}
+		assertTrue(count > 200);
+	}
+
+	public void testGetPluralString()
+	{
+		PluralProvider provider = new PluralProvider(null, "{count} message", null, "{count} messages few", "{count} messages many", "{count} messages");
+		IResourceBundle rb = bundle(provider, "ru-RU");
+
+		assertEquals("{count} message", rb.getPluralString(SOURCE, 1));
+		assertEquals("{count} messages few", rb.getPluralString(SOURCE, 2));
+		assertEquals("{count} messages many", rb.getPluralString(SOURCE, 5));
+		assertEquals("{count} message", rb.getPluralString(SOURCE, 101));
+		// the variants are only fetched once
+		assertEquals(1, provider.pluralCalls);
+	}
+
+	public void testGetPluralStringMissingCategory()
+	{
+		IResourceBundle rb = bundle(new PluralProvider(null, "one", null, null, null, "other"), "ru-RU");
+		assertEquals("one", rb.getPluralString(SOURCE, 1));
+		assertEquals("other", rb.getPluralString(SOURCE, 3));
+	}
+
+	public void testGetPluralStringByKey()
+	{
+		IResourceBundle rb = bundle(new PluralProvider(null, "one", null, null, null, "other"), "ru-RU");
+		assertEquals("one", rb.getPluralString(HashKey.hash(SOURCE), 1));
+		assertEquals("other", rb.getPluralString(HashKey.hash(SOURCE), 3));
+	}
+
+	public void testGetPluralStringFlattened()
+	{
+		IStringProvider flat = LocaleFallback.flatten(index(), Arrays.asList(
+			new PluralProvider(null, "one", null, null, null, "other"),
+			new PluralProvider(null, "parent one", null, null, null, "parent other")));
+		IResourceBundle rb = bundle(flat, "ru-RU");
+
+		assertEquals("one", rb.getPluralString(SOURCE, 1));
+		assertEquals("other", rb.getPluralString(SOURCE, 3));
+		assertEquals("Plain & simple", rb.getPluralString("{count} plain", 1));
+	}
+
+	public void testGetPluralStringFlattenedFromParent()
+	{
+		IStringProvider flat = LocaleFallback.flatten(index(), Arrays.asList(
+			null, new PluralProvider(null, "parent one", null, null, null, "parent other")));
+		IResourceBundle rb = bundle(flat, "ru-RU");
+
+		assertEquals("parent one", rb.getPluralString(SOURCE, 1));
+		assertEquals("parent other", rb.getPluralString(SOURCE, 3));
+	}
+
+	public void testGetPluralStringPlainString()
+	{
+		IResourceBundle rb = bundle(new PluralProvider(), "en-US");
+		assertEquals("Plain & simple", rb.getPluralString("{count} plain", 1));
+		assertEquals("Plain & simple", rb.getPluralString("{count} plain", 2));
+	}
+
+	public void testGetPluralStringMissing()
+	{
+		IResourceBundle rb = bundle(new PluralProvider(), "de-DE");
+		assertEquals("Not here", rb.getPluralString("Not here", 2));
+		assertNull(rb.getPluralString(null, 2));
+
+		rb.setMissingType(MissingType.PLACEHOLDER);
+		assertEquals("????", rb.getPluralString("Not here", 2));
+	}
+
+	public void testGetPluralStringHtml()
+	{
+		IResourceBundle rb = bundle(new PluralProvider(null, "<b>{count}</b> message", null, null, null, "<b>{count}</b> messages"), "en-US");
+		rb.setType(IResourceBundle.HTML_TYPE);
+		assertEquals("&lt;b&gt;{count}&lt;/b&gt; messages", rb.getPluralString(SOURCE, 2));
+		assertEquals("Plain &amp; simple", rb.getPluralString("{count} plain", 2));
+	}
+
+	public void testGetPluralStringWhitespace()
+	{
+		IResourceBundle rb = bundle(new PluralProvider(null, "one", null, null, null, "other"), "en-US");
+		assertEquals(" other\n", rb.getPluralString(" " + SOURCE + "\n", 2));
+	}
+
+	public void testGetPluralStringPseudo()
+	{
+		IResourceBundle rb = bundle(new PluralProvider(), "zxx-XX");
+		assertEquals(rb.getStringPseudo(SOURCE), rb.getPluralString(SOURCE, 3));
+	}
+}
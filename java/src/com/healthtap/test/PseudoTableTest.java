@@ -0,0 +1,68 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import com.healthtap.PseudoTable;
+
+import junit.framework.TestCase;
+
+/**
+ * @author edwin
+ *
+ */
+public class PseudoTableTest extends TestCase
+{
+	public void testForScript()
+	{
+		assertSame(PseudoTable.LATN, PseudoTable.forScript("Latn"));
+		assertSame(PseudoTable.CYRL, PseudoTable.forScript("Cyrl"));
+		assertSame(PseudoTable.HANS, PseudoTable.forScript("Hans"));
+		assertSame(PseudoTable.HEBR, PseudoTable.forScript("Hebr"));
+	}
+
+	public void testForScriptDefault()
+	{
+		assertSame(PseudoTable.LATN, PseudoTable.forScript("Grek"));
+		assertSame(PseudoTable.LATN, PseudoTable.forScript(null));
+	}
+
+	public void testGet()
+	{
+		assertEquals("à", PseudoTable.LATN.get('a'));
+		assertEquals("ку", PseudoTable.CYRL.get('q'));
+		assertEquals("阿", PseudoTable.HANS.get('A'));
+		assertEquals("שׂק", PseudoTable.HEBR.get('x'));
+	}
+
+	public void testGetNotMapped()
+	{
+		assertNull(PseudoTable.LATN.get('b'));
+		assertNull(PseudoTable.LATN.get(' '));
+		assertNull(PseudoTable.CYRL.get('w'));
+		assertNull(PseudoTable.HANS.get('子'));
+		assertNull(PseudoTable.HEBR.get('\uffff'));
+	}
+
+	public void testAppend()
+	{
+		StringBuilder sb = new StringBuilder();
+		PseudoTable.CYRL.append(sb, 'x');
+		PseudoTable.CYRL.append(sb, '!');
+		PseudoTable.CYRL.append(sb, 'é');
+		assertEquals("кс!é", sb.toString());
+	}
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.healthtap.IResourceBundle;
+import com.healthtap.IResourceBundle.MissingType;
+import com.healthtap.ResultCache;
+import com.healthtap.ResultCache.EvictionPolicy;
+
+import junit.framework.TestCase;
+
+/**
+ * @author edwin
+ *
+ */
+public class ResultCacheTest extends TestCase
+{
+	public void testConstructorDefaults()
+	{
+		ResultCache cache = new ResultCache();
+		assertEquals(ResultCache.DEFAULT_SIZE, cache.getMaxSize());
+		assertEquals(EvictionPolicy.LRU, cache.getEvictionPolicy());
+		assertEquals(0, cache.size());
+	}
+
+	public void testConstructorBadSize()
+	{
+		try {
+			new ResultCache(0, EvictionPolicy.LRU);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testConstructorNullPolicy()
+	{
+		try {
+			new ResultCache(10, null);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testGetPut()
+	{
+		ResultCache cache = new ResultCache(10, EvictionPolicy.LRU);
+		assertNull(cache.get("Done", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		cache.put("Done", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "Aceptar");
+		assertEquals("Aceptar", cache.get("Done", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	public void testKeyIncludesConfiguration()
+	{
+		ResultCache cache = new ResultCache(10, EvictionPolicy.LRU);
+		cache.put("Done", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "Aceptar");
+		assertNull(cache.get("Done", null, IResourceBundle.HTML_TYPE, MissingType.SOURCE, true));
+		assertNull(cache.get("Done", null, IResourceBundle.RAW_TYPE, MissingType.PSEUDO, true));
+		assertNull(cache.get("Done", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, false));
+		assertNull(cache.get("Done", "done", IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		assertNull(cache.get(null, "Done", IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+	}
+
+	public void testPutNullNotCached()
+	{
+		ResultCache cache = new ResultCache(10, EvictionPolicy.LRU);
+		cache.put("Done", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, null);
+		assertEquals(0, cache.size());
+	}
+
+	public void testEvictLRU()
+	{
+		ResultCache cache = new ResultCache(2, EvictionPolicy.LRU);
+		cache.put("a", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "A");
+		cache.put("b", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "B");
+		// touch a so that b is the least recently used
+		assertEquals("A", cache.get("a", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		cache.put("c", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "C");
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals("A", cache.get("a", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		assertNull(cache.get("b", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		assertEquals("C", cache.get("c", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+	}
+
+	public void testEvictFIFO()
+	{
+		ResultCache cache = new ResultCache(2, EvictionPolicy.FIFO);
+		cache.put("a", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "A");
+		cache.put("b", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "B");
+		assertEquals("A", cache.get("a", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		cache.put("c", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "C");
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.get("a", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		assertEquals("B", cache.get("b", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		assertEquals("C", cache.get("c", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+	}
+
+	public void testClear()
+	{
+		ResultCache cache = new ResultCache(10, EvictionPolicy.LRU);
+		cache.put("a", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "A");
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get("a", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+	}
+
+	public void testSegmentCount()
+	{
+		assertEquals(16, new ResultCache().getSegmentCount());
+		assertEquals(1, new ResultCache(2, EvictionPolicy.LRU).getSegmentCount());
+		assertEquals(1, new ResultCache(127, EvictionPolicy.LRU).getSegmentCount());
+		assertEquals(2, new ResultCache(128, EvictionPolicy.LRU).getSegmentCount());
+		assertEquals(16, new ResultCache(1000000, EvictionPolicy.FIFO).getSegmentCount());
+	}
+
+	public void testSegmentedSizeBounded()
+	{
+		ResultCache cache = new ResultCache(1000, EvictionPolicy.LRU);
+		assertTrue(cache.getSegmentCount() > 1);
+		for (int i = 0; i < 10000; i++) {
+			cache.put("s" + i, null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "S" + i);
+		}
+		assertTrue(cache.size() <= 1000);
+		assertTrue(cache.size() > 900);
+		assertEquals(10000 - cache.size(), cache.getEvictionCount());
+		assertEquals("S9999", cache.get("s9999", null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+	}
+
+	public void testFits()
+	{
+		ResultCache cache = new ResultCache(1024, EvictionPolicy.LRU);
+		List<String> sources = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			sources.add("s" + i);
+		}
+		assertTrue(cache.fits(null, sources, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		for (String source : sources) {
+			cache.put(source, null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, source);
+		}
+		assertEquals(0, cache.getEvictionCount());
+
+		// the ones already cached take no more room
+		assertTrue(cache.fits(null, sources, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+		List<String> tooMany = new ArrayList<String>();
+		for (int i = 0; i <= cache.getMaxSize(); i++) {
+			tooMany.add("t" + i);
+		}
+		assertFalse(cache.fits(null, tooMany, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+	}
+
+	public void testFitsPerSegment()
+	{
+		ResultCache cache = new ResultCache(1024, EvictionPolicy.LRU);
+		assertEquals(16, cache.getSegmentCount());
+		for (int i = 0; i < 900; i++) {
+			cache.put("s" + i, null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, "S" + i);
+		}
+
+		// the entries are not spread evenly, so some segments are full even
+		// though the cache as a whole has room for this many more
+		List<String> more = new ArrayList<String>();
+		for (int i = 0; i < cache.getMaxSize() - cache.size(); i++) {
+			more.add("t" + i);
+		}
+		assertFalse(cache.fits(null, more, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+
+		long evictions = cache.getEvictionCount();
+		for (String source : more) {
+			cache.put(source, null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, source);
+		}
+		assertTrue(cache.getEvictionCount() > evictions);
+
+		// a batch that lands in segments with room fits
+		assertTrue(cache.fits(null, Arrays.asList("t0", "t1"), IResourceBundle.RAW_TYPE, MissingType.SOURCE, true));
+	}
+
+	public void testConcurrentGetPut() throws InterruptedException
+	{
+		final ResultCache cache = new ResultCache(512, EvictionPolicy.LRU);
+		final int threads = 8;
+		final int lookups = 2000;
+		Thread[] workers = new Thread[threads];
+		final boolean[] wrong = new boolean[1];
+		for (int t = 0; t < threads; t++) {
+			final int seed = t;
+			workers[t] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < lookups; i++) {
+						String source = "s" + ((i * 7 + seed) % 700);
+						String result = cache.get(source, null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true);
+						if (result == null) {
+							cache.put(source, null, IResourceBundle.RAW_TYPE, MissingType.SOURCE, true, source.toUpperCase());
+						} else if (!result.equals(source.toUpperCase())) {
+							wrong[0] = true;
+						}
+					}
+				}
+			});
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertFalse(wrong[0]);
+		assertEquals(threads * lookups, cache.getHitCount() + cache.getMissCount());
+		assertTrue(cache.size() <= 512);
+	}
+}
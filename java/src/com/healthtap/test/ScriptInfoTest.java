@@ -16,6 +16,15 @@
  */
 package com.healthtap.test;
 
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Locale;
 
@@ -58,4 +67,153 @@ public class ScriptInfoTest extends TestCase
 	{
 		assertEquals(ScriptInfo.getScriptByLocale(null), "Latn");
 	}
-}	
+
+	public void testGetScriptByLocaleByRegion()
+	{
+		Locale l = new Locale("zxx", "RU");
+		assertEquals("Cyrl", ScriptInfo.getScriptByLocale(l));
+	}
+
+	public void testGetScriptByLocaleUnknown()
+	{
+		Locale l = new Locale("qaa", "QM");
+		assertEquals("Latn", ScriptInfo.getScriptByLocale(l));
+	}
+
+	public void testGetScriptByLocaleInterned()
+	{
+		assertSame("Cyrl", ScriptInfo.getScriptByLocale(new Locale("uk", "UA")));
+		assertSame("Hebr", ScriptInfo.getScriptByLocale(new Locale("yi")));
+	}
+
+	public void testGetScriptByLocaleRepeated()
+	{
+		Locale l = Locale.forLanguageTag("he-IL");
+		String first = ScriptInfo.getScriptByLocale(l);
+		assertEquals("Hebr", first);
+		assertSame(first, ScriptInfo.getScriptByLocale(l));
+		assertSame(first, ScriptInfo.getScriptByLocale(Locale.forLanguageTag("he-IL")));
+	}
+
+	public void testGetLikelySubtags()
+	{
+		assertEquals("zh-Hans-CN", ScriptInfo.getLikelySubtags("zh"));
+		assertEquals("zh-Hant-TW", ScriptInfo.getLikelySubtags("zh-TW"));
+		assertEquals("zh-Hant-HK", ScriptInfo.getLikelySubtags("HK"));
+		assertEquals("sr-Cyrl-RS", ScriptInfo.getLikelySubtags("sr"));
+		assertNull(ScriptInfo.getLikelySubtags("qaa"));
+		assertNull(ScriptInfo.getLikelySubtags(null));
+	}
+
+	public void testGetLikelySubtagsScriptInSpec()
+	{
+		assertEquals("arc-Nbat-JO", ScriptInfo.getLikelySubtags("arc-Nbat"));
+		assertEquals("az-Arab-IR", ScriptInfo.getLikelySubtags("az-IR"));
+	}
+
+	public void testGetLikelySubtagsNotFound()
+	{
+		assertNull(ScriptInfo.getLikelySubtags(""));
+		assertNull(ScriptInfo.getLikelySubtags("z"));
+		assertNull(ScriptInfo.getLikelySubtags("zh-"));
+		assertNull(ScriptInfo.getLikelySubtags("zh-TWN"));
+		assertNull(ScriptInfo.getLikelySubtags("zh_TW"));
+		assertNull(ScriptInfo.getLikelySubtags("arc-Nba"));
+		assertNull(ScriptInfo.getLikelySubtags("zzzz"));
+		assertNull(ScriptInfo.getLikelySubtags("AA"));
+	}
+
+	public void testGetLikelySubtagsMatchesData() throws IOException
+	{
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(TestFiles.get("src/com/healthtap/likelySubtags.txt")), StandardCharsets.UTF_8));
+		int count = 0;
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.length() == 0 || line.charAt(0) == '#') {
+					continue;
+				}
+				String[] fields = line.split(" ");
+				assertEquals(line, fields[1], ScriptInfo.getLikelySubtags(fields[0]));
+				count++;
+			}
+		} finally {
+			in.close();
+		}
+		assertTrue(count > 1000);
+	}
+
+	/**
+	 * A class loader that loads its own copy of ScriptInfo from the compiled
+	 * classes and the source tree, but cannot see the given resources.
+	 */
+	private static class HidingClassLoader extends URLClassLoader
+	{
+		private final String[] hidden;
+
+		HidingClassLoader(String... hidden) throws IOException
+		{
+			// the parent is the platform loader, so that ScriptInfo is not
+			// found in the application class path where it is already loaded
+			super(new URL[] {
+				ScriptInfo.class.getProtectionDomain().getCodeSource().getLocation(),
+				TestFiles.get("src").toURI().toURL()
+			}, ClassLoader.getSystemClassLoader().getParent());
+			this.hidden = hidden;
+		}
+
+		@Override
+		public URL findResource(String name)
+		{
+			for (String h : hidden) {
+				if (name.endsWith(h)) {
+					return null;
+				}
+			}
+			return super.findResource(name);
+		}
+	}
+
+	private Object getLikelySubtags(ClassLoader loader, String spec) throws Exception
+	{
+		Class<?> c = Class.forName("com.healthtap.ScriptInfo", true, loader);
+		Method m = c.getMethod("getLikelySubtags", String.class);
+		try {
+			return m.invoke(null, spec);
+		} catch (InvocationTargetException e) {
+			throw (Exception)e.getCause();
+		}
+	}
+
+	public void testGetLikelySubtagsFromText() throws Exception
+	{
+		HidingClassLoader loader = new HidingClassLoader("likelySubtags.dat");
+		try {
+			assertNull(loader.getResource("com/healthtap/likelySubtags.dat"));
+			assertEquals("zh-Hant-TW", getLikelySubtags(loader, "zh-TW"));
+			assertEquals("az-Arab-IR", getLikelySubtags(loader, "az-IR"));
+			assertNull(getLikelySubtags(loader, "qaa"));
+		} finally {
+			loader.close();
+		}
+	}
+
+	public void testGetLikelySubtagsNoData() throws Exception
+	{
+		HidingClassLoader loader = new HidingClassLoader("likelySubtags.dat", "likelySubtags.txt");
+		try {
+			// each lookup says why it failed, rather than the class failing
+			// to initialize and every later use throwing NoClassDefFoundError
+			for (int i = 0; i < 2; i++) {
+				try {
+					getLikelySubtags(loader, "zh-TW");
+					fail();
+				} catch (IllegalStateException e) {
+					assertTrue(e.getMessage(), e.getMessage().contains("likelySubtags.txt"));
+				}
+			}
+		} finally {
+			loader.close();
+		}
+	}
+}
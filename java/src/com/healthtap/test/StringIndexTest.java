@@ -0,0 +1,256 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import com.healthtap.IResourceBundle;
+import com.healthtap.KeyIndex;
+import com.healthtap.StringIndex;
+import com.healthtap.StringIndexGenerator;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class StringIndexTest extends TestCase
+{
+	private File dir;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		dir = Files.createTempDirectory("index").toFile();
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		delete(dir);
+	}
+
+	private static void delete(File f)
+	{
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+
+	private static void assertSameKeys(KeyIndex expected, KeyIndex actual)
+	{
+		assertEquals(expected.size(), actual.size());
+		assertEquals(new HashSet<String>(expected.keys()), new HashSet<String>(actual.keys()));
+		for (String key : expected.keys()) {
+			int slot = actual.indexOf(key);
+			assertTrue(key, slot != KeyIndex.NOT_FOUND);
+			assertEquals(key, expected.getId(expected.indexOf(key)), actual.getId(slot));
+		}
+	}
+
+	public void testFromClass()
+	{
+		StringIndex index = StringIndexGenerator.fromClass(R.string.class);
+		assertSameKeys(KeyIndex.forClass(R.string.class), index);
+		assertEquals(R.string.r481239240, index.getId(index.indexOf("r481239240")));
+		assertFalse(index.isCharHash());
+	}
+
+	public void testNotFound()
+	{
+		StringIndex index = StringIndexGenerator.fromClass(R.string.class);
+		assertEquals(KeyIndex.NOT_FOUND, index.indexOf("r1"));
+		assertEquals(KeyIndex.NOT_FOUND, index.indexOf(""));
+		assertEquals(KeyIndex.NOT_FOUND, index.indexOf(null));
+		assertFalse(index.containsKey("Done"));
+		assertTrue(index.containsKey("r481239240"));
+	}
+
+	public void testEmpty()
+	{
+		StringIndex index = StringIndex.build(new String[0], new int[0]);
+		assertEquals(0, index.size());
+		assertEquals(KeyIndex.NOT_FOUND, index.indexOf("r481239240"));
+		assertTrue(index.keys().isEmpty());
+	}
+
+	public void testMinimalAndPerfect()
+	{
+		Random random = new Random(20170310L);
+		int n = 50000;
+		String[] names = new String[n];
+		int[] ids = new int[n];
+		Set<String> seen = new HashSet<String>();
+		for (int i = 0; i < n; i++) {
+			String name;
+			do {
+				name = "r" + random.nextInt(1073741789);
+			} while (!seen.add(name));
+			names[i] = name;
+			ids[i] = 0x7f0e0000 + i;
+		}
+
+		StringIndex index = StringIndex.build(names, ids);
+		assertEquals(n, index.size());
+		boolean[] slots = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			int slot = index.indexOf(names[i]);
+			assertTrue(slot >= 0 && slot < n);
+			assertFalse(slots[slot]);
+			slots[slot] = true;
+			assertEquals(ids[i], index.getId(slot));
+		}
+		for (int i = 0; i < 1000; i++) {
+			String name = "x" + random.nextInt();
+			assertEquals(KeyIndex.NOT_FOUND, index.indexOf(name));
+		}
+	}
+
+	public void testSameHashCode()
+	{
+		// "Aa" and "BB" have the same String.hashCode()
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		StringIndex index = StringIndex.build(new String[] {"Aa", "BB", "AaAa", "BBBB", "AaBB"}, new int[] {1, 2, 3, 4, 5});
+		assertTrue(index.isCharHash());
+		assertEquals(1, index.getId(index.indexOf("Aa")));
+		assertEquals(2, index.getId(index.indexOf("BB")));
+		assertEquals(3, index.getId(index.indexOf("AaAa")));
+		assertEquals(4, index.getId(index.indexOf("BBBB")));
+		assertEquals(5, index.getId(index.indexOf("AaBB")));
+		assertEquals(KeyIndex.NOT_FOUND, index.indexOf("BBAa"));
+	}
+
+	public void testBuildBadArguments()
+	{
+		try {
+			StringIndex.build(new String[] {"a", "b"}, new int[] {1});
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			StringIndex.build(new String[] {"a", "a"}, new int[] {1, 2});
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			StringIndex.build(new String[] {"a", null}, new int[] {1, 2});
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testFromStringsXml() throws IOException
+	{
+		File xml = new File(dir, "strings.xml");
+		Files.write(xml.toPath(), ("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<resources>\n" +
+			"<string name=\"r481239240\">Done</string>\n" +
+			"<string name=\"r479509761\">Signing in...</string>\n" +
+			"<string name=\"app_name\">Sample</string>\n" +
+			"</resources>\n").getBytes(StandardCharsets.UTF_8));
+
+		StringIndex index = StringIndexGenerator.fromStringsXml(Arrays.asList(xml));
+		assertEquals(3, index.size());
+		// the ids are the positions of the names in sorted order
+		assertEquals(0, index.getId(index.indexOf("app_name")));
+		assertEquals(1, index.getId(index.indexOf("r479509761")));
+		assertEquals(2, index.getId(index.indexOf("r481239240")));
+	}
+
+	public void testBundleWithIndex()
+	{
+		Locale l = Locale.forLanguageTag("fr-FR");
+		StringIndex index = StringIndexGenerator.fromClass(R.string.class);
+		IResourceBundle rb = new IResourceBundle(index, new IResourceBundleTest().new MockResources(l), l);
+		IResourceBundle reflected = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(l), l);
+
+		String[] sources = {"Signing in...", "Palm Services", "Done", "Not here", "r429260889"};
+		for (String source : sources) {
+			assertEquals(reflected.getString(source), rb.getString(source));
+		}
+		assertEquals("Connexion en cours...", rb.getString("Signing in..."));
+		assertTrue(rb.containsSource("Palm Services"));
+		assertEquals(index.size(), java.util.Collections.list(rb.getKeys()).size());
+	}
+
+	public void testGeneratedClass() throws Exception
+	{
+		Random random = new Random(20170311L);
+		// enough for the data to be split into several string constants
+		int n = 5000;
+		String[] names = new String[n + 2];
+		int[] ids = new int[n + 2];
+		for (int i = 0; i < n; i++) {
+			names[i] = "r" + i + "_" + random.nextInt(1000);
+			ids[i] = random.nextInt();
+		}
+		// names that need escaping in the generated source
+		names[n] = "quote\"back\\slash";
+		names[n + 1] = "café ";
+		ids[n] = -1;
+		ids[n + 1] = Integer.MIN_VALUE;
+		StringIndex index = StringIndex.build(names, ids);
+
+		File src = new File(dir, "src");
+		File file = StringIndexGenerator.write(index, "sample.gen.TestStringIndex", "the test", src);
+		assertEquals(new File(src, "sample/gen/TestStringIndex.java"), file);
+
+		File classes = new File(dir, "classes");
+		classes.mkdirs();
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		int result = compiler.run(null, null, errors, "-encoding", "utf-8",
+			"-classpath", System.getProperty("java.class.path"), "-d", classes.getPath(), file.getPath());
+		assertEquals(errors.toString(), 0, result);
+
+		URLClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()}, getClass().getClassLoader());
+		try {
+			Field field = loader.loadClass("sample.gen.TestStringIndex").getField("INDEX");
+			StringIndex loaded = (StringIndex)field.get(null);
+			assertSameKeys(index, loaded);
+			List<String> keys = loaded.keys();
+			assertTrue(keys.contains("quote\"back\\slash"));
+			assertEquals(Integer.MIN_VALUE, loaded.getId(loaded.indexOf("café ")));
+		} finally {
+			loader.close();
+		}
+	}
+}
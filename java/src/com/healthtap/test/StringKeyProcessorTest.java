@@ -0,0 +1,205 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.healthtap.IResourceBundle;
+import com.healthtap.StringKeyProcessor;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class StringKeyProcessorTest extends TestCase
+{
+	private static final String SAMPLE =
+		"package sample;\n" +
+		"\n" +
+		"import com.healthtap.IResourceBundle;\n" +
+		"import com.healthtap.StringKeys;\n" +
+		"import com.healthtap.test.R;\n" +
+		"\n" +
+		"@StringKeys(R.string.class)\n" +
+		"public class Sample {\n" +
+		"	public String signingIn(IResourceBundle rb) {\n" +
+		"		return rb.getString(\"Signing in...\");\n" +
+		"	}\n" +
+		"	public String done(IResourceBundle rb) {\n" +
+		"		return rb.getString(\"Done\", SampleStringKeys.DONE);\n" +
+		"	}\n" +
+		"	public String missing(IResourceBundle rb) {\n" +
+		"		return rb.getString(\"Not in R\", null);\n" +
+		"	}\n" +
+		"	public String explicitKey(IResourceBundle rb) {\n" +
+		"		return rb.getString(\"Fish\", \"r12345\");\n" +
+		"	}\n" +
+		"	public String key(IResourceBundle rb) {\n" +
+		"		return rb.getString(\"r429260889\");\n" +
+		"	}\n" +
+		"	public int other(StringBuilder sb) {\n" +
+		"		return sb.indexOf(\"Palm Services\");\n" +
+		"	}\n" +
+		"}\n";
+
+	private File dir;
+
+	@Override
+	protected void setUp() throws IOException
+	{
+		dir = Files.createTempDirectory("keys").toFile();
+	}
+
+	@Override
+	protected void tearDown()
+	{
+		delete(dir);
+	}
+
+	private static void delete(File f)
+	{
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+
+	/**
+	 * Compile the sample class with the processor and return whether it
+	 * succeeded.
+	 */
+	private boolean compile(DiagnosticCollector<JavaFileObject> diagnostics, String... options) throws IOException
+	{
+		File src = new File(dir, "src/sample/Sample.java");
+		src.getParentFile().mkdirs();
+		Files.write(src.toPath(), SAMPLE.getBytes(StandardCharsets.UTF_8));
+		File classes = new File(dir, "classes");
+		File generated = new File(dir, "generated");
+		classes.mkdirs();
+		generated.mkdirs();
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+		try {
+			List<String> args = new ArrayList<String>(Arrays.asList(
+				"-classpath", System.getProperty("java.class.path"),
+				"-d", classes.getPath(),
+				"-s", generated.getPath(),
+				"-processor", StringKeyProcessor.class.getName()));
+			args.addAll(Arrays.asList(options));
+			return compiler.getTask(null, files, diagnostics, args, null, files.getJavaFileObjects(src)).call();
+		} finally {
+			files.close();
+		}
+	}
+
+	private static List<String> getMessages(DiagnosticCollector<JavaFileObject> diagnostics, Diagnostic.Kind kind)
+	{
+		List<String> messages = new ArrayList<String>();
+		for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+			if (d.getKind() == kind) {
+				messages.add(d.getMessage(Locale.ENGLISH));
+			}
+		}
+		return messages;
+	}
+
+	public void testGeneratesConstants() throws Exception
+	{
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		assertTrue(diagnostics.getDiagnostics().toString(), compile(diagnostics));
+
+		String generated = new String(Files.readAllBytes(new File(dir, "generated/sample/SampleStringKeys.java").toPath()), StandardCharsets.UTF_8);
+		assertTrue(generated, generated.contains("static final int SIGNING_IN = com.healthtap.test.R.string.r479509761;"));
+		assertTrue(generated, generated.contains("static final int DONE = com.healthtap.test.R.string.r481239240;"));
+		assertTrue(generated, generated.contains("static final int R429260889 = com.healthtap.test.R.string.r429260889;"));
+		assertTrue(generated, generated.contains("/** \"Signing in...\" */"));
+		assertFalse(generated, generated.contains("Not in R"));
+		assertFalse(generated, generated.contains("Fish"));
+		assertFalse(generated, generated.contains("Palm"));
+
+		URLClassLoader loader = new URLClassLoader(new URL[] {new File(dir, "classes").toURI().toURL()}, getClass().getClassLoader());
+		try {
+			Class<?> keys = loader.loadClass("sample.SampleStringKeys");
+			Field field = keys.getDeclaredField("SIGNING_IN");
+			field.setAccessible(true);
+			assertEquals(R.string.r479509761, field.getInt(null));
+
+			Class<?> sample = loader.loadClass("sample.Sample");
+			Object instance = sample.getDeclaredConstructor().newInstance();
+			Locale l = Locale.forLanguageTag("fr-FR");
+			IResourceBundle rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(l), l);
+			Method signingIn = sample.getMethod("signingIn", IResourceBundle.class);
+			Method done = sample.getMethod("done", IResourceBundle.class);
+			assertEquals("Connexion en cours...", signingIn.invoke(instance, rb));
+			assertEquals("Done", done.invoke(instance, rb));
+		} finally {
+			loader.close();
+		}
+	}
+
+	public void testWarnsAboutMissingKeys() throws Exception
+	{
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		assertTrue(compile(diagnostics));
+
+		List<String> warnings = getMessages(diagnostics, Diagnostic.Kind.WARNING);
+		int found = 0;
+		for (String warning : warnings) {
+			if (warning.startsWith("StringKeyProcessor:")) {
+				assertTrue(warning, warning.contains("\"Not in R\""));
+				assertTrue(warning, warning.contains("com.healthtap.test.R.string"));
+				found++;
+			}
+		}
+		assertEquals(warnings.toString(), 1, found);
+	}
+
+	public void testMissingKeysAsErrors() throws Exception
+	{
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		assertFalse(compile(diagnostics, "-Ahealthtap.missingKeys=error"));
+
+		List<String> errors = getMessages(diagnostics, Diagnostic.Kind.ERROR);
+		assertEquals(errors.toString(), 1, errors.size());
+		assertTrue(errors.get(0), errors.get(0).contains("\"Not in R\""));
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+
+/**
+ * Finds the files in the source tree that some tests read, so that the
+ * tests do not depend on the directory they are run from. The build sets
+ * the htglob.base system property to the java directory. Without it, the
+ * java directory is found by going up from where the test classes were
+ * loaded until there is one with the sources in it.
+ *
+ * @author edwin
+ *
+ */
+final class TestFiles
+{
+	private static final String MARKER = "src/com/healthtap/ScriptInfo.java";
+
+	private static final File BASE = findBase();
+
+	private TestFiles() {}
+
+	private static File findBase()
+	{
+		String base = System.getProperty("htglob.base");
+		if (base != null && base.length() > 0) {
+			return new File(base);
+		}
+		try {
+			File dir = new File(TestFiles.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			for (; dir != null; dir = dir.getParentFile()) {
+				if (new File(dir, MARKER).isFile()) {
+					return dir;
+				}
+			}
+		} catch (URISyntaxException | SecurityException | NullPointerException e) {
+			// fall back to the working directory
+		}
+		return new File(".");
+	}
+
+	/**
+	 * Return the given file, relative to the java directory of the tree.
+	 *
+	 * @param path the path of the file relative to the java directory
+	 * @return the file
+	 */
+	static File get(String path)
+	{
+		return new File(BASE, path);
+	}
+}
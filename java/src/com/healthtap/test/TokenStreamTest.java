@@ -0,0 +1,212 @@
+/**
+ * Copyright © 2016-2017, HealthTap, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.healthtap.test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.healthtap.IResourceBundle;
+import com.healthtap.TokenStream;
+
+import junit.framework.TestCase;
+
+
+/**
+ * @author edwin
+ *
+ */
+public class TokenStreamTest extends TestCase
+{
+	private static final int ALL = TokenStream.HTML_SYNTAX | TokenStream.JAVA_SYNTAX;
+
+	/**
+	 * Return the tokens in the form type:text for comparing.
+	 */
+	private List<String> tokens(String source, int syntax)
+	{
+		TokenStream tokens = TokenStream.tokenize(source, syntax);
+		String[] result = new String[tokens.size()];
+		for (int i = 0; i < tokens.size(); i++) {
+			result[i] = tokens.getType(i) + ":" + tokens.getText(i);
+		}
+		return Arrays.asList(result);
+	}
+
+	public void testText()
+	{
+		assertEquals(Arrays.asList("0:Just text"), tokens("Just text", ALL));
+		assertEquals(Collections.emptyList(), tokens("", ALL));
+	}
+
+	public void testRawSyntax()
+	{
+		assertEquals(Arrays.asList("0:<b>{name}</b> &amp; %s \\n"), tokens("<b>{name}</b> &amp; %s \\n", 0));
+	}
+
+	public void testHtmlSyntax()
+	{
+		assertEquals(Arrays.asList("1:<b>", "1:<i>", "3:{name}", "1:</i>", "0: ", "2:&amp;", "0: %s \\n", "1:</b>"),
+			tokens("<b><i>{name}</i> &amp; %s \\n</b>", TokenStream.HTML_SYNTAX));
+	}
+
+	public void testJavaSyntax()
+	{
+		assertEquals(Arrays.asList("0:<b>", "3:{name}", "0:</b> &amp; ", "4:%1$-10.2f", "0: ", "5:\\n", "5:\\u00e9", "5:\\{", "0:x} 100", "4:%%"),
+			tokens("<b>{name}</b> &amp; %1$-10.2f \\n\\u00e9\\{x} 100%%", TokenStream.JAVA_SYNTAX));
+	}
+
+	public void testEntities()
+	{
+		assertEquals(Arrays.asList("0:Fish & Chips ", "2:&#39;", "0:AT&T ", "2:&nbsp;", "0:&;"),
+			tokens("Fish & Chips &#39;AT&T &nbsp;&;", TokenStream.HTML_SYNTAX));
+	}
+
+	public void testUnterminated()
+	{
+		assertEquals(Arrays.asList("0:a {b ", "1:<c d"), tokens("a {b <c d", TokenStream.HTML_SYNTAX));
+		assertEquals(Arrays.asList("0:a ", "3:{b}", "0: {c"), tokens("a {b} {c", TokenStream.PLACEHOLDERS));
+		assertEquals(Arrays.asList("0:a ", "5:\\u", "0:12"), tokens("a \\u12", TokenStream.ESCAPES));
+		assertEquals(Arrays.asList("0:a ", "5:\\"), tokens("a \\", TokenStream.ESCAPES));
+		assertEquals(Arrays.asList("0:100%!"), tokens("100%!", TokenStream.FORMAT_SPECS));
+	}
+
+	public void testPositions()
+	{
+		TokenStream tokens = TokenStream.tokenize("a{b}c", TokenStream.PLACEHOLDERS);
+		assertEquals("a{b}c", tokens.getSource());
+		assertEquals(3, tokens.size());
+		assertEquals(1, tokens.getStart(1));
+		assertEquals(4, tokens.getEnd(1));
+		assertEquals(TokenStream.PLACEHOLDER, tokens.getType(1));
+		assertTrue(tokens.contains(TokenStream.PLACEHOLDER));
+		assertFalse(tokens.contains(TokenStream.TAG));
+	}
+
+	public void testCached()
+	{
+		TokenStream tokens = TokenStream.of("Cached {x}", TokenStream.PLACEHOLDERS);
+		assertSame(tokens, TokenStream.of(new String("Cached {x}"), TokenStream.PLACEHOLDERS));
+		assertNotSame(tokens, TokenStream.of("Cached {x}", TokenStream.HTML_SYNTAX));
+	}
+
+	public void testNull()
+	{
+		try {
+			TokenStream.tokenize(null, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * The format specifiers are the same ones the old regular expression found.
+	 */
+	public void testFormatSpecsMatchPattern()
+	{
+		Pattern percent = Pattern.compile("%(\\d+\\$)?([\\-#\\+ 0,\\(])?(\\d+)?(\\.\\d+)?[bBhHsScCdoxXeEfgGaAtT%n]");
+		String alphabet = "%%%$0123.-#+ ,(sdxnq";
+		Random random = new Random(23);
+		for (int n = 0; n < 20000; n++) {
+			StringBuilder sb = new StringBuilder("%");
+			int len = random.nextInt(8);
+			for (int i = 0; i < len; i++) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			String source = sb.toString();
+			Matcher m = percent.matcher(source);
+			TokenStream tokens = TokenStream.tokenize(source, TokenStream.FORMAT_SPECS);
+			if (m.lookingAt()) {
+				assertEquals(source, TokenStream.FORMAT, tokens.getType(0));
+				assertEquals(source, m.end(), tokens.getEnd(0));
+			} else {
+				assertEquals(source, TokenStream.TEXT, tokens.getType(0));
+			}
+		}
+	}
+
+	/**
+	 * Strings made of nothing but the start of a token that is never
+	 * finished would take quadratic time if each one searched the rest of
+	 * the string.
+	 */
+	public void testPathological()
+	{
+		int n = 200000;
+		for (String unit : new String[] {"{", "%1", "&a", "<", "\\"}) {
+			StringBuilder sb = new StringBuilder();
+			while (sb.length() < n) {
+				sb.append(unit);
+			}
+			TokenStream tokens = TokenStream.tokenize(sb.toString(), ALL);
+			assertEquals(n, tokens.getEnd(tokens.size() - 1));
+		}
+	}
+
+	public void testValidate()
+	{
+		assertEquals(Collections.emptyList(),
+			TokenStream.validate("Sent {n} to {email}.", "{email} a reçu {n}.", TokenStream.PLACEHOLDERS));
+		assertEquals(Arrays.asList("translation is missing {email}"),
+			TokenStream.validate("Sent to {email}.", "Envoyé.", TokenStream.PLACEHOLDERS));
+		assertEquals(Arrays.asList("translation has extra %d 2 times"),
+			TokenStream.validate("%s files", "%s %d %d fichiers", TokenStream.JAVA_SYNTAX));
+		// without the java syntax, format specifiers are just text
+		assertEquals(Collections.emptyList(),
+			TokenStream.validate("%s files", "%d fichiers", TokenStream.PLACEHOLDERS));
+	}
+
+	public void testPseudoKeepsTokens()
+	{
+		Locale locale = Locale.forLanguageTag("de-DE");
+		IResourceBundle rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(locale), locale);
+		rb.setLengthen(false);
+
+		rb.setType(IResourceBundle.HTML_TYPE);
+		assertEquals("<b><i>{name}</i></b> &amp; àñð", rb.getStringPseudo("<b><i>{name}</i></b> &amp; and"));
+
+		rb.setType(IResourceBundle.JAVA_TYPE);
+		assertEquals("%d%% %1$s àñð {name} \\n", rb.getStringPseudo("%d%% %1$s and {name} \\n"));
+		// the old code looked for a format specifier anywhere in the rest of the string
+		assertEquals("50%, %s", rb.getStringPseudo("50%, %s"));
+	}
+
+	public void testPseudoMalformedMarkup()
+	{
+		Locale locale = Locale.forLanguageTag("de-DE");
+		IResourceBundle rb = new IResourceBundle(R.string.class, new IResourceBundleTest().new MockResources(locale), locale);
+		rb.setLengthen(false);
+
+		// a bare ampersand is not an entity, so the text after it is
+		// pseudo-localized instead of being skipped up to a semicolon or space
+		rb.setType(IResourceBundle.HTML_TYPE);
+		assertEquals("ÃŤ&Ť ŕõçķš", rb.getStringPseudo("AT&T rocks"));
+		assertEquals("&ŵ}", rb.getStringPseudo("&w}"));
+
+		// a brace with no closing brace is text, not a placeholder that
+		// runs to the end of the string
+		assertEquals("à {àñð", rb.getStringPseudo("a {and"));
+		assertEquals("{x} àñð {ÿ", rb.getStringPseudo("{x} and {y"));
+		rb.setType(IResourceBundle.JAVA_TYPE);
+		assertEquals("à {àñð", rb.getStringPseudo("a {and"));
+	}
+}